@@ -0,0 +1,58 @@
+package org.sbol.projects.engine.benchmarks;
+
+import java.util.Map;
+import java.util.function.Function;
+
+import org.sbol.projects.engine.constants.Channel;
+import org.sbol.projects.engine.example.Item;
+import org.sbol.projects.engine.rules.BusinessRule;
+import org.sbol.projects.engine.rules.StreamRule;
+import org.sbol.projects.engine.rules.annotations.Rule;
+
+/**
+ * Business rule generated for a benchmark.
+ *
+ * @author david.ralluy
+ *
+ */
+@Rule(type = Item.class)
+public class BenchmarkRule extends BusinessRule<Item> {
+
+    /**
+     * Constructor.
+     *
+     * @param name Name
+     * @param priority Priority
+     * @param channel Channel
+     * @param rule Rule
+     */
+    public BenchmarkRule(final String name, final int priority, final Channel channel, final StreamRule<Item> rule) {
+        super(name, true, priority);
+        this.setChannel(channel);
+        this.setRule(rule);
+    }
+
+    /**
+     * The rule is set by the constructor.
+     */
+    @Override
+    public StreamRule<Item> defineRule() {
+        return null;
+    }
+
+    @Override
+    public Map<String, Object> defineParameters() {
+        return null;
+    }
+
+    @Override
+    public Function<Item, Item> defineTransformation() {
+        return null;
+    }
+
+    @Override
+    protected Item internalProcess(final Item context) {
+        return null;
+    }
+
+}
@@ -0,0 +1,38 @@
+package org.sbol.projects.engine.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of benchmarks.jar. It takes the usual JMH options and always adds the gc profiler, so every result
+ * reports the allocation rate next to throughput and latency.
+ *
+ * For example: java -jar target/benchmarks.jar StreamRuleManager -p items=100000 -p rules=100 -t 4
+ *
+ * @author david.ralluy
+ *
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+        //
+    }
+
+    /**
+     * Run the benchmarks.
+     *
+     * @param args JMH options
+     * @throws Exception Error running the benchmarks
+     */
+    public static void main(final String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+            .parent(new CommandLineOptions(args))
+            .addProfiler(GCProfiler.class)
+            .build();
+        new Runner(options).run();
+    }
+
+}
@@ -0,0 +1,49 @@
+package org.sbol.projects.engine.benchmarks;
+
+import java.util.function.Function;
+
+import org.openjdk.jmh.infra.Blackhole;
+import org.sbol.projects.engine.example.Item;
+import org.sbol.projects.engine.pipeline.AbstractProcessor;
+import org.sbol.projects.engine.pipeline.Context;
+import org.sbol.projects.engine.pipeline.DefaultContext;
+import org.sbol.projects.engine.pipeline.Transformer;
+
+/**
+ * Pipeline stage generated for a benchmark. It burns a fixed amount of CPU and, optionally, hands a new context to
+ * the next stage.
+ *
+ * @author david.ralluy
+ *
+ */
+public class BenchmarkStage extends AbstractProcessor<Context<Item>, Context<Item>>
+        implements Transformer<Context<Item>, Context<Item>> {
+
+    private final long cost;
+
+    private final boolean allocateContext;
+
+    /**
+     * Constructor.
+     *
+     * @param cost CPU tokens burnt by the stage, see {@link Blackhole#consumeCPU(long)}
+     * @param allocateContext New context for the next stage S/N
+     */
+    public BenchmarkStage(final long cost, final boolean allocateContext) {
+        this.cost = cost;
+        this.allocateContext = allocateContext;
+    }
+
+    @Override
+    protected Context<Item> internalProcess(final Context<Item> context) {
+        Blackhole.consumeCPU(this.cost);
+        return this.allocateContext ? new DefaultContext<>(context.getData(), context.getChannel(),
+                context.getParameters()) : context;
+    }
+
+    @Override
+    public Function<Context<Item>, Context<Item>> defineTransformation() {
+        return this::internalProcess;
+    }
+
+}
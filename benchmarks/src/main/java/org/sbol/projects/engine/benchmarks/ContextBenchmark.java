@@ -0,0 +1,80 @@
+package org.sbol.projects.engine.benchmarks;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sbol.projects.engine.constants.Channel;
+import org.sbol.projects.engine.example.Item;
+import org.sbol.projects.engine.pipeline.Context;
+import org.sbol.projects.engine.pipeline.DefaultContext;
+
+/**
+ * Creation of contexts, with and without parameters. The bytes per context come from the gc profiler.
+ *
+ * @author david.ralluy
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContextBenchmark {
+
+    private Item item;
+
+    private Map<String, Object> parameters;
+
+    /**
+     * Data creation.
+     */
+    @Setup
+    public void setUp() {
+        this.item = ItemDataset.generate(1).get(0);
+        this.parameters = new HashMap<>();
+        this.parameters.put("precio", Integer.valueOf(ItemDataset.MAX_PRICE));
+    }
+
+    /**
+     * Context with data only.
+     *
+     * @return Context
+     */
+    @Benchmark
+    public Context<Item> dataOnly() {
+        return new DefaultContext<>(this.item);
+    }
+
+    /**
+     * Context sharing the parameters.
+     *
+     * @return Context
+     */
+    @Benchmark
+    public Context<Item> sharedParameters() {
+        return new DefaultContext<>(this.item, Channel.WEB, this.parameters);
+    }
+
+    /**
+     * Context with its own copy of the parameters.
+     *
+     * @return Context
+     */
+    @Benchmark
+    public Context<Item> copiedParameters() {
+        return new DefaultContext<>(this.item, Channel.WEB, new HashMap<>(this.parameters));
+    }
+
+}
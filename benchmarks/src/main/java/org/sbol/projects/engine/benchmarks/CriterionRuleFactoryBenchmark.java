@@ -0,0 +1,74 @@
+package org.sbol.projects.engine.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sbol.projects.engine.constants.Channel;
+import org.sbol.projects.engine.example.Item;
+import org.sbol.projects.engine.rules.CriterionRuleFactory;
+import org.sbol.projects.engine.rules.StreamRule;
+
+/**
+ * Compilation of a chain of rules, as done on every rules change.
+ *
+ * @author david.ralluy
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CriterionRuleFactoryBenchmark {
+
+    @Param({ "1", "10", "100", "10000" })
+    private int rules;
+
+    @Param({ "FILTER", "SORT", "PEEK", "MIXED" })
+    private RuleMix mix;
+
+    @Param({ "true", "false" })
+    private boolean optimized;
+
+    private List<StreamRule<Item>> chain;
+
+    /**
+     * Rules creation.
+     */
+    @Setup
+    public void setUp() {
+        this.chain = new ArrayList<>(this.rules);
+        for (int i = 0; i < this.rules; i++) {
+            this.chain.add(this.mix.rule(i));
+        }
+    }
+
+    /**
+     * Chain compilation.
+     *
+     * @return Compiled chain
+     */
+    @Benchmark
+    public StreamRule<Item> build() {
+        CriterionRuleFactory<Item> factory = new CriterionRuleFactory<>();
+        factory.setOptimized(this.optimized);
+        for (StreamRule<Item> rule : this.chain) {
+            factory.fromCriterion(rule, Channel.ALL, Item.class);
+        }
+        return factory.build(Channel.ALL, Item.class);
+    }
+
+}
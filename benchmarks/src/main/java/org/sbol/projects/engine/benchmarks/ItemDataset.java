@@ -0,0 +1,61 @@
+package org.sbol.projects.engine.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.sbol.projects.engine.example.Item;
+
+/**
+ * Synthetic dataset of items. The same count and seed always give the same items, so results of different runs and
+ * releases can be compared.
+ *
+ * @author david.ralluy
+ *
+ */
+public final class ItemDataset {
+
+    /**
+     * Default seed.
+     */
+    public static final long DEFAULT_SEED = 42L;
+
+    /**
+     * Maximum price of an item. Prices are uniform between 0 and this value.
+     */
+    public static final int MAX_PRICE = 1000;
+
+    private ItemDataset() {
+        //
+    }
+
+    /**
+     * Items generated with the default seed.
+     *
+     * @param count Number of items
+     * @return Items
+     */
+    public static List<Item> generate(final int count) {
+        return ItemDataset.generate(count, ItemDataset.DEFAULT_SEED);
+    }
+
+    /**
+     * Items generated with a seed.
+     *
+     * @param count Number of items
+     * @param seed Seed
+     * @return Items
+     */
+    public static List<Item> generate(final int count, final long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<Item> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Item item = new Item();
+            item.setCode("item" + random.nextInt(count));
+            item.setPrice(random.nextInt(ItemDataset.MAX_PRICE + 1));
+            items.add(item);
+        }
+        return items;
+    }
+
+}
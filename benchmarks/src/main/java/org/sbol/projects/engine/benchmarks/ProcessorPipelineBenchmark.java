@@ -0,0 +1,94 @@
+package org.sbol.projects.engine.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sbol.projects.engine.constants.Channel;
+import org.sbol.projects.engine.example.Item;
+import org.sbol.projects.engine.pipeline.Context;
+import org.sbol.projects.engine.pipeline.DefaultContext;
+import org.sbol.projects.engine.pipeline.ProcessorPipeline;
+
+/**
+ * Pipeline execution by depth and cost of the stages.
+ *
+ * The baseline calls the same stages directly, so the overhead of the pipeline per stage is the difference between
+ * both scores divided by the depth. The allocation per call comes from the gc profiler.
+ *
+ * @author david.ralluy
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProcessorPipelineBenchmark {
+
+    @Param({ "1", "4", "16", "64" })
+    private int depth;
+
+    @Param({ "0", "10", "100" })
+    private long stageCost;
+
+    @Param({ "false", "true" })
+    private boolean allocateContext;
+
+    private ProcessorPipeline<Context<Item>, Context<Item>> pipeline;
+
+    private List<BenchmarkStage> stages;
+
+    private Context<Item> context;
+
+    /**
+     * Pipeline creation.
+     */
+    @Setup
+    public void setUp() {
+        this.stages = new ArrayList<>(this.depth);
+        for (int i = 0; i < this.depth; i++) {
+            this.stages.add(new BenchmarkStage(this.stageCost, this.allocateContext));
+        }
+        this.pipeline = new ProcessorPipeline<>();
+        this.pipeline.setProcessors(this.stages);
+        this.context = new DefaultContext<>(ItemDataset.generate(1).get(0), Channel.ALL);
+    }
+
+    /**
+     * Execution through the pipeline.
+     *
+     * @return Context of the last stage
+     */
+    @Benchmark
+    public Context<Item> pipeline() {
+        return this.pipeline.process(this.context);
+    }
+
+    /**
+     * Direct execution of the stages, without pipeline.
+     *
+     * @return Context of the last stage
+     */
+    @Benchmark
+    public Context<Item> baseline() {
+        Context<Item> current = this.context;
+        for (int i = 0; i < this.stages.size(); i++) {
+            current = this.stages.get(i).process(current);
+        }
+        return current;
+    }
+
+}
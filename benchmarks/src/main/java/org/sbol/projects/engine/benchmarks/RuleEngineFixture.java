@@ -0,0 +1,44 @@
+package org.sbol.projects.engine.benchmarks;
+
+import org.sbol.projects.engine.constants.Channel;
+import org.sbol.projects.engine.example.StreamRuleManagerItem;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+/**
+ * Spring context with a rule manager and the generated rules.
+ *
+ * @author david.ralluy
+ *
+ */
+public final class RuleEngineFixture {
+
+    private RuleEngineFixture() {
+        //
+    }
+
+    /**
+     * Context with the rules of a mix. For a specific channel half the rules are its own and half are inherited from
+     * all channels.
+     *
+     * @param rules Number of rules
+     * @param mix Rule mix
+     * @param channel Channel executed
+     * @return Context, with a {@link StreamRuleManagerItem} bean
+     */
+    public static AnnotationConfigApplicationContext create(final int rules, final RuleMix mix,
+            final Channel channel) {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        for (int i = 0; i < rules; i++) {
+            Channel ruleChannel = i % 2 == 0 ? Channel.ALL : channel;
+            String name = "rule" + i;
+            context.getBeanFactory().registerSingleton(name, new BenchmarkRule(name, rules - i, ruleChannel,
+                    mix.rule(i)));
+        }
+        context.register(StreamRuleManagerItem.class);
+        context.refresh();
+        // Rules compiled before measuring.
+        context.getBean(StreamRuleManagerItem.class).getSnapshot();
+        return context;
+    }
+
+}
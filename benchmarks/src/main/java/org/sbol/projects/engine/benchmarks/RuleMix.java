@@ -0,0 +1,79 @@
+package org.sbol.projects.engine.benchmarks;
+
+import java.util.Comparator;
+
+import org.sbol.projects.engine.example.Item;
+import org.sbol.projects.engine.rules.StreamRule;
+
+/**
+ * Kind of the rules generated for a benchmark.
+ *
+ * @author david.ralluy
+ *
+ */
+public enum RuleMix {
+
+    /**
+     * Predicates keeping most of the items.
+     */
+    FILTER,
+
+    /**
+     * Comparators by price or by code.
+     */
+    SORT,
+
+    /**
+     * Discounts over a price, like the DiscountedPriceRule of the tests.
+     */
+    PEEK,
+
+    /**
+     * Filters, discounts and sorts in turns.
+     */
+    MIXED;
+
+    private static final int FILTER_THRESHOLDS = 10;
+    private static final int DISCOUNT_THRESHOLDS = 100;
+    private static final int DISCOUNTED_PRICE = 99;
+
+    /**
+     * Rule of the mix.
+     *
+     * @param index Index of the rule
+     * @return Rule
+     */
+    public StreamRule<Item> rule(final int index) {
+        switch (this) {
+        case FILTER:
+            return RuleMix.filter(index);
+        case SORT:
+            return RuleMix.sort(index);
+        case PEEK:
+            return RuleMix.discount(index);
+        default:
+            return index % 3 == 0 ? RuleMix.filter(index)
+                    : index % 3 == 1 ? RuleMix.discount(index) : RuleMix.sort(index);
+        }
+    }
+
+    private static StreamRule<Item> filter(final int index) {
+        int threshold = index % RuleMix.FILTER_THRESHOLDS;
+        return StreamRule.filtered(p -> p.getPrice() >= threshold);
+    }
+
+    private static StreamRule<Item> sort(final int index) {
+        return StreamRule.sorted(index % 2 == 0 ? Comparator.comparingInt(Item::getPrice)
+                : Comparator.comparing(Item::getCode));
+    }
+
+    private static StreamRule<Item> discount(final int index) {
+        int threshold = ItemDataset.MAX_PRICE - index % RuleMix.DISCOUNT_THRESHOLDS;
+        return StreamRule.peeked(p -> {
+            if (p.getPrice() > threshold) {
+                p.setPrice(RuleMix.DISCOUNTED_PRICE);
+            }
+        });
+    }
+
+}
@@ -0,0 +1,98 @@
+package org.sbol.projects.engine.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sbol.projects.engine.constants.Channel;
+import org.sbol.projects.engine.constants.ExecutionMode;
+import org.sbol.projects.engine.example.Item;
+import org.sbol.projects.engine.example.StreamRuleManagerItem;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+/**
+ * Rules execution over a list of items. The number of caller threads is set with the -t option of JMH.
+ *
+ * Discount rules change the items of the dataset on the first execution; the following ones run over the discounted
+ * items, the steady state of a catalog.
+ *
+ * @author david.ralluy
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StreamRuleManagerBenchmark {
+
+    @Param({ "10", "1000", "100000", "1000000" })
+    private int items;
+
+    @Param({ "1", "10", "100", "10000" })
+    private int rules;
+
+    @Param({ "FILTER", "SORT", "PEEK", "MIXED" })
+    private RuleMix mix;
+
+    @Param({ "ALL", "WEB" })
+    private Channel channel;
+
+    @Param({ "SEQUENTIAL", "PARALLEL" })
+    private ExecutionMode mode;
+
+    @Param({ "false", "true" })
+    private boolean generated;
+
+    private AnnotationConfigApplicationContext context;
+
+    private StreamRuleManagerItem manager;
+
+    private List<Item> dataset;
+
+    /**
+     * Rules and dataset creation.
+     */
+    @Setup
+    public void setUp() {
+        this.context = RuleEngineFixture.create(this.rules, this.mix, this.channel);
+        this.manager = this.context.getBean(StreamRuleManagerItem.class);
+        if (this.generated) {
+            this.manager.getCriterionRuleFactory().setGenerated(true);
+            this.manager.loadRules(null);
+        }
+        this.dataset = ItemDataset.generate(this.items);
+    }
+
+    /**
+     * Context closing.
+     */
+    @TearDown
+    public void tearDown() {
+        this.context.close();
+    }
+
+    /**
+     * Rules execution.
+     *
+     * @return Items updated
+     * @throws InterruptedException Execution interrupted
+     */
+    @Benchmark
+    public List<Item> executeRules() throws InterruptedException {
+        return this.manager.executeRules(this.dataset, this.channel, this.mode);
+    }
+
+}
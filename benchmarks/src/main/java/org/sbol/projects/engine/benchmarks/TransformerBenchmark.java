@@ -0,0 +1,87 @@
+package org.sbol.projects.engine.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sbol.projects.engine.constants.Channel;
+import org.sbol.projects.engine.example.Item;
+import org.sbol.projects.engine.pipeline.Context;
+import org.sbol.projects.engine.pipeline.DefaultContext;
+
+/**
+ * Composition of transformers: calling every {@link org.sbol.projects.engine.pipeline.Transformer#transform(Object)},
+ * which asks the transformer for its function on every call, against a single function composed once.
+ *
+ * @author david.ralluy
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransformerBenchmark {
+
+    @Param({ "1", "4", "16" })
+    private int transformers;
+
+    private List<BenchmarkStage> stages;
+
+    private Function<Context<Item>, Context<Item>> composed;
+
+    private Context<Item> context;
+
+    /**
+     * Transformers creation.
+     */
+    @Setup
+    public void setUp() {
+        this.stages = new ArrayList<>(this.transformers);
+        this.composed = Function.identity();
+        for (int i = 0; i < this.transformers; i++) {
+            BenchmarkStage stage = new BenchmarkStage(0L, true);
+            this.stages.add(stage);
+            this.composed = this.composed.andThen(stage.defineTransformation());
+        }
+        this.context = new DefaultContext<>(ItemDataset.generate(1).get(0), Channel.ALL);
+    }
+
+    /**
+     * Transformers applied one after another.
+     *
+     * @return Context transformed
+     */
+    @Benchmark
+    public Context<Item> transform() {
+        Context<Item> current = this.context;
+        for (int i = 0; i < this.stages.size(); i++) {
+            current = this.stages.get(i).transform(current);
+        }
+        return current;
+    }
+
+    /**
+     * Transformers composed in a single function.
+     *
+     * @return Context transformed
+     */
+    @Benchmark
+    public Context<Item> composed() {
+        return this.composed.apply(this.context);
+    }
+
+}
@@ -11,16 +11,40 @@ public enum Channel {
     /**
      * All channels.
      */
-    ALL,
+    ALL(null),
 
     /**
      * Web channel.
      */
-    WEB,
+    WEB(ALL),
 
     /**
      * Mobile apps channel.
      */
-    MOBILE
+    MOBILE(ALL);
+
+    private final Channel parent;
+
+    Channel(final Channel parent) {
+        this.parent = parent;
+    }
+
+    /**
+     * Channel whose rules are inherited by this one. A specific channel also runs the rules of all channels.
+     *
+     * @return Parent channel, null for the root
+     */
+    public Channel getParent() {
+        return this.parent;
+    }
+
+    /**
+     * Inheritance depth: 0 for the root channel.
+     *
+     * @return Depth
+     */
+    public int getDepth() {
+        return this.parent == null ? 0 : this.parent.getDepth() + 1;
+    }
 
 }
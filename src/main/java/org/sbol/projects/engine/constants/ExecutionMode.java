@@ -0,0 +1,26 @@
+package org.sbol.projects.engine.constants;
+
+/**
+ * Execution modes for the business rules.
+ *
+ * @author david.ralluy
+ *
+ */
+public enum ExecutionMode {
+
+    /**
+     * Mode configured for the channel.
+     */
+    DEFAULT,
+
+    /**
+     * Single thread execution.
+     */
+    SEQUENTIAL,
+
+    /**
+     * Items split across the parallel rules pool.
+     */
+    PARALLEL
+
+}
@@ -0,0 +1,250 @@
+package org.sbol.projects.engine.repository;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.util.StreamUtils;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Local disk cache in front of another repository. Class files are stored by content, under the SHA-256 of their
+ * bytes, and an entry per class name points to the content:
+ *
+ * <pre>
+ * root/objects/ab/abcd...    class file bytes
+ * root/names/org.sbol.Rule   SHA-256 of the class file, in hex
+ * root/archives/ef01...      SHA-256 of an archive, under the SHA-256 of its name
+ * </pre>
+ *
+ * A class found in the cache is served without calling the cached repository, also after a restart. Its bytes are
+ * checked against the checksum on every load: a corrupted entry is dropped and loaded again. Files are written aside
+ * and moved into place, so concurrent loads, even from several processes, never see half written entries.
+ *
+ * Class and archive names are expected to be immutable: a new version of a rule or archive is published under a new
+ * name, e.g. one carrying its version, or the old entry is invalidated.
+ *
+ * @author david.ralluy
+ *
+ */
+@Slf4j
+public class CachingRuleRepository implements RuleRepository {
+
+    private static final String OBJECTS = "objects";
+
+    private static final String NAMES = "names";
+
+    private static final String ARCHIVES = "archives";
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final RuleRepository repository;
+
+    private final Path root;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Constructor.
+     *
+     * @param repository Cached repository
+     * @param root Cache directory, created if needed
+     * @throws IOException Error creating the directory
+     */
+    public CachingRuleRepository(final RuleRepository repository, final Path root) throws IOException {
+        this.repository = repository;
+        this.root = root;
+        Files.createDirectories(root.resolve(CachingRuleRepository.OBJECTS));
+        Files.createDirectories(root.resolve(CachingRuleRepository.NAMES));
+        Files.createDirectories(root.resolve(CachingRuleRepository.ARCHIVES));
+    }
+
+    @Override
+    public byte[] load(final String className) throws ClassNotFoundException {
+        Path name = this.nameFile(className);
+        byte[] cached = this.cached(name, className);
+        if (cached != null) {
+            this.hits.increment();
+            return cached;
+        }
+        this.misses.increment();
+        byte[] bytes = this.repository.load(className);
+        this.store(name, className, bytes);
+        return bytes;
+    }
+
+    /**
+     * Archive of the cached repository, cached as a whole by name: an archive republished under the same name keeps
+     * being served from the cache until {@link #invalidateArchive(String)}.
+     */
+    @Override
+    public InputStream openArchive(final String archiveName) throws IOException {
+        Path name = this.archiveFile(archiveName);
+        byte[] cached = this.cached(name, archiveName);
+        if (cached != null) {
+            this.hits.increment();
+        } else {
+            this.misses.increment();
+            try (InputStream input = this.repository.openArchive(archiveName)) {
+                cached = StreamUtils.copyToByteArray(input);
+            }
+            this.store(name, archiveName, cached);
+        }
+        return new ByteArrayInputStream(cached);
+    }
+
+    /**
+     * Drop the entry of a class, so the next load goes to the cached repository. The content stays, as other names
+     * may share it.
+     *
+     * @param className Binary class name
+     * @throws IOException Error deleting the entry
+     */
+    public void invalidate(final String className) throws IOException {
+        Files.deleteIfExists(this.nameFile(className));
+    }
+
+    /**
+     * Drop the entry of an archive, so the next open goes to the cached repository.
+     *
+     * @param archiveName Archive name in the repository
+     * @throws IOException Error deleting the entry
+     */
+    public void invalidateArchive(final String archiveName) throws IOException {
+        Files.deleteIfExists(this.archiveFile(archiveName));
+    }
+
+    /**
+     * Number of loads served from the cache.
+     *
+     * @return Hits
+     */
+    public long getHits() {
+        return this.hits.sum();
+    }
+
+    /**
+     * Number of loads that went to the cached repository.
+     *
+     * @return Misses
+     */
+    public long getMisses() {
+        return this.misses.sum();
+    }
+
+    /**
+     * Cache directory.
+     *
+     * @return Root
+     */
+    public Path getRoot() {
+        return this.root;
+    }
+
+    /**
+     * Cached bytes of a class or archive, checked against their checksum.
+     *
+     * @return Bytes, null if not cached or corrupted
+     */
+    private byte[] cached(final Path name, final String entry) {
+        try {
+            String digest = new String(Files.readAllBytes(name), StandardCharsets.US_ASCII).trim();
+            Path object = this.objectFile(digest);
+            byte[] bytes = Files.readAllBytes(object);
+            if (digest.equals(CachingRuleRepository.sha256(bytes))) {
+                return bytes;
+            }
+            CachingRuleRepository.log.warn("Corrupted cache entry for {}, loading it again", entry);
+            Files.deleteIfExists(object);
+            Files.deleteIfExists(name);
+        } catch (NoSuchFileException e) {
+            // Not cached
+        } catch (IOException | IllegalArgumentException e) {
+            CachingRuleRepository.log.warn("Unreadable cache entry for {}", entry, e);
+        }
+        return null;
+    }
+
+    private void store(final Path name, final String entry, final byte[] bytes) {
+        String digest = CachingRuleRepository.sha256(bytes);
+        Path object = this.objectFile(digest);
+        try {
+            if (!Files.exists(object)) {
+                Files.createDirectories(object.getParent());
+                this.write(object, bytes);
+            }
+            this.write(name, digest.getBytes(StandardCharsets.US_ASCII));
+        } catch (IOException e) {
+            // Loaded anyway, the next load goes to the repository again.
+            CachingRuleRepository.log.warn("Unable to cache {}", entry, e);
+        }
+    }
+
+    private void write(final Path target, final byte[] bytes) throws IOException {
+        Path temporary = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temporary, bytes);
+            try {
+                Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private Path nameFile(final String className) {
+        if (className.isEmpty() || className.indexOf('/') >= 0 || className.indexOf('\\') >= 0
+                || className.startsWith(".")) {
+            throw new IllegalArgumentException("Invalid class name: " + className);
+        }
+        return this.root.resolve(CachingRuleRepository.NAMES).resolve(className);
+    }
+
+    private Path archiveFile(final String archiveName) {
+        return this.root.resolve(CachingRuleRepository.ARCHIVES)
+            .resolve(CachingRuleRepository.sha256(archiveName.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private Path objectFile(final String digest) {
+        if (digest.length() != 64) {
+            throw new IllegalArgumentException("Invalid checksum: " + digest);
+        }
+        return this.root.resolve(CachingRuleRepository.OBJECTS).resolve(digest.substring(0, 2)).resolve(digest);
+    }
+
+    /**
+     * SHA-256 of some bytes, in hex.
+     *
+     * @param bytes Bytes
+     * @return Checksum
+     */
+    static String sha256(final byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            char[] hex = new char[digest.length * 2];
+            for (int i = 0; i < digest.length; i++) {
+                hex[2 * i] = CachingRuleRepository.HEX[(digest[i] >> 4) & 0xf];
+                hex[2 * i + 1] = CachingRuleRepository.HEX[digest[i] & 0xf];
+            }
+            return new String(hex);
+        } catch (NoSuchAlgorithmException e) {
+            // Every JVM has SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
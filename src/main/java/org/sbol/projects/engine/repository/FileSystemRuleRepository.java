@@ -0,0 +1,57 @@
+package org.sbol.projects.engine.repository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+/**
+ * Rule classes in a directory laid out as a classpath root: org/sbol/.../Rule.class.
+ *
+ * @author david.ralluy
+ *
+ */
+public class FileSystemRuleRepository implements RuleRepository {
+
+    private final Path root;
+
+    /**
+     * Constructor.
+     *
+     * @param root Classpath root directory
+     */
+    public FileSystemRuleRepository(final Path root) {
+        this.root = root;
+    }
+
+    @Override
+    public byte[] load(final String className) throws ClassNotFoundException {
+        Path file = this.root.resolve(RuleRepository.classFile(className));
+        try {
+            return Files.readAllBytes(file);
+        } catch (NoSuchFileException e) {
+            throw new ClassNotFoundException(className + " not found in " + this.root, e);
+        } catch (IOException e) {
+            throw new ClassNotFoundException("Unable to read " + file, e);
+        }
+    }
+
+    /**
+     * Archive file, relative to the root directory.
+     */
+    @Override
+    public InputStream openArchive(final String name) throws IOException {
+        return Files.newInputStream(this.root.resolve(name));
+    }
+
+    /**
+     * Classpath root directory.
+     *
+     * @return Root
+     */
+    public Path getRoot() {
+        return this.root;
+    }
+
+}
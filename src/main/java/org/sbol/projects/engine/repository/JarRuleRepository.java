@@ -0,0 +1,63 @@
+package org.sbol.projects.engine.repository;
+
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
+
+import org.springframework.util.StreamUtils;
+
+/**
+ * Rule classes packaged in a jar. The jar stays open until the repository gets closed.
+ *
+ * @author david.ralluy
+ *
+ */
+public class JarRuleRepository implements RuleRepository, Closeable {
+
+    private final JarFile jar;
+
+    /**
+     * Constructor.
+     *
+     * @param jar Jar file
+     * @throws IOException Error opening the jar
+     */
+    public JarRuleRepository(final Path jar) throws IOException {
+        this.jar = new JarFile(jar.toFile());
+    }
+
+    @Override
+    public byte[] load(final String className) throws ClassNotFoundException {
+        ZipEntry entry = this.jar.getEntry(RuleRepository.classFile(className));
+        if (entry == null) {
+            throw new ClassNotFoundException(className + " not found in " + this.jar.getName());
+        }
+        try (InputStream input = this.jar.getInputStream(entry)) {
+            return StreamUtils.copyToByteArray(input);
+        } catch (IOException e) {
+            throw new ClassNotFoundException("Unable to read " + className + " from " + this.jar.getName(), e);
+        }
+    }
+
+    /**
+     * Archive nested in the jar.
+     */
+    @Override
+    public InputStream openArchive(final String name) throws IOException {
+        ZipEntry entry = this.jar.getEntry(name);
+        if (entry == null) {
+            throw new FileNotFoundException(name + " not found in " + this.jar.getName());
+        }
+        return this.jar.getInputStream(entry);
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.jar.close();
+    }
+
+}
@@ -0,0 +1,70 @@
+package org.sbol.projects.engine.repository;
+
+/**
+ * Class loader of rule classes from a repository. As any class loader it asks its parent first, so only the classes
+ * the parent doesn't know get loaded from the repository.
+ *
+ * It is parallel capable: classes are locked one by one, so several threads define different classes at the same
+ * time.
+ *
+ * A loader opened by {@link RuleClassLoaders} belongs to a generation, which counts the classes it defines.
+ *
+ * @author david.ralluy
+ *
+ */
+public class RepositoryClassLoader extends ClassLoader {
+
+    static {
+        ClassLoader.registerAsParallelCapable();
+    }
+
+    private final RuleRepository repository;
+
+    private final RuleClassGeneration generation;
+
+    /**
+     * Constructor.
+     *
+     * @param repository Rule classes
+     * @param parent Parent class loader
+     */
+    public RepositoryClassLoader(final RuleRepository repository, final ClassLoader parent) {
+        this(repository, parent, null);
+    }
+
+    RepositoryClassLoader(final RuleRepository repository, final ClassLoader parent,
+            final RuleClassGeneration generation) {
+        super(parent);
+        this.repository = repository;
+        this.generation = generation;
+    }
+
+    @Override
+    protected Class<?> findClass(final String name) throws ClassNotFoundException {
+        byte[] classBytes = this.repository.load(name);
+        Class<?> defined = this.defineClass(name, classBytes, 0, classBytes.length);
+        if (this.generation != null) {
+            this.generation.defined(classBytes.length);
+        }
+        return defined;
+    }
+
+    /**
+     * Repository of the classes.
+     *
+     * @return Repository
+     */
+    public RuleRepository getRepository() {
+        return this.repository;
+    }
+
+    /**
+     * Generation of the loader.
+     *
+     * @return Generation, null if not opened by {@link RuleClassLoaders}
+     */
+    public RuleClassGeneration getGeneration() {
+        return this.generation;
+    }
+
+}
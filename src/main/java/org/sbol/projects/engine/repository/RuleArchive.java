@@ -0,0 +1,92 @@
+package org.sbol.projects.engine.repository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.springframework.util.StreamUtils;
+
+/**
+ * Classes of an archive (jar or zip) of rules, read in a single pass over a stream: a whole rule set takes a single
+ * request to the store, instead of a request per class.
+ *
+ * A class loader keeps its repository as long as any of its classes is alive, so once every class is defined the
+ * class file bytes should be {@link #release() released}, instead of staying on the heap next to the classes.
+ *
+ * @author david.ralluy
+ *
+ */
+public final class RuleArchive implements RuleRepository {
+
+    private static final String CLASS_SUFFIX = ".class";
+
+    private final Map<String, byte[]> classes;
+
+    private RuleArchive(final Map<String, byte[]> classes) {
+        this.classes = classes;
+    }
+
+    /**
+     * Read the classes of an archive. The stream is read to the end, not closed.
+     *
+     * @param input Archive stream
+     * @return Archive
+     * @throws IOException Error reading the stream
+     */
+    public static RuleArchive read(final InputStream input) throws IOException {
+        Map<String, byte[]> classes = new LinkedHashMap<>();
+        ZipInputStream zip = new ZipInputStream(input);
+        for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+            String name = entry.getName();
+            // Versioned and module descriptors are not rule classes.
+            if (!entry.isDirectory() && name.endsWith(RuleArchive.CLASS_SUFFIX) && !name.startsWith("META-INF/")
+                    && !name.endsWith("module-info.class")) {
+                String className = name.substring(0, name.length() - RuleArchive.CLASS_SUFFIX.length())
+                    .replace('/', '.');
+                classes.put(className, StreamUtils.copyToByteArray(zip));
+            }
+        }
+        return new RuleArchive(classes);
+    }
+
+    @Override
+    public byte[] load(final String className) throws ClassNotFoundException {
+        byte[] bytes = this.classes.get(className);
+        if (bytes == null) {
+            throw new ClassNotFoundException(className + (this.classes.containsKey(className)
+                    ? " already released from the archive" : " not found in the archive"));
+        }
+        return bytes;
+    }
+
+    /**
+     * Drop the class file bytes, keeping the class names. Loading a class afterwards fails.
+     */
+    public void release() {
+        this.classes.replaceAll((className, bytes) -> null);
+    }
+
+    /**
+     * Names of the classes of the archive.
+     *
+     * @return Binary class names, in archive order
+     */
+    public Set<String> getClassNames() {
+        return Collections.unmodifiableSet(this.classes.keySet());
+    }
+
+    /**
+     * Number of classes.
+     *
+     * @return Classes
+     */
+    public int size() {
+        return this.classes.size();
+    }
+
+}
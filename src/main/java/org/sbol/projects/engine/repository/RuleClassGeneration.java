@@ -0,0 +1,133 @@
+package org.sbol.projects.engine.repository;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Generation of rule classes: the classes defined by a single {@link RepositoryClassLoader}, e.g. a rule class or
+ * the rules of an archive. A generation is pending while its rules get created, active while a published rule set
+ * references them, retired once none does, and unloaded when its loader gets collected.
+ *
+ * The class file bytes defined are an estimate of the metaspace taken by the generation.
+ *
+ * @author david.ralluy
+ *
+ */
+public final class RuleClassGeneration {
+
+    /**
+     * Generation state.
+     */
+    public enum State {
+        PENDING, ACTIVE, RETIRED, UNLOADED
+    }
+
+    private final long id;
+
+    private final String source;
+
+    private final long created = System.currentTimeMillis();
+
+    private volatile State state = State.PENDING;
+
+    private final LongAdder classes = new LongAdder();
+
+    private final LongAdder classBytes = new LongAdder();
+
+    RuleClassGeneration(final long id, final String source) {
+        this.id = id;
+        this.source = source;
+    }
+
+    /**
+     * A class of the generation has been defined.
+     *
+     * @param length Class file length
+     */
+    void defined(final int length) {
+        this.classes.increment();
+        this.classBytes.add(length);
+    }
+
+    /**
+     * Mark the generation as referenced by the rule set about to be published.
+     */
+    public synchronized void activate() {
+        if (this.state == State.PENDING) {
+            this.state = State.ACTIVE;
+        }
+    }
+
+    /**
+     * Mark the generation as no longer referenced, so its loader can be unloaded.
+     */
+    public synchronized void retire() {
+        if (this.state == State.PENDING || this.state == State.ACTIVE) {
+            this.state = State.RETIRED;
+        }
+    }
+
+    synchronized void unloaded() {
+        this.state = State.UNLOADED;
+    }
+
+    /**
+     * Generation number, increasing in creation order.
+     *
+     * @return Id
+     */
+    public long getId() {
+        return this.id;
+    }
+
+    /**
+     * What the generation was loaded for: a rule class or an archive name.
+     *
+     * @return Source
+     */
+    public String getSource() {
+        return this.source;
+    }
+
+    /**
+     * Creation time.
+     *
+     * @return Milliseconds since the epoch
+     */
+    public long getCreated() {
+        return this.created;
+    }
+
+    /**
+     * Current state.
+     *
+     * @return State
+     */
+    public State getState() {
+        return this.state;
+    }
+
+    /**
+     * Number of classes defined.
+     *
+     * @return Classes
+     */
+    public long getClassCount() {
+        return this.classes.sum();
+    }
+
+    /**
+     * Class file bytes defined, an estimate of the metaspace of the generation.
+     *
+     * @return Bytes
+     */
+    public long getClassBytes() {
+        return this.classBytes.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "RuleClassGeneration[" + this.id + ", " + this.source + ", " + this.state + ", "
+                + this.getClassCount() + " classes]";
+    }
+
+}
@@ -0,0 +1,151 @@
+package org.sbol.projects.engine.repository;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Generations of rule class loaders (see {@link RuleClassGeneration}). Loaders are only weakly referenced, so a
+ * retired generation gets unloaded as soon as nothing else references its classes; the unloaded generations are
+ * dropped and only counted.
+ *
+ * @author david.ralluy
+ *
+ */
+public class RuleClassLoaders {
+
+    private static final String METASPACE_POOL = "Metaspace";
+
+    private final AtomicLong lastId = new AtomicLong();
+
+    private final Map<Long, LoaderReference> generations = new ConcurrentSkipListMap<>();
+
+    private final ReferenceQueue<RepositoryClassLoader> collected = new ReferenceQueue<>();
+
+    private final LongAdder unloadedGenerations = new LongAdder();
+
+    private final LongAdder unloadedClasses = new LongAdder();
+
+    /**
+     * Loader of a new generation, pending until activated.
+     *
+     * @param source What the generation is loaded for
+     * @param repository Rule classes
+     * @param parent Parent class loader
+     * @return Class loader
+     */
+    public RepositoryClassLoader open(final String source, final RuleRepository repository,
+            final ClassLoader parent) {
+        this.expunge();
+        RuleClassGeneration generation = new RuleClassGeneration(this.lastId.incrementAndGet(), source);
+        RepositoryClassLoader loader = new RepositoryClassLoader(repository, parent, generation);
+        this.generations.put(generation.getId(), new LoaderReference(loader, generation, this.collected));
+        return loader;
+    }
+
+    /**
+     * Retire the active generations none of the given objects, usually the rules of a new rule set, is an instance
+     * of.
+     *
+     * @param instances Referenced objects
+     */
+    public void retainReferenced(final Collection<?> instances) {
+        Set<ClassLoader> live = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Object instance : instances) {
+            live.add(instance.getClass().getClassLoader());
+        }
+        for (LoaderReference reference : this.generations.values()) {
+            RepositoryClassLoader loader = reference.get();
+            if (reference.generation.getState() == RuleClassGeneration.State.ACTIVE
+                    && (loader == null || !live.contains(loader))) {
+                reference.generation.retire();
+            }
+        }
+        this.expunge();
+    }
+
+    /**
+     * Generations not unloaded yet.
+     *
+     * @return Generations, in creation order
+     */
+    public List<RuleClassGeneration> getGenerations() {
+        this.expunge();
+        List<RuleClassGeneration> result = new ArrayList<>(this.generations.size());
+        for (LoaderReference reference : this.generations.values()) {
+            result.add(reference.generation);
+        }
+        return result;
+    }
+
+    /**
+     * Number of generations unloaded.
+     *
+     * @return Generations
+     */
+    public long getUnloadedGenerations() {
+        this.expunge();
+        return this.unloadedGenerations.sum();
+    }
+
+    /**
+     * Number of classes of the generations unloaded.
+     *
+     * @return Classes
+     */
+    public long getUnloadedClasses() {
+        this.expunge();
+        return this.unloadedClasses.sum();
+    }
+
+    /**
+     * Metaspace used by the whole JVM.
+     *
+     * @return Bytes, -1 if the JVM has no metaspace pool
+     */
+    public static long getMetaspaceUsed() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (RuleClassLoaders.METASPACE_POOL.equals(pool.getName())) {
+                return pool.getUsage().getUsed();
+            }
+        }
+        return -1L;
+    }
+
+    private void expunge() {
+        for (Reference<?> reference = this.collected.poll(); reference != null; reference = this.collected.poll()) {
+            RuleClassGeneration generation = ((LoaderReference) reference).generation;
+            this.generations.remove(generation.getId());
+            generation.unloaded();
+            this.unloadedGenerations.increment();
+            this.unloadedClasses.add(generation.getClassCount());
+        }
+    }
+
+    /**
+     * Weak reference to the loader of a generation.
+     */
+    private static final class LoaderReference extends WeakReference<RepositoryClassLoader> {
+
+        private final RuleClassGeneration generation;
+
+        LoaderReference(final RepositoryClassLoader loader, final RuleClassGeneration generation,
+                final ReferenceQueue<RepositoryClassLoader> queue) {
+            super(loader, queue);
+            this.generation = generation;
+        }
+    }
+
+}
@@ -0,0 +1,46 @@
+package org.sbol.projects.engine.repository;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Store of compiled rule classes, by class name.
+ *
+ * @author david.ralluy
+ *
+ */
+@FunctionalInterface
+public interface RuleRepository {
+
+    /**
+     * Bytecode of a class.
+     *
+     * @param className Binary class name, e.g. org.sbol.projects.engine.rules.FixedPriceRule
+     * @return Class file bytes
+     * @throws ClassNotFoundException The store has no such class, or can't be read
+     */
+    byte[] load(final String className) throws ClassNotFoundException;
+
+    /**
+     * Stream of a whole archive of rules (see {@link RuleArchive}). Not every repository serves archives.
+     *
+     * @param name Archive name in the repository
+     * @return Archive stream, to be closed by the caller
+     * @throws IOException The repository has no such archive, or can't be read
+     */
+    default InputStream openArchive(final String name) throws IOException {
+        throw new FileNotFoundException("Archives not supported: " + name);
+    }
+
+    /**
+     * Path of the class file of a class, relative to a classpath root.
+     *
+     * @param className Binary class name
+     * @return Path, with / as separator
+     */
+    static String classFile(final String className) {
+        return className.replace('.', '/') + ".class";
+    }
+
+}
@@ -0,0 +1,93 @@
+package org.sbol.projects.engine.repository;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.springframework.util.StreamUtils;
+
+import com.amazonaws.auth.ClasspathPropertiesFileCredentialsProvider;
+import com.amazonaws.regions.Region;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.AmazonS3Client;
+import com.amazonaws.services.s3.model.S3Object;
+
+/**
+ * Rule classes uploaded to an AWS S3 bucket, with the binary class name as key (without .class), as
+ * {@link org.sbol.projects.engine.utils.S3ClassLoader} expects them. A single client is kept for all the loads, and
+ * each class takes a single request.
+ *
+ * @author david.ralluy
+ *
+ */
+public class S3RuleRepository implements RuleRepository {
+
+    private final AmazonS3 s3;
+
+    private final String bucketName;
+
+    /**
+     * Constructor with the credentials of the classpath.
+     *
+     * @param bucketName Bucket name
+     * @param region AWS region
+     */
+    public S3RuleRepository(final String bucketName, final Region region) {
+        this(S3RuleRepository.client(region), bucketName);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param s3 S3 client
+     * @param bucketName Bucket name
+     */
+    public S3RuleRepository(final AmazonS3 s3, final String bucketName) {
+        this.s3 = s3;
+        this.bucketName = bucketName;
+    }
+
+    private static AmazonS3 client(final Region region) {
+        AmazonS3Client client = new AmazonS3Client(new ClasspathPropertiesFileCredentialsProvider());
+        client.setRegion(region);
+        return client;
+    }
+
+    @Override
+    public byte[] load(final String className) throws ClassNotFoundException {
+        try {
+            S3Object object = this.s3.getObject(this.bucketName, className);
+            try (InputStream input = object.getObjectContent()) {
+                // Read to the end: a single read may return only part of the object.
+                return StreamUtils.copyToByteArray(input);
+            }
+        } catch (IOException | RuntimeException e) {
+            throw new ClassNotFoundException(
+                    "Unable to find class resource for key \"" + className + "\" in S3 Bucket \"" + this.bucketName
+                            + "\"",
+                    e);
+        }
+    }
+
+    /**
+     * Archive uploaded to the bucket, streamed with a single request.
+     */
+    @Override
+    public InputStream openArchive(final String name) throws IOException {
+        try {
+            return this.s3.getObject(this.bucketName, name).getObjectContent();
+        } catch (RuntimeException e) {
+            throw new IOException("Unable to get archive \"" + name + "\" from S3 Bucket \"" + this.bucketName + "\"",
+                    e);
+        }
+    }
+
+    /**
+     * Get bucket name.
+     *
+     * @return Bucket name
+     */
+    public String getBucketName() {
+        return this.bucketName;
+    }
+
+}
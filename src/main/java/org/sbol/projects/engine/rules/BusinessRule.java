@@ -1,11 +1,11 @@
 package org.sbol.projects.engine.rules;
 
 import java.util.Map;
-import java.util.Map.Entry;
 
 import org.sbol.projects.engine.constants.Channel;
 import org.sbol.projects.engine.pipeline.AbstractProcessor;
 import org.sbol.projects.engine.pipeline.Transformer;
+import org.sbol.projects.engine.rules.parameters.RuleParameters;
 
 import lombok.Getter;
 import lombok.Setter;
@@ -19,16 +19,25 @@ import lombok.Setter;
  * @param <T>
  *
  */
-public abstract class BusinessRule<T> extends AbstractProcessor<T, T> implements Transformer<T, T> {
+public abstract class BusinessRule<T> extends AbstractProcessor<T, T> implements Transformer<T, T>, Cloneable {
 
-    private StreamRule<T> rule;
+    private volatile StreamRule<T> rule;
 
-    private Map<String, Object> parameters;
+    // Versión inmutable de los parámetros, se sustituye completa en cada actualización.
+    private volatile RuleParameters parameters;
 
     @Getter
     @Setter
     private Channel channel = Channel.ALL;
 
+    /**
+     * Indica si la regla es un filtro independiente de los demás filtros conmutativos de su misma prioridad, de forma
+     * que el motor puede reordenarlos según su coste y selectividad medidos.
+     */
+    @Getter
+    @Setter
+    private boolean commutative;
+
     /**
      * Constructor de una regla con solo un nombre y activa por defecto.
      *
@@ -65,7 +74,23 @@ public abstract class BusinessRule<T> extends AbstractProcessor<T, T> implements
         this.setName(name);
         this.setEnabled(enabled);
         this.setPriority(priority);
-        this.parameters = this.defineParameters();
+        this.define();
+    }
+
+    /**
+     * Constructor de una regla cuya definición depende del estado de la subclase. La subclase fija nombre, activación
+     * y prioridad, y llama a {@link #define()} una vez inicializada.
+     */
+    protected BusinessRule() {
+        // Definición diferida
+    }
+
+    /**
+     * Definición de los parámetros y de la regla.
+     */
+    protected final void define() {
+        Map<String, Object> defined = this.defineParameters();
+        this.parameters = defined == null ? null : RuleParameters.of(defined);
         this.setRule(this.defineRule());
     }
 
@@ -85,30 +110,73 @@ public abstract class BusinessRule<T> extends AbstractProcessor<T, T> implements
     public abstract Map<String, Object> defineParameters();
 
     /**
-     * Obtención de los parámetros.
+     * Obtención de los parámetros de la versión actual, de solo lectura. No copia nada, de forma que puede llamarse
+     * por cada elemento; para cambiarlos se usa {@link #updateParameters(Map)}.
      *
      * @return Parámetros
      */
     public Map<String, Object> getParameters() {
+        RuleParameters current = this.parameters;
+        return current == null ? null : current.asMap();
+    }
+
+    /**
+     * Obtención de la versión actual de los parámetros. Los parámetros tipados ({@link
+     * org.sbol.projects.engine.rules.parameters.IntParameter} y demás) se resuelven sobre ella al definir la regla.
+     *
+     * @return Parámetros, null si la regla no los define
+     */
+    public RuleParameters getParameterSet() {
         return this.parameters;
     }
 
     /**
-     * Actualización de los parámetros de la regla.
+     * Actualización de los parámetros de la regla. Se publica una nueva versión de los parámetros y se vuelve a
+     * definir la regla con ella, de forma que una ejecución ve todos los valores anteriores o todos los nuevos. Si la
+     * regla no puede definirse con los nuevos valores se mantiene la versión anterior.
      *
      * @param lParameters
      *            {@link Map} de parametros.
      */
-    public void updateParameters(final Map<String, Object> lParameters) {
-        if (this.parameters != null) {
-            for (Entry<String, Object> parameter : this.parameters.entrySet()) {
-                if (lParameters.containsKey(parameter.getKey())) {
-                    this.parameters.put(parameter.getKey(), lParameters.get(parameter.getKey()));
-                }
-            }
+    public synchronized void updateParameters(final Map<String, Object> lParameters) {
+        RuleParameters previous = this.parameters;
+        if (previous == null || lParameters == null) {
+            return;
+        }
+        this.parameters = previous.with(lParameters);
+        try {
+            this.setRule(this.defineRule());
+        } catch (RuntimeException e) {
+            this.parameters = previous;
+            throw e;
         }
     }
 
+    /**
+     * Copia de la regla, que comparte la definición compilada. El motor modifica copias, de forma que las reglas de
+     * la versión publicada no cambian. Las subclases con estado mutable propio deben sobrescribirla.
+     *
+     * @return Copia
+     */
+    @SuppressWarnings("unchecked")
+    protected BusinessRule<T> copy() {
+        try {
+            return (BusinessRule<T>) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Indica si la regla necesita toda la entrada antes de devolver el primer elemento (p.e. una ordenación). Por
+     * defecto lo indica la propia {@link StreamRule}.
+     *
+     * @return Buffering S/N
+     */
+    public boolean isBuffering() {
+        return this.rule != null && this.rule.isBuffering();
+    }
+
     /**
      * Getter de la regla.
      *
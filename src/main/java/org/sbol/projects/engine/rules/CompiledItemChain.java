@@ -0,0 +1,22 @@
+package org.sbol.projects.engine.rules;
+
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Base of the classes generated for a chain of per item rules (see {@link RuleChainGenerator}). A generated class
+ * calls the logic of every rule in sequence from a single method, so the JIT can inline the whole chain.
+ *
+ * @author david.ralluy
+ * @param <T>
+ *            Rule type
+ *
+ */
+public abstract class CompiledItemChain<T> implements ItemRule<T> {
+
+    @Override
+    public Stream<T> apply(final Stream<T> stream) {
+        return stream.map(this::applyTo).filter(Objects::nonNull);
+    }
+
+}
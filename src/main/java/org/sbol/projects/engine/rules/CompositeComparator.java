@@ -0,0 +1,53 @@
+package org.sbol.projects.engine.rules;
+
+import java.util.Comparator;
+
+/**
+ * Comparator by several orders kept as a flat array: the next order only breaks the ties of the previous ones.
+ * Unlike nesting {@link Comparator#thenComparing(Comparator)}, the stack depth doesn't grow with the number of orders.
+ *
+ * @author david.ralluy
+ * @param <T>
+ *            Item type
+ *
+ */
+final class CompositeComparator<T> implements Comparator<T> {
+
+    private final Comparator<T>[] comparators;
+
+    private CompositeComparator(final Comparator<T>[] comparators) {
+        this.comparators = comparators;
+    }
+
+    /**
+     * Order by the first comparator, then by the second one, flattening the composite ones.
+     *
+     * @param first First order
+     * @param second Order for the ties
+     * @param <T> Item type
+     * @return Comparator
+     */
+    @SuppressWarnings("unchecked")
+    static <T> Comparator<T> of(final Comparator<T> first, final Comparator<T> second) {
+        Comparator<T>[] head = first instanceof CompositeComparator ? ((CompositeComparator<T>) first).comparators
+                : new Comparator[] { first };
+        Comparator<T>[] tail = second instanceof CompositeComparator ? ((CompositeComparator<T>) second).comparators
+                : new Comparator[] { second };
+        Comparator<T>[] comparators = new Comparator[head.length + tail.length];
+        System.arraycopy(head, 0, comparators, 0, head.length);
+        System.arraycopy(tail, 0, comparators, head.length, tail.length);
+        return new CompositeComparator<>(comparators);
+    }
+
+    @Override
+    public int compare(final T o1, final T o2) {
+        for (Comparator<T> comparator : this.comparators) {
+            int result = comparator.compare(o1, o2);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return 0;
+    }
+
+}
@@ -0,0 +1,52 @@
+package org.sbol.projects.engine.rules;
+
+import java.util.function.Predicate;
+
+/**
+ * Conjunction of predicates kept as a flat array, tested in a loop. Unlike nesting {@link Predicate#and(Predicate)},
+ * the stack depth doesn't grow with the number of predicates.
+ *
+ * @author david.ralluy
+ * @param <T>
+ *            Item type
+ *
+ */
+final class CompositePredicate<T> implements Predicate<T> {
+
+    private final Predicate<T>[] predicates;
+
+    private CompositePredicate(final Predicate<T>[] predicates) {
+        this.predicates = predicates;
+    }
+
+    /**
+     * Conjunction of two predicates, flattening the composite ones.
+     *
+     * @param first First predicate
+     * @param second Second predicate
+     * @param <T> Item type
+     * @return Predicate testing the first, then the second
+     */
+    @SuppressWarnings("unchecked")
+    static <T> Predicate<T> of(final Predicate<T> first, final Predicate<T> second) {
+        Predicate<T>[] head = first instanceof CompositePredicate ? ((CompositePredicate<T>) first).predicates
+                : new Predicate[] { first };
+        Predicate<T>[] tail = second instanceof CompositePredicate ? ((CompositePredicate<T>) second).predicates
+                : new Predicate[] { second };
+        Predicate<T>[] predicates = new Predicate[head.length + tail.length];
+        System.arraycopy(head, 0, predicates, 0, head.length);
+        System.arraycopy(tail, 0, predicates, head.length, tail.length);
+        return new CompositePredicate<>(predicates);
+    }
+
+    @Override
+    public boolean test(final T item) {
+        for (Predicate<T> predicate : this.predicates) {
+            if (!predicate.test(item)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -3,9 +3,9 @@ package org.sbol.projects.engine.rules;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Predicate;
-import java.util.stream.Stream;
 
 import org.sbol.projects.engine.constants.Channel;
 
@@ -15,7 +15,7 @@ import org.sbol.projects.engine.constants.Channel;
  * - Comparators: Using Comparator we can order the result.
  * - Rule. Any function processing a stream and returning another. For general business logic,
  *
- * The final result is got from an all rules reduction composition.
+ * The final result is got from an all rules composition, after optimizing the chain.
  *
  * @author david.ralluy
  * @param <T>
@@ -26,6 +26,13 @@ public final class CriterionRuleFactory<T> {
 
     private Map<Class<?>, RulesMap<T>> reglas = new HashMap<>();
 
+    private boolean optimized = true;
+
+    private boolean generated;
+
+    // Version of the rule set being built, naming the generated classes.
+    private long version;
+
     /**
      * Default constructor.
      */
@@ -69,7 +76,7 @@ public final class CriterionRuleFactory<T> {
     public CriterionRuleFactory<T> fromPredicate(final Predicate<T> predicate, final Channel channel,
             final Class<?> clazz) {
         this.checkChannelCreated(channel, clazz);
-        this.reglas.get(clazz).get(channel).add(p -> p.filter(predicate));
+        this.reglas.get(clazz).get(channel).add(new FilterRule<>(predicate));
         return this;
     }
 
@@ -100,7 +107,7 @@ public final class CriterionRuleFactory<T> {
     public CriterionRuleFactory<T> fromComparator(final Comparator<T> comparator, final Channel channel,
             final Class<?> clazz) {
         this.checkChannelCreated(channel, clazz);
-        this.reglas.get(clazz).get(channel).add(p -> p.sorted(comparator));
+        this.reglas.get(clazz).get(channel).add(new SortRule<>(comparator));
         return this;
     }
 
@@ -148,14 +155,11 @@ public final class CriterionRuleFactory<T> {
 
     /**
      * Recorrido sobre todas las reglas de negocio, y aplicación de unas sobre otras según el orden de inserción.
-     * Función reduce. Tiene dos parámetros: identidad y acumulador
-     * Parámetro identidad: Valor inicial de la reducción y resultado por defecto si no hay elementos (reglas) en el
-     * stream. Es decir,
-     * es la lista original de productos devueltos en la consulta, a la que se deben aplicar las reglas.
-     * Parámetro acumulador: Es una función con dos parámetros: Un resultado parcial de la acumulación y el siguiente
-     * elemento del stream.
-     * Este acumulador es un lambda cuya aplicación es un Stream<ProductTO> resultado de aplicar una regla sobre otra
-     * regla.
+     * La cadena de reglas se optimiza antes de componerla (ver {@link RuleChainOptimizer}): se fusionan los filtros
+     * contiguos, se unen las ordenaciones consecutivas y se adelantan los filtros a las ordenaciones. El resultado es
+     * una única regla que aplica toda la cadena en orden. Con la generación de clases activa, las cadenas de reglas
+     * por elemento se ejecutan mediante una clase generada (ver {@link RuleChainGenerator}) y los filtros no se
+     * fusionan.
      *
      * @param channel
      *            Canal.
@@ -165,18 +169,59 @@ public final class CriterionRuleFactory<T> {
      * @return Regla compuesta
      */
     public StreamRule<T> build(final Channel channel, final Class<?> clazz) {
-        //@formatter:off
-        return
-            this
-                .reglas
-                .get(clazz)
-                .get(channel)
-                .stream()
-                .reduce(
-                    (final Stream<T> r) -> r,
-                    (final StreamRule<T> r1, final StreamRule<T> r2) -> (final Stream<T> s) -> r2.apply(r1.apply(s))
-                );
-        //@formatter:on
+        List<StreamRule<T>> rules = this.reglas.get(clazz).get(channel);
+        RuleChain<T> chain = new RuleChain<>(this.optimized ? RuleChainOptimizer.optimize(rules, !this.generated)
+                : rules);
+        return this.generated ? RuleChainGenerator.generate(chain, clazz, channel, this.version) : chain;
+    }
+
+    /**
+     * Indicates if the chain of rules gets optimized when built.
+     *
+     * @return Optimized S/N
+     */
+    public boolean isOptimized() {
+        return this.optimized;
+    }
+
+    /**
+     * Set if the chain of rules gets optimized when built. Enabled by default.
+     *
+     * @param optimized
+     *            Optimized S/N
+     */
+    public void setOptimized(final boolean optimized) {
+        this.optimized = optimized;
+    }
+
+    /**
+     * Indicates if a class gets generated for every chain of per item rules built.
+     *
+     * @return Generated S/N
+     */
+    public boolean isGenerated() {
+        return this.generated;
+    }
+
+    /**
+     * Set if a class gets generated for every chain of per item rules built (see {@link RuleChainGenerator}), so the
+     * JIT can inline the whole chain. Disabled by default.
+     *
+     * @param generated
+     *            Generated S/N
+     */
+    public void setGenerated(final boolean generated) {
+        this.generated = generated;
+    }
+
+    /**
+     * Set the version of the rule set the next chains are built for, naming their generated classes.
+     *
+     * @param version
+     *            Rule set version
+     */
+    public void setVersion(final long version) {
+        this.version = version;
     }
 
     /**
@@ -186,6 +231,30 @@ public final class CriterionRuleFactory<T> {
         this.reglas.clear();
     }
 
+    /**
+     * Clearing business rules of a single class. Rules of other classes are kept.
+     *
+     * @param clazz
+     *            Class.
+     */
+    public void clearRules(final Class<?> clazz) {
+        this.reglas.remove(clazz);
+    }
+
+    /**
+     * Clearing business rules of a single channel of a class. Rules of other channels and classes are kept.
+     *
+     * @param channel
+     *            Channel.
+     * @param clazz
+     *            Class.
+     */
+    public void clearRules(final Channel channel, final Class<?> clazz) {
+        if (this.reglas.get(clazz) != null) {
+            this.reglas.get(clazz).remove(channel);
+        }
+    }
+
     /**
      * Get rules.
      *
@@ -0,0 +1,51 @@
+package org.sbol.projects.engine.rules;
+
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Filter rule. Only the items matching the predicate go on through the stream.
+ *
+ * @author david.ralluy
+ * @param <T>
+ *            Rule type
+ *
+ */
+public class FilterRule<T> implements ItemRule<T> {
+
+    private final Predicate<T> predicate;
+
+    /**
+     * Constructor.
+     *
+     * @param predicate Condition for the items to keep
+     */
+    public FilterRule(final Predicate<T> predicate) {
+        this.predicate = predicate;
+    }
+
+    @Override
+    public Stream<T> apply(final Stream<T> stream) {
+        return stream.filter(this.predicate);
+    }
+
+    @Override
+    public T applyTo(final T item) {
+        return this.predicate.test(item) ? item : null;
+    }
+
+    @Override
+    public RuleKind getKind() {
+        return RuleKind.FILTER;
+    }
+
+    /**
+     * Condition for the items to keep.
+     *
+     * @return Predicate
+     */
+    public Predicate<T> getPredicate() {
+        return this.predicate;
+    }
+
+}
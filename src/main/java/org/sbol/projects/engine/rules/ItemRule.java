@@ -0,0 +1,22 @@
+package org.sbol.projects.engine.rules;
+
+/**
+ * Stream rule that works over every item independently of the others. Besides the stream form, it can be applied to
+ * a single item, so the engine can run it without building a stream.
+ *
+ * @author david.ralluy
+ * @param <T>
+ *            Rule type
+ *
+ */
+public interface ItemRule<T> extends StreamRule<T> {
+
+    /**
+     * Apply the rule to a single item.
+     *
+     * @param item Item
+     * @return Item to go on with, or null when the rule discards it
+     */
+    T applyTo(T item);
+
+}
@@ -0,0 +1,53 @@
+package org.sbol.projects.engine.rules;
+
+import java.util.Objects;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * Transformation rule. Every item is replaced by the result of the mapper. A null result discards the item, whether
+ * the rule is applied to a stream or item by item.
+ *
+ * @author david.ralluy
+ * @param <T>
+ *            Rule type
+ *
+ */
+public class MapRule<T> implements ItemRule<T> {
+
+    private final UnaryOperator<T> mapper;
+
+    /**
+     * Constructor.
+     *
+     * @param mapper Transformation of every item
+     */
+    public MapRule(final UnaryOperator<T> mapper) {
+        this.mapper = mapper;
+    }
+
+    @Override
+    public Stream<T> apply(final Stream<T> stream) {
+        return stream.map(this.mapper).filter(Objects::nonNull);
+    }
+
+    @Override
+    public T applyTo(final T item) {
+        return this.mapper.apply(item);
+    }
+
+    @Override
+    public RuleKind getKind() {
+        return RuleKind.MAP;
+    }
+
+    /**
+     * Transformation of every item.
+     *
+     * @return Mapper
+     */
+    public UnaryOperator<T> getMapper() {
+        return this.mapper;
+    }
+
+}
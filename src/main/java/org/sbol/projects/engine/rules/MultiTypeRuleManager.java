@@ -0,0 +1,154 @@
+package org.sbol.projects.engine.rules;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import org.sbol.projects.engine.constants.Channel;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Rules engine for lists mixing several item types. Every element is dispatched to the compiled chain of its class
+ * in a single traversal of the list.
+ *
+ * Every type keeps its own registry: the {@link StreamRuleManager} of its class, with its own rule set snapshot and
+ * rule factory, so a rebuild for one type never touches the others.
+ *
+ * Per item chains run inline, keeping the position of every element. The elements of a type whose chain works over
+ * the whole stream (a sort, an opaque rule) are gathered during the traversal and run through their chain at the end;
+ * the result takes the position of the first element of that type.
+ * Elements of a class without manager are kept as they are.
+ *
+ * @author david.ralluy
+ *
+ */
+public class MultiTypeRuleManager {
+
+    // Registry per target class.
+    private final Map<Class<?>, StreamRuleManager<?>> managers = new ConcurrentHashMap<>();
+
+    // Resolution of every element class to its manager, subclasses included.
+    private final Map<Class<?>, Optional<StreamRuleManager<?>>> dispatch = new ConcurrentHashMap<>();
+
+    /**
+     * Register a manager for its target class, replacing the previous one.
+     *
+     * @param manager Rule manager
+     * @return this
+     */
+    public MultiTypeRuleManager register(final StreamRuleManager<?> manager) {
+        this.managers.put(manager.getTargetClass(), manager);
+        this.dispatch.clear();
+        return this;
+    }
+
+    /**
+     * Register the managers, by default all the managers in the context.
+     *
+     * @param ruleManagers Rule managers
+     */
+    @Autowired(required = false)
+    public void setManagers(final List<StreamRuleManager<?>> ruleManagers) {
+        for (StreamRuleManager<?> manager : ruleManagers) {
+            this.register(manager);
+        }
+    }
+
+    /**
+     * Managers by target class.
+     *
+     * @return Managers
+     */
+    public Map<Class<?>, StreamRuleManager<?>> getManagers() {
+        return Collections.unmodifiableMap(this.managers);
+    }
+
+    /**
+     * Rules execution over a list of several item types, in a single traversal.
+     *
+     * @param items Items list to process
+     * @param channel Channel
+     * @return Items list updated
+     */
+    @SuppressWarnings("unchecked")
+    public List<Object> executeRules(final List<?> items, final Channel channel) {
+        // The chain of every type is read once per call, so all its elements see the same rule set.
+        Map<Class<?>, StreamRule<Object>> chains = new IdentityHashMap<>();
+        Map<StreamRule<Object>, Bucket> buckets = new IdentityHashMap<>();
+        List<Object> result = new ArrayList<>(items.size());
+
+        for (Object item : items) {
+            StreamRule<Object> chain = item == null ? null
+                    : chains.computeIfAbsent(item.getClass(), c -> this.resolveChain(c, channel));
+            if (chain == null) {
+                result.add(item);
+            } else if (chain instanceof RuleChain && ((RuleChain<?>) chain).isPerItem()) {
+                Object output = ((RuleChain<Object>) chain).applyTo(item);
+                if (output != null) {
+                    result.add(output);
+                }
+            } else {
+                Bucket bucket = buckets.get(chain);
+                if (bucket == null) {
+                    bucket = new Bucket(chain);
+                    buckets.put(chain, bucket);
+                    result.add(bucket);
+                }
+                bucket.items.add(item);
+            }
+        }
+
+        if (buckets.isEmpty()) {
+            return result;
+        }
+        List<Object> merged = new ArrayList<>(result.size());
+        for (Object element : result) {
+            if (element instanceof Bucket) {
+                Bucket bucket = (Bucket) element;
+                merged.addAll(bucket.chain.apply(bucket.items.stream()).collect(Collectors.toList()));
+            } else {
+                merged.add(element);
+            }
+        }
+        return merged;
+    }
+
+    @SuppressWarnings("unchecked")
+    private StreamRule<Object> resolveChain(final Class<?> clazz, final Channel channel) {
+        Optional<StreamRuleManager<?>> manager = this.dispatch.computeIfAbsent(clazz, this::resolveManager);
+        if (!manager.isPresent()) {
+            return null;
+        }
+        return (StreamRule<Object>) manager.get().getSnapshot().getRulesComposite().get(channel);
+    }
+
+    private Optional<StreamRuleManager<?>> resolveManager(final Class<?> clazz) {
+        for (Class<?> current = clazz; current != null; current = current.getSuperclass()) {
+            StreamRuleManager<?> manager = this.managers.get(current);
+            if (manager != null) {
+                return Optional.of(manager);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Elements of a type gathered for a chain over the whole stream.
+     */
+    private static final class Bucket {
+
+        private final StreamRule<Object> chain;
+
+        private final List<Object> items = new ArrayList<>();
+
+        Bucket(final StreamRule<Object> chain) {
+            this.chain = chain;
+        }
+    }
+
+}
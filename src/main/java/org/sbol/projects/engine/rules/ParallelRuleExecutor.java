@@ -0,0 +1,126 @@
+package org.sbol.projects.engine.rules;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+/**
+ * Parallel executor for composite rules. The items are split across a dedicated ForkJoin pool, so rules execution
+ * never competes with the common pool.
+ * Parallel streams keep the encounter order of the list, and the sort of an ordered stream is stable, so the result
+ * is the same as the sequential one as long as the rules don't use unordered operations.
+ * Lists below the threshold are executed sequentially, where splitting costs more than it saves.
+ * The default pool is created on the first parallel execution, so an executor never used in parallel has no threads.
+ *
+ * @author david.ralluy
+ *
+ */
+public class ParallelRuleExecutor {
+
+    /**
+     * Default minimum list size for parallel execution.
+     */
+    public static final int DEFAULT_THRESHOLD = 10000;
+
+    private volatile ForkJoinPool pool;
+
+    private volatile boolean shutdown;
+
+    private volatile int threshold;
+
+    /**
+     * Constructor with a pool of one thread per processor, created on first use, and the default threshold.
+     */
+    public ParallelRuleExecutor() {
+        this(null, ParallelRuleExecutor.DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param pool Pool for the parallel execution
+     * @param threshold Minimum list size for parallel execution
+     */
+    public ParallelRuleExecutor(final ForkJoinPool pool, final int threshold) {
+        this.pool = pool;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Rule execution over the items, in parallel when the list reaches the threshold.
+     *
+     * @param rule Composite rule
+     * @param items Items list
+     * @param <P> Item type
+     * @return Items list updated
+     * @throws InterruptedException Execution interrupted
+     */
+    public <P> List<P> execute(final StreamRule<P> rule, final List<P> items) throws InterruptedException {
+        if (items.size() < this.threshold) {
+            return rule.apply(items.stream()).collect(Collectors.toList());
+        }
+        try {
+            return this.getPool().submit(() -> rule.apply(items.parallelStream()).collect(Collectors.toList())).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Minimum list size for parallel execution.
+     *
+     * @return Threshold
+     */
+    public int getThreshold() {
+        return this.threshold;
+    }
+
+    /**
+     * Set the minimum list size for parallel execution.
+     *
+     * @param threshold Threshold
+     */
+    public void setThreshold(final int threshold) {
+        this.threshold = threshold;
+    }
+
+    /**
+     * Pool for the parallel execution, created on first use.
+     *
+     * @return Pool
+     * @throws IllegalStateException The executor has been shut down before creating the pool
+     */
+    public ForkJoinPool getPool() {
+        ForkJoinPool current = this.pool;
+        if (current == null) {
+            synchronized (this) {
+                if (this.pool == null) {
+                    if (this.shutdown) {
+                        throw new IllegalStateException("Parallel executor shut down");
+                    }
+                    this.pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+                }
+                current = this.pool;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Pool shutdown. Nothing to do if the pool has not been created.
+     */
+    public synchronized void shutdown() {
+        this.shutdown = true;
+        if (this.pool != null) {
+            this.pool.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,52 @@
+package org.sbol.projects.engine.rules;
+
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Per item rule. The action is applied to every item, usually updating it in place.
+ *
+ * @author david.ralluy
+ * @param <T>
+ *            Rule type
+ *
+ */
+public class PeekRule<T> implements ItemRule<T> {
+
+    private final Consumer<T> action;
+
+    /**
+     * Constructor.
+     *
+     * @param action Action for every item
+     */
+    public PeekRule(final Consumer<T> action) {
+        this.action = action;
+    }
+
+    @Override
+    public Stream<T> apply(final Stream<T> stream) {
+        return stream.peek(this.action);
+    }
+
+    @Override
+    public T applyTo(final T item) {
+        this.action.accept(item);
+        return item;
+    }
+
+    @Override
+    public RuleKind getKind() {
+        return RuleKind.PEEK;
+    }
+
+    /**
+     * Action for every item.
+     *
+     * @return Action
+     */
+    public Consumer<T> getAction() {
+        return this.action;
+    }
+
+}
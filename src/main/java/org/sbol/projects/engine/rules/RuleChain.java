@@ -0,0 +1,288 @@
+package org.sbol.projects.engine.rules;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Composite rule, applying a chain of rules in order. The chain is kept as a flat array of stages walked in a loop,
+ * instead of nesting a function call per rule: consecutive per item rules run as a single stream operation that walks
+ * them for every item, so neither the stream pipeline nor the stack grow with the number of rules. Every sort is run
+ * apart, sorting the buffer it needs anyway in place, so nested sorts don't grow the stack either.
+ * Applying the chain only builds the pipeline: nothing is read, nor sorted, until the result is consumed.
+ *
+ * @author david.ralluy
+ * @param <T>
+ *            Rule type
+ *
+ */
+public class RuleChain<T> implements StreamRule<T> {
+
+    private final List<StreamRule<T>> stages;
+
+    // Stages as executed: every run of per item rules is a single segment, walked in a loop for every item, so the
+    // stream gets a few operations however many rules the chain has.
+    private final StreamRule<T>[] executed;
+
+    private final boolean buffering;
+
+    private final boolean sorts;
+
+    private final ItemRule<T>[] itemStages;
+
+    // Class generated for the chain, if any.
+    private final CompiledItemChain<T> compiled;
+
+    /**
+     * Constructor.
+     *
+     * @param stages Rules in execution order
+     */
+    public RuleChain(final List<StreamRule<T>> stages) {
+        this(stages, null);
+    }
+
+    /**
+     * Constructor of a chain with a generated class applying its per item rules (see {@link RuleChainGenerator}).
+     *
+     * @param stages Rules in execution order
+     * @param compiled Generated class for the rules, or null
+     */
+    @SuppressWarnings("unchecked")
+    RuleChain(final List<StreamRule<T>> stages, final CompiledItemChain<T> compiled) {
+        this.stages = Collections.unmodifiableList(new ArrayList<>(stages));
+        boolean anyBuffering = false;
+        for (StreamRule<T> stage : stages) {
+            anyBuffering |= stage.isBuffering();
+        }
+        this.buffering = anyBuffering;
+        this.itemStages = stages.stream().allMatch(p -> p instanceof ItemRule)
+                ? stages.toArray(new ItemRule[stages.size()]) : null;
+        this.compiled = this.itemStages == null ? null : compiled;
+
+        List<StreamRule<T>> segments = new ArrayList<>();
+        if (this.compiled != null && !stages.isEmpty()) {
+            segments.add(this.compiled);
+        } else {
+            int i = 0;
+            while (i < stages.size()) {
+                int end = i;
+                while (end < stages.size() && stages.get(end) instanceof ItemRule) {
+                    end++;
+                }
+                if (end - i > 1) {
+                    segments.add(new ItemSegment<>(stages.subList(i, end).toArray(new ItemRule[end - i])));
+                    i = end;
+                } else {
+                    segments.add(stages.get(i++));
+                }
+            }
+        }
+        this.executed = segments.toArray(new StreamRule[segments.size()]);
+        this.sorts = segments.stream().anyMatch(p -> p instanceof SortRule);
+    }
+
+    @Override
+    public Stream<T> apply(final Stream<T> stream) {
+        if (!this.sorts) {
+            return this.run(stream);
+        }
+        // The sorts run when the result gets consumed.
+        return StreamSupport.stream(() -> this.run(stream).spliterator(), Spliterator.ORDERED, stream.isParallel())
+            .onClose(stream::close);
+    }
+
+    private Stream<T> run(final Stream<T> stream) {
+        Stream<T> result = stream;
+        for (int i = 0; i < this.executed.length; i++) {
+            StreamRule<T> stage = this.executed[i];
+            if (stage instanceof SortRule) {
+                boolean parallel = result.isParallel();
+                result = ((SortRule<T>) stage).sort(result.collect(Collectors.toList()), parallel);
+            } else {
+                result = stage.apply(result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Indicates if every rule of the chain works item by item, so the chain can be applied to single items.
+     *
+     * @return Per item S/N
+     */
+    public boolean isPerItem() {
+        return this.itemStages != null;
+    }
+
+    /**
+     * Apply the chain to a single item. Only for per item chains.
+     *
+     * @param item Item
+     * @return Item to go on with, or null when a rule discards it
+     */
+    public T applyTo(final T item) {
+        if (this.itemStages == null) {
+            throw new UnsupportedOperationException("The chain has rules over the whole stream");
+        }
+        if (this.compiled != null) {
+            return this.compiled.applyTo(item);
+        }
+        T result = item;
+        for (int i = 0; i < this.itemStages.length && result != null; i++) {
+            result = this.itemStages[i].applyTo(result);
+        }
+        return result;
+    }
+
+    /**
+     * Apply the chain to a list in a plain loop, without streams: the only allocation is the result. Only for per
+     * item chains.
+     *
+     * @param items Items
+     * @return Items kept, in order
+     */
+    public List<T> applyToAll(final List<T> items) {
+        List<T> result = new ArrayList<>(items.size());
+        if (items instanceof RandomAccess) {
+            for (int i = 0, size = items.size(); i < size; i++) {
+                T output = this.applyTo(items.get(i));
+                if (output != null) {
+                    result.add(output);
+                }
+            }
+        } else {
+            for (T item : items) {
+                T output = this.applyTo(item);
+                if (output != null) {
+                    result.add(output);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Apply the chain to a list in place: the items kept are compacted to the front of the list, in order, and the
+     * rest of the list is removed. Nothing is allocated. Only for per item chains over modifiable lists.
+     *
+     * @param items Items, updated
+     * @return Number of items kept
+     */
+    public int applyInPlace(final List<T> items) {
+        int kept = 0;
+        if (items instanceof RandomAccess) {
+            int size = items.size();
+            for (int i = 0; i < size; i++) {
+                T output = this.applyTo(items.get(i));
+                if (output != null) {
+                    items.set(kept++, output);
+                }
+            }
+            if (kept < size) {
+                items.subList(kept, size).clear();
+            }
+        } else {
+            for (ListIterator<T> iterator = items.listIterator(); iterator.hasNext();) {
+                T output = this.applyTo(iterator.next());
+                if (output == null) {
+                    iterator.remove();
+                } else {
+                    iterator.set(output);
+                    kept++;
+                }
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Indicates if the chain runs through a generated class.
+     *
+     * @return Generated S/N
+     */
+    public boolean isGenerated() {
+        return this.compiled != null;
+    }
+
+    @Override
+    public boolean isBuffering() {
+        return this.buffering;
+    }
+
+    /**
+     * Chain for a page of the result. The page gets pushed into the chain as early as possible: peeks after the cut
+     * run only on the items of the page, and a sort right before the cut becomes a partial sort
+     * ({@link TopKRule}).
+     *
+     * @param offset First item of the page
+     * @param limit Page size
+     * @return Chain for the page
+     */
+    public RuleChain<T> page(final int offset, final int limit) {
+        int cut = this.stages.size();
+        // Peeks give an item per item, so they can run after the cut. Maps can discard items, so they can't.
+        while (cut > 0 && this.stages.get(cut - 1).getKind() == RuleKind.PEEK) {
+            cut--;
+        }
+
+        List<StreamRule<T>> paged = new ArrayList<>(this.stages.size() + 1);
+        paged.addAll(this.stages.subList(0, cut));
+        if (cut > 0 && this.stages.get(cut - 1) instanceof SortRule) {
+            SortRule<T> sort = (SortRule<T>) paged.remove(cut - 1);
+            paged.add(sort.top(offset, limit));
+        } else {
+            paged.add(new SliceRule<T>(offset, limit));
+        }
+        paged.addAll(this.stages.subList(cut, this.stages.size()));
+        return new RuleChain<>(paged);
+    }
+
+    /**
+     * Rules of the chain, in execution order.
+     *
+     * @return Stages
+     */
+    public List<StreamRule<T>> getStages() {
+        return this.stages;
+    }
+
+    /**
+     * Run of per item rules, applied to every item in a loop.
+     */
+    private static final class ItemSegment<T> implements ItemRule<T> {
+
+        private final ItemRule<T>[] rules;
+
+        ItemSegment(final ItemRule<T>[] rules) {
+            this.rules = rules;
+        }
+
+        @Override
+        public Stream<T> apply(final Stream<T> stream) {
+            return stream.map(this::applyTo).filter(Objects::nonNull);
+        }
+
+        @Override
+        public T applyTo(final T item) {
+            T result = item;
+            for (int i = 0; i < this.rules.length && result != null; i++) {
+                result = this.rules[i].applyTo(result);
+            }
+            return result;
+        }
+
+        @Override
+        public RuleKind getKind() {
+            return RuleKind.MAP;
+        }
+    }
+
+}
@@ -0,0 +1,222 @@
+package org.sbol.projects.engine.rules;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+import org.sbol.projects.engine.constants.Channel;
+import org.springframework.asm.ClassWriter;
+import org.springframework.asm.Label;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.Type;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Generator of a dedicated class for every compiled chain of per item rules.
+ *
+ * Every rule of the chain is a field of the generated class, typed by its logic: the predicate of a filter, the
+ * action of a peek, the function of a map, or the rule itself for other per item rules. The class calls them in
+ * sequence, each one from its own call site, so every call site only sees one implementation and the JIT can inline
+ * the whole chain, instead of giving up at the shared, megamorphic call site of a loop over rules. The calls are split
+ * in methods of a few stages, so no method gets too big for the JIT to compile or inline.
+ *
+ * Classes are named by item class, channel and rule set version. Every class gets its own class loader, so it gets
+ * unloaded along with the chain when a new rule set replaces it.
+ * Chains with rules over the whole stream, or longer than {@link #MAX_STAGES}, are not generated.
+ *
+ * @author david.ralluy
+ *
+ */
+@Slf4j
+public final class RuleChainGenerator {
+
+    // Bytecode of the call of a stage: 17 bytes at most, for a map or another per item rule.
+    private static final int STAGE_CALL_BYTES = 17;
+
+    // Bytecode of the stage initialization in the constructor.
+    private static final int STAGE_INIT_BYTES = 12;
+
+    // Methods up to 325 bytes of bytecode get inlined into a hot caller (FreqInlineSize).
+    private static final int INLINE_BYTES = 325;
+
+    // The stages get called from private methods of a few stages, small enough to be inlined into applyTo: none comes
+    // near the 8000 bytes over which the JIT doesn't compile a method (HugeMethodLimit).
+    private static final int STAGES_PER_METHOD = RuleChainGenerator.INLINE_BYTES / RuleChainGenerator.STAGE_CALL_BYTES;
+
+    /**
+     * Maximum number of rules of a generated chain, with room left in the constructor under the 64KB limit of the
+     * bytecode of a method.
+     */
+    public static final int MAX_STAGES = 65535 / 2 / RuleChainGenerator.STAGE_INIT_BYTES;
+
+    private static final String PACKAGE = "org/sbol/projects/engine/rules/generated/";
+
+    private static final String OBJECT_DESCRIPTOR = Type.getDescriptor(Object.class);
+
+    private RuleChainGenerator() {
+        //
+    }
+
+    /**
+     * Chain backed by a generated class, if the chain works item by item.
+     *
+     * @param chain Chain of rules
+     * @param clazz Item class
+     * @param channel Channel
+     * @param version Version of the rule set of the chain
+     * @param <T> Item type
+     * @return Chain with its generated class, or the same chain if it can't be generated
+     */
+    public static <T> RuleChain<T> generate(final RuleChain<T> chain, final Class<?> clazz, final Channel channel,
+            final long version) {
+        List<StreamRule<T>> stages = chain.getStages();
+        if (!chain.isPerItem() || stages.size() > RuleChainGenerator.MAX_STAGES) {
+            return chain;
+        }
+        String name = RuleChainGenerator.PACKAGE + clazz.getSimpleName() + "Chain$" + channel + "$v" + version;
+        Object[] targets = new Object[stages.size()];
+        Class<?>[] types = new Class<?>[stages.size()];
+        for (int i = 0; i < stages.size(); i++) {
+            StreamRule<T> stage = stages.get(i);
+            if (stage instanceof FilterRule) {
+                targets[i] = ((FilterRule<T>) stage).getPredicate();
+                types[i] = Predicate.class;
+            } else if (stage instanceof PeekRule) {
+                targets[i] = ((PeekRule<T>) stage).getAction();
+                types[i] = Consumer.class;
+            } else if (stage instanceof MapRule) {
+                targets[i] = ((MapRule<T>) stage).getMapper();
+                types[i] = UnaryOperator.class;
+            } else {
+                targets[i] = stage;
+                types[i] = ItemRule.class;
+            }
+        }
+        try {
+            byte[] bytecode = RuleChainGenerator.bytecode(name, types);
+            Class<?> generated = new ChainClassLoader(CompiledItemChain.class.getClassLoader()).define(
+                    name.replace('/', '.'), bytecode);
+            @SuppressWarnings("unchecked")
+            CompiledItemChain<T> compiled = (CompiledItemChain<T>) generated.getConstructor(Object[].class)
+                .newInstance((Object) targets);
+            return new RuleChain<>(stages, compiled);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            RuleChainGenerator.log.warn("No se ha podido generar la cadena de reglas {}: {}", name, e.toString());
+            return chain;
+        }
+    }
+
+    private static byte[] bytecode(final String name, final Class<?>[] types) {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS | ClassWriter.COMPUTE_FRAMES);
+        String superName = Type.getInternalName(CompiledItemChain.class);
+        writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER, name, null, superName,
+                null);
+        for (int i = 0; i < types.length; i++) {
+            writer.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL, "stage" + i, Type.getDescriptor(types[i]),
+                    null, null).visitEnd();
+        }
+
+        // Constructor: every field from the array of rules.
+        MethodVisitor init = writer.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "([Ljava/lang/Object;)V", null, null);
+        init.visitCode();
+        init.visitVarInsn(Opcodes.ALOAD, 0);
+        init.visitMethodInsn(Opcodes.INVOKESPECIAL, superName, "<init>", "()V", false);
+        for (int i = 0; i < types.length; i++) {
+            init.visitVarInsn(Opcodes.ALOAD, 0);
+            init.visitVarInsn(Opcodes.ALOAD, 1);
+            init.visitLdcInsn(Integer.valueOf(i));
+            init.visitInsn(Opcodes.AALOAD);
+            init.visitTypeInsn(Opcodes.CHECKCAST, Type.getInternalName(types[i]));
+            init.visitFieldInsn(Opcodes.PUTFIELD, name, "stage" + i, Type.getDescriptor(types[i]));
+        }
+        init.visitInsn(Opcodes.RETURN);
+        init.visitMaxs(0, 0);
+        init.visitEnd();
+
+        // applyTo: the chunks in sequence, returning null as soon as one discards the item.
+        String descriptor = "(" + RuleChainGenerator.OBJECT_DESCRIPTOR + ")" + RuleChainGenerator.OBJECT_DESCRIPTOR;
+        MethodVisitor apply = writer.visitMethod(Opcodes.ACC_PUBLIC, "applyTo", descriptor, null, null);
+        apply.visitCode();
+        for (int from = 0; from < types.length; from += RuleChainGenerator.STAGES_PER_METHOD) {
+            String chunk = "chunk" + from / RuleChainGenerator.STAGES_PER_METHOD;
+            RuleChainGenerator.chunk(writer, name, types, chunk, from,
+                    Math.min(types.length, from + RuleChainGenerator.STAGES_PER_METHOD));
+            apply.visitVarInsn(Opcodes.ALOAD, 0);
+            apply.visitVarInsn(Opcodes.ALOAD, 1);
+            apply.visitMethodInsn(Opcodes.INVOKESPECIAL, name, chunk, descriptor, false);
+            apply.visitVarInsn(Opcodes.ASTORE, 1);
+            Label next = new Label();
+            apply.visitVarInsn(Opcodes.ALOAD, 1);
+            apply.visitJumpInsn(Opcodes.IFNONNULL, next);
+            apply.visitInsn(Opcodes.ACONST_NULL);
+            apply.visitInsn(Opcodes.ARETURN);
+            apply.visitLabel(next);
+        }
+        apply.visitVarInsn(Opcodes.ALOAD, 1);
+        apply.visitInsn(Opcodes.ARETURN);
+        apply.visitMaxs(0, 0);
+        apply.visitEnd();
+
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    /**
+     * Private method calling the rules of a range of stages in sequence, returning null as soon as one discards the
+     * item.
+     */
+    private static void chunk(final ClassWriter writer, final String name, final Class<?>[] types, final String chunk,
+            final int from, final int to) {
+        MethodVisitor apply = writer.visitMethod(Opcodes.ACC_PRIVATE, chunk,
+                "(" + RuleChainGenerator.OBJECT_DESCRIPTOR + ")" + RuleChainGenerator.OBJECT_DESCRIPTOR, null, null);
+        apply.visitCode();
+        for (int i = from; i < to; i++) {
+            String owner = Type.getInternalName(types[i]);
+            apply.visitVarInsn(Opcodes.ALOAD, 0);
+            apply.visitFieldInsn(Opcodes.GETFIELD, name, "stage" + i, Type.getDescriptor(types[i]));
+            apply.visitVarInsn(Opcodes.ALOAD, 1);
+            Label next = new Label();
+            if (types[i] == Predicate.class) {
+                apply.visitMethodInsn(Opcodes.INVOKEINTERFACE, owner, "test",
+                        "(" + RuleChainGenerator.OBJECT_DESCRIPTOR + ")Z", true);
+                apply.visitJumpInsn(Opcodes.IFNE, next);
+            } else if (types[i] == Consumer.class) {
+                apply.visitMethodInsn(Opcodes.INVOKEINTERFACE, owner, "accept",
+                        "(" + RuleChainGenerator.OBJECT_DESCRIPTOR + ")V", true);
+                continue;
+            } else {
+                String method = types[i] == UnaryOperator.class ? "apply" : "applyTo";
+                apply.visitMethodInsn(Opcodes.INVOKEINTERFACE, owner, method,
+                        "(" + RuleChainGenerator.OBJECT_DESCRIPTOR + ")" + RuleChainGenerator.OBJECT_DESCRIPTOR, true);
+                apply.visitVarInsn(Opcodes.ASTORE, 1);
+                apply.visitVarInsn(Opcodes.ALOAD, 1);
+                apply.visitJumpInsn(Opcodes.IFNONNULL, next);
+            }
+            apply.visitInsn(Opcodes.ACONST_NULL);
+            apply.visitInsn(Opcodes.ARETURN);
+            apply.visitLabel(next);
+        }
+        apply.visitVarInsn(Opcodes.ALOAD, 1);
+        apply.visitInsn(Opcodes.ARETURN);
+        apply.visitMaxs(0, 0);
+        apply.visitEnd();
+    }
+
+    /**
+     * Class loader of a single generated class.
+     */
+    private static final class ChainClassLoader extends ClassLoader {
+
+        ChainClassLoader(final ClassLoader parent) {
+            super(parent);
+        }
+
+        Class<?> define(final String name, final byte[] bytecode) {
+            return this.defineClass(name, bytecode, 0, bytecode.length);
+        }
+    }
+
+}
@@ -0,0 +1,114 @@
+package org.sbol.projects.engine.rules;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.sbol.projects.engine.rules.threshold.ThresholdIndexRule;
+import org.sbol.projects.engine.rules.threshold.ThresholdRule;
+
+/**
+ * Optimizer for a chain of stream rules, using the kind of every rule:
+ * - Adjacent filters get fused into a single predicate, which stops testing an item once a condition rejects it.
+ * - Consecutive sorts get collapsed into a single sort: the last order first, then the previous ones for the ties.
+ * - Filters get pushed ahead of sorts, so there are less items to sort.
+ * - Consecutive threshold rules over the same attribute get compiled into a single index.
+ *
+ * Merged predicates and comparators are kept as flat arrays, so thousands of rules don't nest thousands of calls.
+ *
+ * Opaque rules are never moved nor merged. Predicates and comparators must be free of side effects, the same as the
+ * Java streams already expect.
+ *
+ * @author david.ralluy
+ *
+ */
+public final class RuleChainOptimizer {
+
+    private RuleChainOptimizer() {
+        //
+    }
+
+    /**
+     * Optimize a chain of rules. The result gives the same items, in the same order, as the original chain.
+     *
+     * @param rules Rules in execution order
+     * @param <T> Item type
+     * @return Optimized rules in execution order
+     */
+    public static <T> List<StreamRule<T>> optimize(final List<StreamRule<T>> rules) {
+        return RuleChainOptimizer.optimize(rules, true);
+    }
+
+    /**
+     * Optimize a chain of rules, optionally keeping the filters apart. A generated chain calls every predicate from
+     * its own call site, which a fused predicate would hide again.
+     *
+     * @param rules Rules in execution order
+     * @param fuseFilters Fuse adjacent filters S/N
+     * @param <T> Item type
+     * @return Optimized rules in execution order
+     */
+    public static <T> List<StreamRule<T>> optimize(final List<StreamRule<T>> rules, final boolean fuseFilters) {
+        List<StreamRule<T>> chain = new ArrayList<>(rules);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int i = 0; i + 1 < chain.size(); i++) {
+                StreamRule<T> first = chain.get(i);
+                StreamRule<T> second = chain.get(i + 1);
+                StreamRule<T> merged = RuleChainOptimizer.merge(first, second, fuseFilters);
+                if (merged != null) {
+                    chain.set(i, merged);
+                    chain.remove(i + 1);
+                    changed = true;
+                } else if (first.getKind() == RuleKind.SORT && second.getKind() == RuleKind.FILTER) {
+                    // A stable sort keeps the relative order of the items a filter lets through.
+                    chain.set(i, second);
+                    chain.set(i + 1, first);
+                    changed = true;
+                }
+            }
+        }
+        return RuleChainOptimizer.indexThresholds(chain);
+    }
+
+    /**
+     * Replace every run of consecutive threshold rules over the same attribute with a threshold index.
+     */
+    private static <T> List<StreamRule<T>> indexThresholds(final List<StreamRule<T>> chain) {
+        List<StreamRule<T>> result = new ArrayList<>(chain.size());
+        int i = 0;
+        while (i < chain.size()) {
+            StreamRule<T> rule = chain.get(i);
+            List<ThresholdRule<T>> run = new ArrayList<>();
+            while (i < chain.size() && chain.get(i) instanceof ThresholdRule
+                    && (run.isEmpty() || run.get(0).getAttribute().equals(
+                            ((ThresholdRule<T>) chain.get(i)).getAttribute()))) {
+                run.add((ThresholdRule<T>) chain.get(i));
+                i++;
+            }
+            if (run.size() > 1) {
+                result.add(new ThresholdIndexRule<>(run));
+            } else if (run.size() == 1) {
+                result.add(run.get(0));
+            } else {
+                result.add(rule);
+                i++;
+            }
+        }
+        return result;
+    }
+
+    private static <T> StreamRule<T> merge(final StreamRule<T> first, final StreamRule<T> second,
+            final boolean fuseFilters) {
+        if (fuseFilters && first instanceof FilterRule && second instanceof FilterRule) {
+            return new FilterRule<>(CompositePredicate.of(((FilterRule<T>) first).getPredicate(),
+                    ((FilterRule<T>) second).getPredicate()));
+        }
+        if (first instanceof SortRule && second instanceof SortRule) {
+            return ((SortRule<T>) second).withComparator(CompositeComparator.of(
+                    ((SortRule<T>) second).getComparator(), ((SortRule<T>) first).getComparator()));
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,68 @@
+package org.sbol.projects.engine.rules;
+
+/**
+ * Kind of work done by a stream rule. The engine uses it to optimize the composition of the rules.
+ *
+ * @author david.ralluy
+ *
+ */
+public enum RuleKind {
+
+    /**
+     * Item filter, using a predicate.
+     */
+    FILTER(true, false),
+
+    /**
+     * Action over every item, without replacing it.
+     */
+    PEEK(true, false),
+
+    /**
+     * Transformation of every item into another one.
+     */
+    MAP(true, false),
+
+    /**
+     * Items ordering, using a comparator.
+     */
+    SORT(false, true),
+
+    /**
+     * Range of the items, for pagination.
+     */
+    SLICE(false, false),
+
+    /**
+     * Any other stream function. The engine can't reason about it, so it may buffer (p.e. a sort or a distinct).
+     */
+    OPAQUE(false, true);
+
+    private final boolean perItem;
+
+    private final boolean buffering;
+
+    RuleKind(final boolean perItem, final boolean buffering) {
+        this.perItem = perItem;
+        this.buffering = buffering;
+    }
+
+    /**
+     * Indicates if the rule works over every item independently of the others.
+     *
+     * @return Per item S/N
+     */
+    public boolean isPerItem() {
+        return this.perItem;
+    }
+
+    /**
+     * Indicates if the rule needs, or may need, the whole input before giving the first item.
+     *
+     * @return Buffering S/N
+     */
+    public boolean isBuffering() {
+        return this.buffering;
+    }
+
+}
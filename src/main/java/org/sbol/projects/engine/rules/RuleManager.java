@@ -2,8 +2,10 @@ package org.sbol.projects.engine.rules;
 
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 import org.sbol.projects.engine.constants.Channel;
+import org.sbol.projects.engine.constants.ExecutionMode;
 import org.sbol.projects.engine.exceptions.EngineRuleException;
 
 /**
@@ -26,8 +28,41 @@ public interface RuleManager<P> {
     List<P> executeRules(final List<P> items, final Channel channel) throws InterruptedException;
 
     /**
-     * Load rules from persistence system.
-     * @param rules Rules
+     * Rules execution with a specific execution mode.
+     * @param items Items list to process
+     * @param channel Channel
+     * @param mode Execution mode
+     * @return Items list updated
+     * @throws InterruptedException Error reloading rules
+     */
+    List<P> executeRules(final List<P> items, final Channel channel, final ExecutionMode mode)
+            throws InterruptedException;
+
+    /**
+     * Rules execution returning only a page of the result. The page is pushed into the rules, so a sort becomes a
+     * partial sort and the per item rules after it only run on the items of the page.
+     * @param items Items list to process
+     * @param channel Channel
+     * @param offset First item of the page
+     * @param limit Page size
+     * @return Page of the items list updated
+     * @throws InterruptedException Error reloading rules
+     */
+    List<P> executeRules(final List<P> items, final Channel channel, final int offset, final int limit)
+            throws InterruptedException;
+
+    /**
+     * Lazy rules execution over a stream, possibly unbounded. Items are pulled through the rules as the result gets
+     * consumed; only buffering rules (sorts) need the whole input.
+     * @param items Items stream to process
+     * @param channel Channel
+     * @return Items stream updated
+     */
+    Stream<P> executeRules(final Stream<P> items, final Channel channel);
+
+    /**
+     * Load rules from persistence system, plus the rules declared in a source.
+     * @param rules Rules source, null to only reload the rules
      */
     void loadRules(final String rules);
 
@@ -0,0 +1,269 @@
+package org.sbol.projects.engine.rules;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+import org.sbol.projects.engine.constants.Channel;
+
+/**
+ * Bounded cache of rules execution results. An entry is keyed by the fingerprint of the input, the channel and the
+ * version of the compiled rule set, so a result is never served for another rule set. The manager empties the cache
+ * whenever it publishes a new rule set.
+ *
+ * The cache is bounded by number of entries and by total weight, by default the number of items of the results. The
+ * least recently used entries are evicted first.
+ *
+ * There is no default fingerprint: the rules may modify the items in place, so a fingerprint holding the items would
+ * change with the execution. Either the caller supplies the fingerprint, or a fingerprint function is set, building
+ * it from immutable values copied out of the items (p.e. a list of codes and prices). Without a fingerprint nothing
+ * gets cached. The key, and its hash, are computed once, before executing the rules.
+ *
+ * Results are shared by every hit and returned read only.
+ *
+ * @author david.ralluy
+ *
+ * @param <P> Item type
+ */
+public class RuleResultCache<P> {
+
+    private final int maxEntries;
+
+    private final long maxWeight;
+
+    private final ToLongFunction<? super List<P>> weigher;
+
+    private volatile Function<? super List<P>, ?> fingerprint;
+
+    // Access order: the eldest entry is the least recently used.
+    private final LinkedHashMap<Key, List<P>> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long weight;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Constructor of a cache bounded only by number of entries.
+     *
+     * @param maxEntries Maximum number of entries
+     */
+    public RuleResultCache(final int maxEntries) {
+        this(maxEntries, Long.MAX_VALUE, List::size);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param maxEntries Maximum number of entries
+     * @param maxWeight Maximum total weight
+     * @param weigher Weight of a result
+     */
+    public RuleResultCache(final int maxEntries, final long maxWeight, final ToLongFunction<? super List<P>> weigher) {
+        if (maxEntries <= 0 || maxWeight <= 0) {
+            throw new IllegalArgumentException("Invalid cache bounds: " + maxEntries + " entries, weight " + maxWeight);
+        }
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+    }
+
+    /**
+     * Set the function computing the fingerprint of an input list. The fingerprint must be made of immutable values,
+     * not of the items.
+     *
+     * @param fingerprint Fingerprint function, null for none
+     */
+    public void setFingerprint(final Function<? super List<P>, ?> fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * Computed fingerprint of an input list.
+     *
+     * @param items Input list
+     * @return Fingerprint, null without fingerprint function
+     */
+    public Object fingerprint(final List<P> items) {
+        Function<? super List<P>, ?> function = this.fingerprint;
+        return function == null ? null : function.apply(items);
+    }
+
+    /**
+     * Cached result.
+     *
+     * @param fingerprint Input fingerprint
+     * @param channel Channel
+     * @param version Rule set version
+     * @return Result, null on a miss
+     */
+    public List<P> get(final Object fingerprint, final Channel channel, final long version) {
+        return this.get(new Key(fingerprint, channel, version));
+    }
+
+    /**
+     * Cached result.
+     *
+     * @param key Entry key
+     * @return Result, null on a miss
+     */
+    List<P> get(final Key key) {
+        List<P> result;
+        synchronized (this.entries) {
+            result = this.entries.get(key);
+        }
+        if (result == null) {
+            this.misses.increment();
+        } else {
+            this.hits.increment();
+        }
+        return result;
+    }
+
+    /**
+     * Store a result, evicting the least recently used entries over the bounds. A result heavier than the whole
+     * cache is not stored.
+     *
+     * @param fingerprint Input fingerprint
+     * @param channel Channel
+     * @param version Rule set version
+     * @param result Result
+     * @return Result, read only
+     */
+    public List<P> put(final Object fingerprint, final Channel channel, final long version, final List<P> result) {
+        return this.put(new Key(fingerprint, channel, version), result);
+    }
+
+    /**
+     * Store a result under a key computed before the execution.
+     *
+     * @param key Entry key
+     * @param result Result
+     * @return Result, read only
+     */
+    List<P> put(final Key key, final List<P> result) {
+        List<P> value = Collections.unmodifiableList(result);
+        long resultWeight = this.weigher.applyAsLong(result);
+        if (resultWeight > this.maxWeight) {
+            return value;
+        }
+        synchronized (this.entries) {
+            List<P> previous = this.entries.put(key, value);
+            if (previous != null) {
+                this.weight -= this.weigher.applyAsLong(previous);
+            }
+            this.weight += resultWeight;
+            Iterator<List<P>> eldest = this.entries.values().iterator();
+            while (this.entries.size() > this.maxEntries || this.weight > this.maxWeight) {
+                this.weight -= this.weigher.applyAsLong(eldest.next());
+                eldest.remove();
+                this.evictions.increment();
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Remove all the entries. Invalidated entries don't count as evictions.
+     */
+    public void invalidate() {
+        synchronized (this.entries) {
+            this.entries.clear();
+            this.weight = 0L;
+        }
+    }
+
+    /**
+     * Number of entries.
+     *
+     * @return Entries
+     */
+    public int size() {
+        synchronized (this.entries) {
+            return this.entries.size();
+        }
+    }
+
+    /**
+     * Total weight of the entries.
+     *
+     * @return Weight
+     */
+    public long getWeight() {
+        synchronized (this.entries) {
+            return this.weight;
+        }
+    }
+
+    /**
+     * Number of lookups finding a result.
+     *
+     * @return Hits
+     */
+    public long getHits() {
+        return this.hits.sum();
+    }
+
+    /**
+     * Number of lookups not finding a result.
+     *
+     * @return Misses
+     */
+    public long getMisses() {
+        return this.misses.sum();
+    }
+
+    /**
+     * Number of entries evicted by the bounds.
+     *
+     * @return Evictions
+     */
+    public long getEvictions() {
+        return this.evictions.sum();
+    }
+
+    /**
+     * Entry key, with its hash computed once.
+     */
+    static final class Key {
+
+        private final Object fingerprint;
+
+        private final Channel channel;
+
+        private final long version;
+
+        private final int hash;
+
+        Key(final Object fingerprint, final Channel channel, final long version) {
+            this.fingerprint = fingerprint;
+            this.channel = channel;
+            this.version = version;
+            this.hash = Objects.hash(fingerprint, channel, Long.valueOf(version));
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return this.hash == other.hash && this.version == other.version && this.channel == other.channel
+                    && Objects.equals(this.fingerprint, other.fingerprint);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+    }
+
+}
@@ -0,0 +1,102 @@
+package org.sbol.projects.engine.rules;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.sbol.projects.engine.constants.Channel;
+
+/**
+ * Immutable compiled rule set for a target class. It holds the registered rules, the rules applied per channel and
+ * the composite rule per channel, all of them built together.
+ * A new snapshot is built on every rules change and published with a single reference swap, so readers always see
+ * a complete rule set and never need to lock.
+ *
+ * @author david.ralluy
+ *
+ * @param <P> Item type
+ */
+public final class RuleSetSnapshot<P> {
+
+    private final long version;
+
+    private final Map<String, BusinessRule<P>> rules;
+
+    private final Map<Channel, List<BusinessRule<P>>> rulesApplied;
+
+    private final Map<Channel, StreamRule<P>> rulesComposite;
+
+    /**
+     * Constructor.
+     *
+     * @param version Rule set version
+     * @param rules All the registered rules by name
+     * @param rulesApplied Rules applied per channel, in execution order
+     * @param rulesComposite Composite rule per channel
+     */
+    public RuleSetSnapshot(final long version, final Map<String, BusinessRule<P>> rules,
+            final Map<Channel, List<BusinessRule<P>>> rulesApplied, final Map<Channel, StreamRule<P>> rulesComposite) {
+        this.version = version;
+        this.rules = Collections.unmodifiableMap(new HashMap<>(rules));
+        EnumMap<Channel, List<BusinessRule<P>>> applied = new EnumMap<>(Channel.class);
+        for (Entry<Channel, List<BusinessRule<P>>> entry : rulesApplied.entrySet()) {
+            applied.put(entry.getKey(), Collections.unmodifiableList(entry.getValue()));
+        }
+        this.rulesApplied = Collections.unmodifiableMap(applied);
+        EnumMap<Channel, StreamRule<P>> composite = new EnumMap<>(Channel.class);
+        composite.putAll(rulesComposite);
+        this.rulesComposite = Collections.unmodifiableMap(composite);
+    }
+
+    /**
+     * Empty rule set.
+     *
+     * @param version Rule set version
+     * @param <P> Item type
+     * @return Snapshot without rules
+     */
+    public static <P> RuleSetSnapshot<P> empty(final long version) {
+        return new RuleSetSnapshot<>(version, Collections.<String, BusinessRule<P>>emptyMap(),
+                Collections.<Channel, List<BusinessRule<P>>>emptyMap(), Collections.<Channel, StreamRule<P>>emptyMap());
+    }
+
+    /**
+     * Rule set version. It grows with every published rules change.
+     *
+     * @return Version
+     */
+    public long getVersion() {
+        return this.version;
+    }
+
+    /**
+     * All the registered rules, enabled or not.
+     *
+     * @return Rules by name
+     */
+    public Map<String, BusinessRule<P>> getRules() {
+        return this.rules;
+    }
+
+    /**
+     * Rules applied per channel.
+     *
+     * @return Rules applied
+     */
+    public Map<Channel, List<BusinessRule<P>>> getRulesApplied() {
+        return this.rulesApplied;
+    }
+
+    /**
+     * Composite rule per channel.
+     *
+     * @return Composite rules
+     */
+    public Map<Channel, StreamRule<P>> getRulesComposite() {
+        return this.rulesComposite;
+    }
+
+}
@@ -0,0 +1,99 @@
+package org.sbol.projects.engine.rules;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Startup phase for the rules engine. Once all the singletons are created, and before the application starts taking
+ * requests, it compiles the rules of every manager for every channel, and runs a synthetic workload through each
+ * chain so the hot paths get JIT-compiled.
+ *
+ * It is opt-in: declare it as a bean, with a workload for every target class to warm up. Managers without workload
+ * are only compiled.
+ *
+ * @author david.ralluy
+ *
+ */
+@Slf4j
+public class RulesWarmUp implements SmartInitializingSingleton {
+
+    /**
+     * Default executions per channel.
+     */
+    public static final int DEFAULT_ITERATIONS = 1000;
+
+    @Autowired(required = false)
+    private List<StreamRuleManager<?>> managers;
+
+    private final Map<Class<?>, Supplier<? extends List<?>>> workloads = new HashMap<>();
+
+    private int iterations = RulesWarmUp.DEFAULT_ITERATIONS;
+
+    /**
+     * Add a synthetic workload for a target class. Every execution gets a new list from the supplier, as the rules
+     * may update the items.
+     *
+     * @param targetClass Target class
+     * @param workload Items supplier
+     * @param <P> Item type
+     * @return this
+     */
+    public <P> RulesWarmUp addWorkload(final Class<P> targetClass, final Supplier<List<P>> workload) {
+        this.workloads.put(targetClass, workload);
+        return this;
+    }
+
+    /**
+     * Set the executions per channel.
+     *
+     * @param iterations Executions
+     */
+    public void setIterations(final int iterations) {
+        this.iterations = iterations;
+    }
+
+    /**
+     * Set the managers to warm up. By default, all the managers in the context.
+     *
+     * @param managers Rule managers
+     */
+    public void setManagers(final List<StreamRuleManager<?>> managers) {
+        this.managers = managers;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (this.managers == null) {
+            return;
+        }
+        for (StreamRuleManager<?> manager : this.managers) {
+            try {
+                this.warmUp(manager);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <P> void warmUp(final StreamRuleManager<P> manager) throws InterruptedException {
+        long start = System.nanoTime();
+        Supplier<List<P>> workload = (Supplier<List<P>>) this.workloads.get(manager.getTargetClass());
+        if (workload == null) {
+            manager.getSnapshot();
+        } else {
+            manager.warmUp(workload, this.iterations);
+        }
+        RulesWarmUp.log.info("Reglas de {} compiladas{} en {} ms", manager.getTargetClass().getSimpleName(),
+                workload == null ? "" : " y calentadas", Long.valueOf((System.nanoTime() - start) / 1000000L));
+    }
+
+}
@@ -0,0 +1,40 @@
+package org.sbol.projects.engine.rules;
+
+import java.util.stream.Stream;
+
+/**
+ * Page rule. Only a range of the items goes on through the stream.
+ *
+ * @author david.ralluy
+ * @param <T>
+ *            Rule type
+ *
+ */
+public class SliceRule<T> implements StreamRule<T> {
+
+    private final int offset;
+
+    private final int limit;
+
+    /**
+     * Constructor.
+     *
+     * @param offset First item of the page
+     * @param limit Page size
+     */
+    public SliceRule(final int offset, final int limit) {
+        this.offset = offset;
+        this.limit = limit;
+    }
+
+    @Override
+    public Stream<T> apply(final Stream<T> stream) {
+        return stream.skip(this.offset).limit(this.limit);
+    }
+
+    @Override
+    public RuleKind getKind() {
+        return RuleKind.SLICE;
+    }
+
+}
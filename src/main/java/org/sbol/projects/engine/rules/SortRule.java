@@ -0,0 +1,88 @@
+package org.sbol.projects.engine.rules;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Ordering rule. A sort needs the whole input before giving the first item, so it buffers the stream.
+ *
+ * @author david.ralluy
+ * @param <T>
+ *            Rule type
+ *
+ */
+public class SortRule<T> implements StreamRule<T> {
+
+    private final Comparator<T> comparator;
+
+    /**
+     * Constructor.
+     *
+     * @param comparator Order of the items
+     */
+    public SortRule(final Comparator<T> comparator) {
+        this.comparator = comparator;
+    }
+
+    @Override
+    public Stream<T> apply(final Stream<T> stream) {
+        return stream.sorted(this.comparator);
+    }
+
+    /**
+     * Sort a buffer of the whole input. A sequential buffer is sorted in place.
+     *
+     * @param buffer Items, modifiable
+     * @param parallel Sort in parallel S/N
+     * @return Sorted items
+     */
+    @SuppressWarnings("unchecked")
+    public Stream<T> sort(final List<T> buffer, final boolean parallel) {
+        if (!parallel) {
+            buffer.sort(this.comparator);
+            return buffer.stream();
+        }
+        // A parallel sort is stable too.
+        T[] items = (T[]) buffer.toArray();
+        Arrays.parallelSort(items, this.comparator);
+        return Arrays.stream(items).parallel();
+    }
+
+    /**
+     * Same kind of rule with another order, for the engine to merge consecutive sorts.
+     *
+     * @param order Order of the items
+     * @return Sort rule
+     */
+    public SortRule<T> withComparator(final Comparator<T> order) {
+        return new SortRule<>(order);
+    }
+
+    /**
+     * Partial sort giving only a page of the order (see {@link TopKRule}).
+     *
+     * @param offset First item of the page
+     * @param limit Page size
+     * @return Rule for the page
+     */
+    public StreamRule<T> top(final int offset, final int limit) {
+        return new TopKRule<>(this.comparator, offset, limit);
+    }
+
+    @Override
+    public RuleKind getKind() {
+        return RuleKind.SORT;
+    }
+
+    /**
+     * Order of the items.
+     *
+     * @return Comparator
+     */
+    public Comparator<T> getComparator() {
+        return this.comparator;
+    }
+
+}
@@ -1,5 +1,9 @@
 package org.sbol.projects.engine.rules;
 
+import java.util.Comparator;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
 import java.util.stream.Stream;
 
 /**
@@ -23,4 +27,70 @@ public interface StreamRule<T> {
      */
     Stream<T> apply(final Stream<T> stream);
 
+    /**
+     * Kind of work done by the rule. Rules defined as plain lambdas are opaque to the engine; the typed rules
+     * ({@link #filtered(Predicate)}, {@link #peeked(Consumer)}, {@link #mapped(UnaryOperator)},
+     * {@link #sorted(Comparator)}) let the engine optimize the chain.
+     *
+     * @return Rule kind
+     */
+    default RuleKind getKind() {
+        return RuleKind.OPAQUE;
+    }
+
+    /**
+     * Indicates if the rule needs the whole input before giving the first item, like a sort does.
+     * Per item rules don't buffer, so their memory doesn't grow with the input. Opaque rules may buffer, so they
+     * are reported as buffering.
+     *
+     * @return Buffering S/N
+     */
+    default boolean isBuffering() {
+        return this.getKind().isBuffering();
+    }
+
+    /**
+     * Filter rule.
+     *
+     * @param predicate Condition for the items to keep
+     * @param <T> Rule type
+     * @return Filter rule
+     */
+    static <T> StreamRule<T> filtered(final Predicate<T> predicate) {
+        return new FilterRule<>(predicate);
+    }
+
+    /**
+     * Per item rule.
+     *
+     * @param action Action for every item
+     * @param <T> Rule type
+     * @return Peek rule
+     */
+    static <T> StreamRule<T> peeked(final Consumer<T> action) {
+        return new PeekRule<>(action);
+    }
+
+    /**
+     * Transformation rule.
+     *
+     * @param mapper Transformation of every item
+     * @param <T> Rule type
+     * @return Map rule
+     */
+    static <T> StreamRule<T> mapped(final UnaryOperator<T> mapper) {
+        return new MapRule<>(mapper);
+    }
+
+    /**
+     * Ordering rule.
+     *
+     * @param comparator Order of the items
+     * @param <T> Rule type
+     * @return Sort rule
+     */
+    static <T> StreamRule<T> sorted(final Comparator<T> comparator) {
+        return new SortRule<>(comparator);
+    }
+
 }
@@ -1,17 +1,51 @@
 package org.sbol.projects.engine.rules;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Modifier;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.concurrent.CountDownLatch;
+import java.util.Objects;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.sbol.projects.engine.constants.Channel;
+import org.sbol.projects.engine.constants.ExecutionMode;
 import org.sbol.projects.engine.exceptions.EngineRuleException;
+import org.sbol.projects.engine.repository.RepositoryClassLoader;
+import org.sbol.projects.engine.repository.RuleArchive;
+import org.sbol.projects.engine.repository.RuleClassGeneration;
+import org.sbol.projects.engine.repository.RuleClassLoaders;
+import org.sbol.projects.engine.repository.RuleRepository;
+import org.sbol.projects.engine.repository.S3RuleRepository;
 import org.sbol.projects.engine.rules.annotations.Rule;
-import org.sbol.projects.engine.utils.S3ClassLoader;
+import org.sbol.projects.engine.rules.bundle.RuleBundle;
+import org.sbol.projects.engine.rules.dsl.RuleCompiler;
+import org.sbol.projects.engine.rules.dsl.RuleSyntaxException;
+import org.sbol.projects.engine.rules.metrics.RuleMetricsRegistry;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
 
@@ -25,38 +59,70 @@ import com.amazonaws.regions.Regions;
  * @author david.ralluy
  *
  */
-public abstract class StreamRuleManager<P> implements RuleManager<P> {
+public abstract class StreamRuleManager<P> implements RuleManager<P>, DisposableBean {
 
     /**
-     * Bucket name for loading new business rules.
+     * Bucket name for loading new business rules, with the default repository.
      */
     private static final String TEST_BUCKET_NAME = "bucket/name";
 
-    // All the rules map.
-    private Map<Class<?>, Map<String, BusinessRule<P>>> rulesMap = new HashMap<>();
+    // Execution order: higher priority first. On a tie, inherited rules run before the channel own rules, then by
+    // name, so the order never depends on the registration order.
+    private static final Comparator<BusinessRule<?>> EXECUTION_ORDER = (p1, p2) -> {
+        int result = Integer.compare(p2.getPriority(), p1.getPriority());
+        if (result == 0) {
+            result = Integer.compare(p1.getChannel().getDepth(), p2.getChannel().getDepth());
+        }
+        return result != 0 ? result : p1.getName().compareTo(p2.getName());
+    };
 
-    // Rules grouped by channel.
-    private Map<Class<?>, EnumMap<Channel, StreamRule<P>>> rulesCompositeMap = new HashMap<>();
+    // Compiled rule set published to the readers. It is replaced as a whole on every rules change.
+    private final AtomicReference<RuleSetSnapshot<P>> snapshot = new AtomicReference<>();
 
-    // Rules applied in runtime.
-    private Map<Class<?>, EnumMap<Channel, List<BusinessRule<P>>>> rulesAppliedMap = new HashMap<>();
+    // Serializes the writers. Readers never take it.
+    private final Object reloadLock = new Object();
 
-    @Autowired
-    private ApplicationContext context;
+    private long lastVersion = 0L;
 
-    @Autowired
-    private CriterionRuleFactory<P> criterionRuleFactory;
+    // Channels executed in parallel by default.
+    private volatile Set<Channel> parallelChannels = Collections.unmodifiableSet(EnumSet.noneOf(Channel.class));
+
+    // Its pool is created on the first parallel execution.
+    private volatile ParallelRuleExecutor parallelExecutor = new ParallelRuleExecutor();
+
+    // Optional cache of results, disabled by default.
+    private volatile RuleResultCache<P> resultCache;
+
+    // Optional per rule metrics. Without registry the chains are compiled without instrumentation.
+    private volatile RuleMetricsRegistry metricsRegistry;
+
+    // Measures of the commutative filters by rule name, kept across compilations.
+    private final Map<String, FilterProfile<P>> filterProfiles = new ConcurrentHashMap<>();
+
+    // Order of the rules in the compiled chain of every channel. It only differs from the rules applied when
+    // commutative filters get reordered.
+    private final Map<Channel, List<BusinessRule<P>>> compiledOrder = new EnumMap<>(Channel.class);
+
+    // Rules of the last bundle loaded, by name. Replaced, never changed, holding the reload lock.
+    private volatile Map<String, BundledRule<P>> bundledRules = Collections.emptyMap();
+
+    private volatile RuleBundle bundle;
 
-    private CountDownLatch startSignal = null;
+    // Source of the rule classes added one by one. Created on first use.
+    private volatile RuleRepository ruleRepository;
 
-    private boolean recarga = false;
+    // Loaders of the rule classes added, retired when no published rule set references them.
+    private final RuleClassLoaders classLoaders = new RuleClassLoaders();
+
+    @Autowired
+    private ApplicationContext context;
+
+    // Own factory: a rebuild for this target class never touches the rules of other managers.
+    private final CriterionRuleFactory<P> criterionRuleFactory = new CriterionRuleFactory<>();
 
     @Override
     public Map<String, BusinessRule<P>> getRules() {
-        if (!this.rulesMap.containsKey(this.getTargetClass())) {
-            this.loadRules(null);
-        }
-        return this.rulesMap.get(this.getTargetClass());
+        return this.getSnapshot().getRules();
     }
 
     /**
@@ -65,7 +131,7 @@ public abstract class StreamRuleManager<P> implements RuleManager<P> {
      * @return Rules map for a channel
      */
     public Map<Channel, StreamRule<P>> getRulesComposite() {
-        return this.rulesCompositeMap.get(this.getTargetClass());
+        return this.getSnapshot().getRulesComposite();
     }
 
     /**
@@ -74,7 +140,7 @@ public abstract class StreamRuleManager<P> implements RuleManager<P> {
      * @return Rules map applied
      */
     public Map<Channel, List<BusinessRule<P>>> getRulesApplied() {
-        return this.rulesAppliedMap.get(this.getTargetClass());
+        return this.getSnapshot().getRulesApplied();
     }
 
     /**
@@ -85,31 +151,313 @@ public abstract class StreamRuleManager<P> implements RuleManager<P> {
      * @return Rules map applied
      */
     public List<BusinessRule<P>> getRulesApplied(final Channel channel) {
-        return this.rulesAppliedMap.get(this.getTargetClass()).get(channel);
+        return this.getRulesApplied().get(channel);
+    }
+
+    /**
+     * Get the rules of a channel in the order of its compiled chain, after reordering the commutative filters.
+     *
+     * @param channel Channel
+     *
+     * @return Rules compiled
+     */
+    public List<BusinessRule<P>> getRulesCompiled(final Channel channel) {
+        synchronized (this.reloadLock) {
+            this.getSnapshot();
+            List<BusinessRule<P>> compiled = this.compiledOrder.get(channel);
+            for (Channel current = channel; compiled == null && current.getParent() != null;) {
+                current = current.getParent();
+                compiled = this.compiledOrder.get(current);
+            }
+            return compiled == null ? Collections.<BusinessRule<P>> emptyList()
+                : Collections.unmodifiableList(compiled);
+        }
+    }
+
+    /**
+     * Current compiled rule set. The first call loads the rules.
+     *
+     * @return Rule set snapshot
+     */
+    public RuleSetSnapshot<P> getSnapshot() {
+        RuleSetSnapshot<P> current = this.snapshot.get();
+        if (current == null) {
+            this.loadRules(null);
+            current = this.snapshot.get();
+        }
+        return current;
     }
 
     @Override
     public List<P> executeRules(final List<P> items, final Channel channel) throws InterruptedException {
+        return this.executeRules(items, channel, ExecutionMode.DEFAULT);
+    }
 
-        if (!this.rulesCompositeMap.containsKey(this.getTargetClass())) {
-            this.loadRules(null);
+    @Override
+    public List<P> executeRules(final List<P> items, final Channel channel, final ExecutionMode mode)
+            throws InterruptedException {
+        return this.executeRules(items, channel, mode, null);
+    }
+
+    /**
+     * Rules execution with a fingerprint of the input supplied by the caller. Lists with the same fingerprint get the
+     * same result from the result cache, when it is enabled, while the rules don't change.
+     *
+     * @param items Items list to process
+     * @param channel Channel
+     * @param fingerprint Input fingerprint
+     * @return Items list updated
+     * @throws InterruptedException Execution interrupted
+     */
+    public List<P> executeRules(final List<P> items, final Channel channel, final Object fingerprint)
+            throws InterruptedException {
+        return this.executeRules(items, channel, ExecutionMode.DEFAULT, fingerprint);
+    }
+
+    private List<P> executeRules(final List<P> items, final Channel channel, final ExecutionMode mode,
+            final Object fingerprint) throws InterruptedException {
+
+        // A single read of the published snapshot: a concurrent reload never gets seen half built.
+        RuleSetSnapshot<P> current = this.getSnapshot();
+        StreamRule<P> rule = current.getRulesComposite().get(channel);
+
+        if (rule == null) {
+            return items;
+        }
+        RuleResultCache<P> cache = this.resultCache;
+        if (cache == null) {
+            return this.execute(rule, items, channel, mode);
         }
+        Object computed = fingerprint != null ? fingerprint : cache.fingerprint(items);
+        if (computed == null) {
+            return this.execute(rule, items, channel, mode);
+        }
+        // Computed before executing, as the rules may change the items. It takes the version of the snapshot
+        // executed, never a newer one.
+        RuleResultCache.Key key = new RuleResultCache.Key(computed, channel, current.getVersion());
+        List<P> result = cache.get(key);
+        if (result == null) {
+            result = cache.put(key, this.execute(rule, items, channel, mode));
+        }
+        return result;
+    }
 
-        if (this.recarga) {
-            try {
-                this.startSignal.await();
-            } catch (InterruptedException e) {
-                throw e;
-            }
+    @Override
+    public List<P> executeRules(final List<P> items, final Channel channel, final int offset, final int limit)
+            throws InterruptedException {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Invalid page: offset " + offset + ", limit " + limit);
+        }
+
+        StreamRule<P> rule = this.getSnapshot().getRulesComposite().get(channel);
+
+        if (rule instanceof RuleChain) {
+            return this.execute(((RuleChain<P>) rule).page(offset, limit), items, channel, ExecutionMode.DEFAULT);
+        }
+        if (rule != null) {
+            return this.execute(s -> rule.apply(s).skip(offset).limit(limit), items, channel, ExecutionMode.DEFAULT);
+        }
+        int from = Math.min(offset, items.size());
+        return new ArrayList<>(items.subList(from, (int) Math.min((long) from + limit, items.size())));
+    }
+
+    private List<P> execute(final StreamRule<P> rule, final List<P> items, final Channel channel,
+            final ExecutionMode mode) throws InterruptedException {
+        // Business logic execution.
+        if (mode == ExecutionMode.PARALLEL
+                || mode == ExecutionMode.DEFAULT && this.parallelChannels.contains(channel)) {
+            return this.parallelExecutor.execute(rule, items);
+        }
+        if (rule instanceof RuleChain && ((RuleChain<P>) rule).isPerItem()) {
+            // Filters and in place updates only: a plain loop, without stream pipeline.
+            return ((RuleChain<P>) rule).applyToAll(items);
+        }
+        return rule.apply(items.stream()).collect(Collectors.toList());
+    }
+
+    /**
+     * Rules execution updating the list itself: the items kept stay in the list, in order, and the rest are removed.
+     * Per item chains run in a plain loop without allocating anything; chains over the whole stream fill the list with
+     * their result. The result cache and the parallel execution are not used.
+     *
+     * @param items Modifiable items list to process
+     * @param channel Channel
+     * @return Number of items kept
+     */
+    public int executeRulesInPlace(final List<P> items, final Channel channel) {
+        StreamRule<P> rule = this.getSnapshot().getRulesComposite().get(channel);
+        if (rule instanceof RuleChain && ((RuleChain<P>) rule).isPerItem()) {
+            return ((RuleChain<P>) rule).applyInPlace(items);
         }
+        if (rule != null) {
+            List<P> result = rule.apply(items.stream()).collect(Collectors.toList());
+            items.clear();
+            items.addAll(result);
+        }
+        return items.size();
+    }
 
-        if (this.getRulesComposite().get(channel) != null) {
-            // Business logic execution.
-            return this.getRulesComposite().get(channel).apply(items.stream()).collect(Collectors.toList());
+    @Override
+    public Stream<P> executeRules(final Stream<P> items, final Channel channel) {
+        StreamRule<P> rule = this.getSnapshot().getRulesComposite().get(channel);
+        if (rule != null) {
+            return rule.apply(items);
         }
         return items;
     }
 
+    /**
+     * Lazy rules execution over an iterator, possibly unbounded.
+     *
+     * @param items Items iterator to process
+     * @param channel Channel
+     * @return Items stream updated
+     */
+    public Stream<P> executeRules(final Iterator<P> items, final Channel channel) {
+        return this.executeRules(Spliterators.spliteratorUnknownSize(items, Spliterator.ORDERED), channel);
+    }
+
+    /**
+     * Lazy rules execution over a spliterator, possibly unbounded.
+     *
+     * @param items Items spliterator to process
+     * @param channel Channel
+     * @return Items stream updated
+     */
+    public Stream<P> executeRules(final Spliterator<P> items, final Channel channel) {
+        return this.executeRules(StreamSupport.stream(items, false), channel);
+    }
+
+    /**
+     * Rules of the channel that need, or may need, the whole input before giving the first item: sorts and rules
+     * opaque to the engine. If there is none, streaming execution keeps constant memory.
+     *
+     * @param channel Channel
+     * @return Buffering rules, in execution order
+     */
+    public List<BusinessRule<P>> getBufferingRules(final Channel channel) {
+        List<BusinessRule<P>> rules = this.getRulesApplied(channel);
+        if (rules == null) {
+            return Collections.emptyList();
+        }
+        return rules.stream().filter(BusinessRule::isBuffering).collect(Collectors.toList());
+    }
+
+    /**
+     * Set the channels executed in parallel when no execution mode is requested.
+     *
+     * @param channels Parallel channels
+     */
+    public void setParallelChannels(final Set<Channel> channels) {
+        EnumSet<Channel> copy = EnumSet.noneOf(Channel.class);
+        copy.addAll(channels);
+        this.parallelChannels = Collections.unmodifiableSet(copy);
+    }
+
+    /**
+     * Channels executed in parallel when no execution mode is requested.
+     *
+     * @return Parallel channels
+     */
+    public Set<Channel> getParallelChannels() {
+        return this.parallelChannels;
+    }
+
+    /**
+     * Executor for the parallel mode.
+     *
+     * @return Parallel executor
+     */
+    public ParallelRuleExecutor getParallelExecutor() {
+        return this.parallelExecutor;
+    }
+
+    /**
+     * Set the executor for the parallel mode, with its own pool and threshold. The previous executor is shut down.
+     *
+     * @param parallelExecutor Parallel executor
+     */
+    public void setParallelExecutor(final ParallelRuleExecutor parallelExecutor) {
+        ParallelRuleExecutor previous = this.parallelExecutor;
+        this.parallelExecutor = parallelExecutor;
+        if (previous != parallelExecutor) {
+            previous.shutdown();
+        }
+    }
+
+    /**
+     * Shut down the parallel executor with the manager.
+     */
+    @Override
+    public void destroy() {
+        this.parallelExecutor.shutdown();
+    }
+
+    /**
+     * Get the result cache.
+     *
+     * @return Result cache, null if disabled
+     */
+    public RuleResultCache<P> getResultCache() {
+        return this.resultCache;
+    }
+
+    /**
+     * Set the result cache. Null disables it.
+     *
+     * @param resultCache Result cache
+     */
+    public void setResultCache(final RuleResultCache<P> resultCache) {
+        this.resultCache = resultCache;
+    }
+
+    /**
+     * Get the metrics registry.
+     *
+     * @return Metrics registry, null if disabled
+     */
+    public RuleMetricsRegistry getMetricsRegistry() {
+        return this.metricsRegistry;
+    }
+
+    /**
+     * Set the metrics registry, null disables the metrics. The rules get compiled again, with or without
+     * instrumentation.
+     *
+     * @param metricsRegistry Metrics registry
+     */
+    public void setMetricsRegistry(final RuleMetricsRegistry metricsRegistry) {
+        synchronized (this.reloadLock) {
+            this.metricsRegistry = metricsRegistry;
+            RuleSetSnapshot<P> current = this.snapshot.get();
+            if (current != null) {
+                this.publish(current.getRules());
+            }
+        }
+    }
+
+    /**
+     * Compile the rules of every channel, and run a synthetic workload through each chain, so the hot paths get
+     * JIT-compiled before the first request. The result cache is bypassed.
+     *
+     * @param workload Items supplier. Every execution gets a new list, as the rules may update the items.
+     * @param iterations Executions per channel
+     * @throws InterruptedException Execution interrupted
+     */
+    public void warmUp(final Supplier<List<P>> workload, final int iterations) throws InterruptedException {
+        RuleSetSnapshot<P> current = this.getSnapshot();
+        // Channels sharing a chain only need it warmed once.
+        Set<StreamRule<P>> warmed = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Map.Entry<Channel, StreamRule<P>> entry : current.getRulesComposite().entrySet()) {
+            if (warmed.add(entry.getValue())) {
+                // Straight to the chain: through the result cache every iteration but the first would be a hit.
+                for (int i = 0; i < iterations; i++) {
+                    this.execute(entry.getValue(), workload.get(), entry.getKey(), ExecutionMode.DEFAULT);
+                }
+            }
+        }
+    }
+
     /**
      * Devuelve la clase sobre la que aplicar las reglas el StreamRuleManager
      * con el fin de poder distinguir dentro del contexto de Spring entre reglas
@@ -143,116 +491,609 @@ public abstract class StreamRuleManager<P> implements RuleManager<P> {
     /**
      * Load all the business rules. They get ordered and filtered before executing.
      *
+     * The rules source, if any, is compiled into rules of the target class (see {@link RuleCompiler} for the
+     * language), which are added to the current rules, replacing those with the same name. The source is compiled
+     * before taking the lock, and a source with errors changes nothing.
+     *
      * The final result is a composition of all rules by channel, inside a single rule by channel (see
      * CriterionRuleFactory)
      *
+     * @param ruleFile Rules source, null to only reload the current rules
+     * @throws RuleSyntaxException Error in the rules source
      */
     @Override
     public void loadRules(final String ruleFile) {
+        List<BusinessRule<P>> compiled = ruleFile == null ? Collections.<BusinessRule<P>> emptyList()
+            : RuleCompiler.compile(ruleFile, this.getTargetClass());
+        synchronized (this.reloadLock) {
+            RuleSetSnapshot<P> current = this.snapshot.get();
+            Map<String, BusinessRule<P>> rules;
+            if (current == null) {
+                // Via Spring obtenemos todas las clases con anotacion Rule cuyo type coincida con el clase
+                // gestionado por una instancia concreta del StreamRuleManager
+                // (p.e. el StremaRuleManagerProductCatalog trata con reglas aplicables sobre ProductCatalog). De
+                // aqui obtenemos una lista inicial de BusinessRule que encapsula
+                // su respectiva StreamRule (que es la que aplica las reglas de negocio en si sobre los productos).
+                rules = this.getRulesFromSpringContext();
+            } else {
+                rules = compiled.isEmpty() ? current.getRules() : new HashMap<>(current.getRules());
+            }
+            for (BusinessRule<P> rule : compiled) {
+                rules.put(rule.getName(), rule);
+            }
+            this.publish(rules);
+        }
+    }
+
+    /**
+     * Load the rules of a bundle file (see {@link RuleBundle}), replacing the rules of the previous bundle. The file
+     * is mapped, not read, and only the rules whose definition changed since the previous bundle get compiled, before
+     * taking the reload lock, so the writers aren't blocked meanwhile. A bundle with errors changes nothing.
+     *
+     * The bundle is the source of truth for every field of its rules: priority, channel, activation and parameters
+     * changed since through the admin API are reset to the values of the bundle. A rule whose parameters changed is
+     * compiled again from its definition, as values read at compile time depend on them.
+     *
+     * @param path Bundle file
+     * @throws IOException Error mapping the file, or invalid bundle
+     * @throws RuleSyntaxException Error in the source of a rule
+     */
+    public void loadBundle(final Path path) throws IOException {
+        RuleBundle opened = RuleBundle.open(path);
+        Map<String, BusinessRule<P>> compiled = new HashMap<>();
+        while (true) {
+            // First compile, so an error leaves the current rules untouched.
+            Map<String, BundledRule<P>> base = this.bundledRules;
+            for (int i = 0; i < opened.size(); i++) {
+                String name = opened.getName(i);
+                if (!compiled.containsKey(name) && !StreamRuleManager.isReusable(base.get(name), opened, i)) {
+                    compiled.put(name, this.compileBundled(opened, i, name));
+                }
+            }
+            synchronized (this.reloadLock) {
+                // A rule changed meanwhile needs to be checked again.
+                if (this.bundledRules == base) {
+                    this.publishBundle(opened, compiled);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Publish the rules of a bundle. The published rules are never changed: a reused rule with new priority, channel
+     * or activation is a copy. Must be called holding the reload lock.
+     *
+     * @param opened Bundle
+     * @param compiled Rules compiled from the bundle, by name; the rest are reused
+     */
+    private void publishBundle(final RuleBundle opened, final Map<String, BusinessRule<P>> compiled) {
+        RuleSetSnapshot<P> current = this.snapshot.get();
+        Map<String, BusinessRule<P>> rules = current == null ? this.getRulesFromSpringContext()
+            : new HashMap<>(current.getRules());
+        for (BundledRule<P> previous : this.bundledRules.values()) {
+            rules.remove(previous.rule.getName(), previous.rule);
+        }
+
+        Map<String, BundledRule<P>> loaded = new HashMap<>(opened.size() * 4 / 3 + 1);
+        for (int i = 0; i < opened.size(); i++) {
+            String name = opened.getName(i);
+            BundledRule<P> previous = this.bundledRules.get(name);
+            BusinessRule<P> rule = compiled.get(name);
+            Map<String, Object> parameters;
+            if (rule != null) {
+                parameters = rule.getParameters();
+            } else {
+                rule = StreamRuleManager.sameMetadata(previous.rule, opened, i) ? previous.rule : previous.rule.copy();
+                parameters = previous.parameters;
+            }
+            if (previous == null || rule != previous.rule) {
+                rule.setPriority(opened.getPriority(i));
+                rule.setChannel(opened.getChannel(i));
+                rule.setEnabled(opened.isEnabled(i));
+                rule.setCommutative(opened.isCommutative(i));
+            }
+            loaded.put(name, new BundledRule<>(rule, opened.getHash(i), parameters));
+            rules.put(name, rule);
+        }
+        this.publish(rules);
+        this.bundledRules = loaded;
+        this.bundle = opened;
+    }
+
+    /**
+     * Indicates if the rule of a previous bundle can be reused for an entry: same definition, and the parameters it
+     * was compiled with.
+     */
+    private static boolean isReusable(final BundledRule<?> previous, final RuleBundle opened, final int position) {
+        return previous != null && previous.hash == opened.getHash(position)
+                && Objects.equals(previous.rule.getParameters(), previous.parameters);
+    }
 
-        if (!this.rulesMap.containsKey(this.getTargetClass())) {
-            this.rulesMap.put(this.getTargetClass(),
-                    // Via Spring obtenemos todas las clases con anotacion Rule cuyo type coincida con el clase
-                    // gestionado por una instancia concreta del StreamRuleManager
-                    // (p.e. el StremaRuleManagerProductCatalog trata con reglas aplicables sobre ProductCatalog). De
-                    // aqui obtenemos una lista inicial de BusinessRule que encapsula
-                    // su respectiva StreamRule (que es la que aplica las reglas de negocio en si sobre los productos).
-                    this.getRulesFromSpringContext());
-            this.rulesCompositeMap.put(this.getTargetClass(), new EnumMap<Channel, StreamRule<P>>(Channel.class));
-            this.rulesAppliedMap.put(this.getTargetClass(), new EnumMap<Channel, List<BusinessRule<P>>>(Channel.class));
-        }
-
-        // Grouping rules by channel
-        Map<Channel, List<BusinessRule<P>>> reglasCanales = this
-            .getRules()
+    private static boolean sameMetadata(final BusinessRule<?> rule, final RuleBundle opened, final int position) {
+        return rule.getPriority() == opened.getPriority(position) && rule.getChannel() == opened.getChannel(position)
+                && rule.isEnabled() == opened.isEnabled(position)
+                && rule.isCommutative() == opened.isCommutative(position);
+    }
+
+    private BusinessRule<P> compileBundled(final RuleBundle opened, final int position, final String name)
+            throws IOException {
+        List<BusinessRule<P>> compiled = RuleCompiler.compile(opened.getSource(position), this.getTargetClass());
+        if (compiled.size() != 1 || !compiled.get(0).getName().equals(name)) {
+            throw new IOException("Bundle entry " + name + " must declare a single rule " + name + ": "
+                    + opened.getPath());
+        }
+        BusinessRule<P> rule = compiled.get(0);
+        Map<String, Object> parameters = opened.getParameters(position);
+        if (!parameters.isEmpty()) {
+            rule.updateParameters(parameters);
+        }
+        return rule;
+    }
+
+    /**
+     * Last bundle loaded.
+     *
+     * @return Bundle, null if none
+     */
+    public RuleBundle getBundle() {
+        return this.bundle;
+    }
+
+    /**
+     * Compile all the rules and publish the new snapshot. Must be called holding the reload lock.
+     *
+     * @param rules All the rules by name
+     */
+    private void publish(final Map<String, BusinessRule<P>> rules) {
+        EnumMap<Channel, List<BusinessRule<P>>> rulesApplied = new EnumMap<>(Channel.class);
+        EnumMap<Channel, StreamRule<P>> rulesComposite = new EnumMap<>(Channel.class);
+
+        // Grouping the enabled rules by channel
+        Map<Channel, List<BusinessRule<P>>> reglasCanales = rules
             .values()
             .stream()
+            .filter(p -> p.isEnabled())
             .collect(Collectors.groupingBy(BusinessRule::getChannel));
 
-        for (Entry<Channel, List<BusinessRule<P>>> reglasCanal : reglasCanales.entrySet()) {
+        this.criterionRuleFactory.clearRules(this.getTargetClass());
+        this.criterionRuleFactory.setVersion(this.lastVersion + 1);
+
+        // Parents come first in the enum, so their chains are ready when a child channel needs them.
+        for (Channel channel : Channel.values()) {
+            // Own rules plus the inherited ones, interleaved by priority.
+            List<BusinessRule<P>> reglas = new ArrayList<>();
+            for (Channel current = channel; current != null; current = current.getParent()) {
+                reglas.addAll(reglasCanales.getOrDefault(current, Collections.<BusinessRule<P>> emptyList()));
+            }
+            reglas.sort(StreamRuleManager.EXECUTION_ORDER);
+            this.compileChannel(channel, reglas, rulesApplied, rulesComposite);
+        }
+
+        this.setSnapshot(new RuleSetSnapshot<>(++this.lastVersion, rules, rulesApplied, rulesComposite));
+    }
+
+    /**
+     * Publish a rule set. Cached results of previous rule sets are dropped, and so are the filter measures, the
+     * metrics and the class loaders of rules no longer in the set, so their classes can be unloaded.
+     *
+     * @param ruleSet Rule set
+     */
+    private void setSnapshot(final RuleSetSnapshot<P> ruleSet) {
+        this.snapshot.set(ruleSet);
+        RuleResultCache<P> cache = this.resultCache;
+        if (cache != null) {
+            cache.invalidate();
+        }
+        this.filterProfiles.keySet().retainAll(ruleSet.getRules().keySet());
+        RuleMetricsRegistry registry = this.metricsRegistry;
+        if (registry != null) {
+            registry.retainRules(ruleSet.getRules().keySet());
+        }
+        this.classLoaders.retainReferenced(ruleSet.getRules().values());
+    }
+
+    /**
+     * Publish a change of a single rule. The rule gets spliced out of and into the rules applied of the channels
+     * including it, at its priority position, and only those chains are compiled again. The chains of the other
+     * channels are reused as they are. Must be called holding the reload lock.
+     *
+     * @param rules All the rules by name, after the change
+     * @param removed Rule to take out, or null
+     * @param added Rule to put in if enabled, or null
+     */
+    private void publishChange(final Map<String, BusinessRule<P>> rules, final BusinessRule<P> removed,
+            final BusinessRule<P> added) {
+        RuleSetSnapshot<P> current = this.getSnapshot();
+        this.criterionRuleFactory.setVersion(this.lastVersion + 1);
+        EnumMap<Channel, List<BusinessRule<P>>> rulesApplied = new EnumMap<>(Channel.class);
+        rulesApplied.putAll(current.getRulesApplied());
+        EnumMap<Channel, StreamRule<P>> rulesComposite = new EnumMap<>(Channel.class);
+        rulesComposite.putAll(current.getRulesComposite());
+
+        for (Channel channel : Channel.values()) {
+            if (!StreamRuleManager.includes(channel, removed) && !StreamRuleManager.includes(channel, added)) {
+                continue;
+            }
+            List<BusinessRule<P>> reglas = new ArrayList<>(
+                    current.getRulesApplied().getOrDefault(channel, Collections.<BusinessRule<P>> emptyList()));
+            if (removed != null) {
+                // The sort key may have changed already, so the rule is found by identity.
+                reglas.removeIf(p -> p == removed);
+            }
+            if (added != null && added.isEnabled()) {
+                int position = Collections.binarySearch(reglas, added, StreamRuleManager.EXECUTION_ORDER);
+                reglas.add(position < 0 ? -position - 1 : position, added);
+            }
+            this.compileChannel(channel, reglas, rulesApplied, rulesComposite);
+        }
+
+        this.setSnapshot(new RuleSetSnapshot<>(++this.lastVersion, rules, rulesApplied, rulesComposite));
+    }
+
+    /**
+     * Indicates if the engine may move a rule inside its priority band: a commutative filter.
+     *
+     * @param rule Rule
+     * @return Reorderable S/N
+     */
+    private static boolean isReorderable(final BusinessRule<?> rule) {
+        return rule.isCommutative() && rule.getRule() instanceof FilterRule;
+    }
+
+    /**
+     * Rule to compile. Commutative filters get their predicate measured.
+     *
+     * @param businessRule Business rule
+     * @return Rule
+     */
+    private StreamRule<P> profile(final BusinessRule<P> businessRule) {
+        if (!StreamRuleManager.isReorderable(businessRule)) {
+            return businessRule.getRule();
+        }
+        Predicate<P> predicate = ((FilterRule<P>) businessRule.getRule()).getPredicate();
+        FilterProfile<P> profile = this.filterProfiles.computeIfAbsent(businessRule.getName(),
+                p -> new FilterProfile<>(predicate));
+        profile.setPredicate(predicate);
+        return new FilterRule<>(profile);
+    }
+
+    /**
+     * Order of execution of the rules. Every run of commutative filters of the same priority gets sorted by measured
+     * rank, once all of them have been measured; the rest of the rules keep their place, so the result is the same.
+     *
+     * @param reglas Rules in execution order
+     * @return Rules in compilation order
+     */
+    private List<BusinessRule<P>> orderCommutativeFilters(final List<BusinessRule<P>> reglas) {
+        List<BusinessRule<P>> ordered = new ArrayList<>(reglas);
+        int start = 0;
+        while (start < ordered.size()) {
+            int end = start;
+            while (end < ordered.size() && StreamRuleManager.isReorderable(ordered.get(end))
+                    && ordered.get(end).getPriority() == ordered.get(start).getPriority()) {
+                end++;
+            }
+            if (end - start > 1) {
+                List<BusinessRule<P>> run = ordered.subList(start, end);
+                Map<BusinessRule<P>, Double> ranks = new IdentityHashMap<>();
+                for (BusinessRule<P> rule : run) {
+                    FilterProfile<P> profile = this.filterProfiles.get(rule.getName());
+                    ranks.put(rule, Double.valueOf(profile == null ? Double.NaN : profile.getRank()));
+                }
+                if (ranks.values().stream().noneMatch(p -> p.isNaN())) {
+                    run.sort(Comparator.comparing(ranks::get));
+                }
+            }
+            start = Math.max(end, start + 1);
+        }
+        return ordered;
+    }
 
-            // Order by priority and filter the disabled ones.
-            List<BusinessRule<P>> reglas = reglasCanal
-                .getValue()
-                .stream()
-                .filter(p -> p.isEnabled())
-                .sorted((p1, p2) -> Integer.compare(p2.getPriority(), p1.getPriority()))
-                .collect(Collectors.toList());
+    /**
+     * Reorder the commutative filters of every channel by their measured cost and selectivity. The chains are only
+     * compiled and published again when some order changes.
+     *
+     * @return Rules reordered S/N
+     */
+    public boolean reorderRules() {
+        synchronized (this.reloadLock) {
+            RuleSetSnapshot<P> current = this.snapshot.get();
+            if (current == null || this.filterProfiles.isEmpty()) {
+                return false;
+            }
+            for (Map.Entry<Channel, List<BusinessRule<P>>> compiled : this.compiledOrder.entrySet()) {
+                List<BusinessRule<P>> reglas = current.getRulesApplied().get(compiled.getKey());
+                if (reglas != null && !this.orderCommutativeFilters(reglas).equals(compiled.getValue())) {
+                    this.publish(current.getRules());
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Reorder the commutative filters periodically.
+     *
+     * @param scheduler Scheduler
+     * @param period Period between reorderings
+     * @param unit Period unit
+     * @return Scheduled task, to cancel it
+     */
+    public ScheduledFuture<?> scheduleReordering(final ScheduledExecutorService scheduler, final long period,
+            final TimeUnit unit) {
+        return scheduler.scheduleAtFixedRate(this::reorderRules, period, period, unit);
+    }
 
-            for (BusinessRule<P> businessRule : reglas) {
-                // This method joins every rule inside a single rule by channel, performing a stream reduction.
-                this.criterionRuleFactory.fromCriterion(businessRule.getRule(), reglasCanal.getKey(),
-                        this.getTargetClass());
+    /**
+     * Indicates if the rules of a channel include a rule, either its own or inherited.
+     */
+    private static boolean includes(final Channel channel, final BusinessRule<?> rule) {
+        if (rule != null) {
+            for (Channel current = channel; current != null; current = current.getParent()) {
+                if (current == rule.getChannel()) {
+                    return true;
+                }
             }
+        }
+        return false;
+    }
+
+    /**
+     * Compile the chain of a channel. Must be called holding the reload lock, with the parent channel already
+     * compiled.
+     *
+     * @param channel Channel
+     * @param reglas Rules of the channel, in execution order
+     * @param rulesApplied Rules applied to update
+     * @param rulesComposite Composite rules to update
+     */
+    private void compileChannel(final Channel channel, final List<BusinessRule<P>> reglas,
+            final Map<Channel, List<BusinessRule<P>>> rulesApplied, final Map<Channel, StreamRule<P>> rulesComposite) {
+        rulesApplied.remove(channel);
+        rulesComposite.remove(channel);
+        this.compiledOrder.remove(channel);
+        this.criterionRuleFactory.clearRules(channel, this.getTargetClass());
+        if (reglas.isEmpty()) {
+            return;
+        }
 
-            if (!reglas.isEmpty()) {
-                this.getRulesComposite().put(reglasCanal.getKey(),
-                        this.criterionRuleFactory.build(reglasCanal.getKey(), this.getTargetClass()));
-                this.getRulesApplied().put(reglasCanal.getKey(), reglas);
+        if (channel.getParent() != null && rulesComposite.containsKey(channel.getParent())
+                && reglas.stream().noneMatch(p -> p.getChannel() == channel)) {
+            // Nothing of its own: the channel shares the precompiled chain of its parent.
+            rulesComposite.put(channel, rulesComposite.get(channel.getParent()));
+            rulesApplied.put(channel, rulesApplied.get(channel.getParent()));
+            return;
+        }
+
+        List<BusinessRule<P>> ordered = this.orderCommutativeFilters(reglas);
+        for (BusinessRule<P> businessRule : ordered) {
+            // This method joins every rule inside a single rule by channel.
+            StreamRule<P> rule = this.profile(businessRule);
+            if (this.metricsRegistry != null) {
+                rule = this.metricsRegistry.instrument(businessRule.getName(), channel, rule);
             }
+            this.criterionRuleFactory.fromCriterion(rule, channel, this.getTargetClass());
         }
+        rulesComposite.put(channel, this.criterionRuleFactory.build(channel, this.getTargetClass()));
+        rulesApplied.put(channel, reglas);
+        this.compiledOrder.put(channel, ordered);
+    }
+
+    /**
+     * Copy of the current rules, to be modified and published by the writers.
+     *
+     * @return Rules by name
+     */
+    private Map<String, BusinessRule<P>> copyRules() {
+        return new HashMap<>(this.getSnapshot().getRules());
     }
 
     @Override
     public void removeRule(final String ruleName) {
-        this.getRules().remove(ruleName);
-        this.criterionRuleFactory.clearRules();
-        this.loadRules(null);
+        synchronized (this.reloadLock) {
+            Map<String, BusinessRule<P>> rules = this.copyRules();
+            BusinessRule<P> removed = rules.remove(ruleName);
+            if (removed != null) {
+                this.publishChange(rules, removed, null);
+            }
+        }
     }
 
     @Override
     public void addRule(final String ruleCollection, final String ruleName) throws EngineRuleException {
+        // A generation per rule, so a rule class can be loaded again in a newer version.
+        RepositoryClassLoader classLoader = this.classLoaders.open(ruleName, this.getRuleRepository(),
+                Thread.currentThread().getContextClassLoader());
+        try {
+            @SuppressWarnings("unchecked")
+            BusinessRule<P> rule = (BusinessRule<P>) this.loadRuleFromRepository(classLoader, ruleName);
 
-        @SuppressWarnings("unchecked")
-        BusinessRule<P> rule = (BusinessRule<P>) this.loadRuleFromS3(ruleName);
+            if (rule != null) {
+                synchronized (this.reloadLock) {
+                    Map<String, BusinessRule<P>> rules = this.copyRules();
+                    BusinessRule<P> replaced = rules.put(rule.getName(), rule);
+                    classLoader.getGeneration().activate();
+                    this.publishChange(rules, replaced, rule);
+                }
+            }
+        } finally {
+            StreamRuleManager.retireIfPending(classLoader);
+        }
+    }
 
-        if (rule != null) {
-            this.startSignal = new CountDownLatch(1);
-            this.recarga = true;
-            this.getRules().put(rule.getName(), rule);
-            this.criterionRuleFactory.clearRules();
-            this.loadRules(null);
-            this.recarga = false;
-            this.startSignal.countDown();
+    private static void retireIfPending(final RepositoryClassLoader classLoader) {
+        RuleClassGeneration generation = classLoader.getGeneration();
+        if (generation.getState() == RuleClassGeneration.State.PENDING) {
+            generation.retire();
+        }
+    }
+
+    /**
+     * Add all the rules of an archive of the rule repository, see {@link #addRules(InputStream)}.
+     *
+     * @param archiveName Archive name in the repository
+     * @return Names of the rules added, sorted
+     * @throws EngineRuleException Error reading the archive or creating its rules
+     */
+    public List<String> addRules(final String archiveName) throws EngineRuleException {
+        try (InputStream archive = this.getRuleRepository().openArchive(archiveName)) {
+            return this.addArchive(archive, archiveName);
+        } catch (IOException e) {
+            throw new EngineRuleException(e);
+        }
+    }
+
+    /**
+     * Add all the rules of an archive (jar or zip), replacing those with the same name. The archive is read in a
+     * single pass, its classes get defined by a parallel capable loader and the rules instantiated concurrently on
+     * the parallel executor pool. The rules of the target class are the concrete {@link BusinessRule} classes
+     * annotated, or with a parent annotated, with {@link Rule} of the target type; other classes are only defined.
+     * The rule set is published once, and an archive with errors changes nothing.
+     *
+     * @param archive Archive stream, read to the end and not closed
+     * @return Names of the rules added, sorted
+     * @throws EngineRuleException Error reading the archive or creating its rules
+     */
+    public List<String> addRules(final InputStream archive) throws EngineRuleException {
+        return this.addArchive(archive, "archive");
+    }
+
+    private List<String> addArchive(final InputStream archive, final String source) throws EngineRuleException {
+        RuleArchive classes;
+        try {
+            classes = RuleArchive.read(archive);
+        } catch (IOException e) {
+            throw new EngineRuleException(e);
+        }
+        // A generation per archive, so the rules of an archive can be loaded again in a newer version.
+        RepositoryClassLoader classLoader = this.classLoaders.open(source, classes,
+                Thread.currentThread().getContextClassLoader());
+        try {
+            return this.addArchiveRules(classes, classLoader);
+        } finally {
+            // Every class is defined by now: the loader no longer needs the bytes.
+            classes.release();
+            StreamRuleManager.retireIfPending(classLoader);
+        }
+    }
+
+    private List<String> addArchiveRules(final RuleArchive classes, final RepositoryClassLoader classLoader)
+            throws EngineRuleException {
+        List<BusinessRule<P>> loaded;
+        try {
+            // The parallel stream runs on the pool it is submitted to, not on the common pool.
+            loaded = this.parallelExecutor.getPool()
+                .submit(() -> classes.getClassNames().parallelStream()
+                    .map(className -> this.instantiateRule(classLoader, className))
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList()))
+                .get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EngineRuleException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw new EngineRuleException(cause instanceof IllegalStateException && cause.getCause() != null
+                ? cause.getCause() : cause);
+        }
+
+        if (!loaded.isEmpty()) {
+            synchronized (this.reloadLock) {
+                Map<String, BusinessRule<P>> rules = this.copyRules();
+                for (BusinessRule<P> rule : loaded) {
+                    rules.put(rule.getName(), rule);
+                }
+                classLoader.getGeneration().activate();
+                this.publish(rules);
+            }
+        }
+        return loaded.stream().map(BusinessRule::getName).sorted().collect(Collectors.toList());
+    }
+
+    /**
+     * Define a class of an archive and, if it is a rule of the target class, create the rule.
+     *
+     * @return Rule, null if the class is not a rule of the target class
+     * @throws IllegalStateException Error defining the class or creating the rule, as cause
+     */
+    @SuppressWarnings("unchecked")
+    private BusinessRule<P> instantiateRule(final ClassLoader classLoader, final String className) {
+        try {
+            Class<?> ruleClass = classLoader.loadClass(className);
+            if (!BusinessRule.class.isAssignableFrom(ruleClass) || Modifier.isAbstract(ruleClass.getModifiers())) {
+                return null;
+            }
+            // Rule is not inherited: a subclass of an annotated rule is a rule of the same type. Looked up by hand,
+            // as the annotation caches would keep the class from being unloaded.
+            Rule ruleAnnotation = null;
+            for (Class<?> current = ruleClass; current != null && ruleAnnotation == null;
+                    current = current.getSuperclass()) {
+                ruleAnnotation = current.getAnnotation(Rule.class);
+            }
+            if (ruleAnnotation == null || ruleAnnotation.type() != this.getTargetClass()) {
+                return null;
+            }
+            return (BusinessRule<P>) ruleClass.newInstance();
+        } catch (ClassNotFoundException | InstantiationException | IllegalAccessException | LinkageError e) {
+            throw new IllegalStateException(e);
         }
     }
 
     @Override
     public void clearRules() {
-        this.getRules().clear();
-        this.getRulesComposite().clear();
+        synchronized (this.reloadLock) {
+            this.criterionRuleFactory.clearRules(this.getTargetClass());
+            this.compiledOrder.clear();
+            this.setSnapshot(RuleSetSnapshot.<P> empty(++this.lastVersion));
+        }
     }
 
     @Override
     public void activateRule(final String ruleCollection, final String ruleName, final boolean active) {
-        if (this.getRules().containsKey(ruleName)) {
-            this.getRules().get(ruleName).setEnabled(active);
-            this.criterionRuleFactory.clearRules();
-            this.loadRules(null);
-        }
+        this.changeRule(ruleName, p -> p.setEnabled(active));
     }
 
     @Override
     public void updateRulePriority(final String ruleCollection, final String ruleName, final int priority) {
-        if (this.getRules().containsKey(ruleName)) {
-            this.getRules().get(ruleName).setPriority(priority);
-            this.criterionRuleFactory.clearRules();
-            this.loadRules(null);
-        }
+        this.changeRule(ruleName, p -> p.setPriority(priority));
     }
 
     @Override
     public void updateRule(final String ruleCollection, final String ruleName, final Map<String, Object> parameters) {
-        if (this.getRules().containsKey(ruleName)) {
-            this.getRules().get(ruleName).updateParameters(parameters);
-        }
+        // Values read at compile time, like thresholds, need the chain compiled again.
+        this.changeRule(ruleName, p -> p.updateParameters(parameters));
     }
 
-    private Object loadRuleFromS3(final String ruleName) throws EngineRuleException {
+    /**
+     * Change a rule and publish it. The change is made on a copy of the rule, which replaces it in the new snapshot,
+     * so the rules of the published snapshot never change.
+     *
+     * @param ruleName Rule name
+     * @param change Change of the rule
+     */
+    private void changeRule(final String ruleName, final Consumer<BusinessRule<P>> change) {
+        synchronized (this.reloadLock) {
+            Map<String, BusinessRule<P>> rules = this.copyRules();
+            BusinessRule<P> rule = rules.get(ruleName);
+            if (rule != null) {
+                BusinessRule<P> changed = rule.copy();
+                change.accept(changed);
+                rules.put(ruleName, changed);
+                this.publishChange(rules, rule, changed);
+                BundledRule<P> bundled = this.bundledRules.get(ruleName);
+                if (bundled != null && bundled.rule == rule) {
+                    Map<String, BundledRule<P>> loaded = new HashMap<>(this.bundledRules);
+                    loaded.put(ruleName, new BundledRule<>(changed, bundled.hash, bundled.parameters));
+                    this.bundledRules = loaded;
+                }
+            }
+        }
+    }
 
-        ClassLoader classLoaderCurrent = Thread.currentThread().getContextClassLoader();
-        ClassLoader classLoader = new S3ClassLoader(StreamRuleManager.TEST_BUCKET_NAME,
-                Region.getRegion(Regions.EU_WEST_1), classLoaderCurrent);
+    private Object loadRuleFromRepository(final ClassLoader classLoader, final String ruleName)
+            throws EngineRuleException {
 
         // Obtener la clase
         Class<?> ruleClass = null;
@@ -265,8 +1106,75 @@ public abstract class StreamRuleManager<P> implements RuleManager<P> {
 
     }
 
+    /**
+     * Repository of the rule classes added with {@link #addRule(String, String)}, and of the archives added with
+     * {@link #addRules(String)}. By default the S3 bucket of the
+     * engine, without local cache.
+     *
+     * @return Rule repository
+     */
+    public RuleRepository getRuleRepository() {
+        RuleRepository repository = this.ruleRepository;
+        if (repository == null) {
+            synchronized (this.reloadLock) {
+                if (this.ruleRepository == null) {
+                    this.ruleRepository = new S3RuleRepository(StreamRuleManager.TEST_BUCKET_NAME,
+                            Region.getRegion(Regions.EU_WEST_1));
+                }
+                repository = this.ruleRepository;
+            }
+        }
+        return repository;
+    }
+
+    /**
+     * Set the repository of the rule classes, e.g. a {@link org.sbol.projects.engine.repository.CachingRuleRepository}
+     * in front of S3.
+     *
+     * @param ruleRepository Rule repository
+     */
+    public void setRuleRepository(final RuleRepository ruleRepository) {
+        this.ruleRepository = ruleRepository;
+    }
+
+    /**
+     * Generations of the class loaders of the rules added from the repository or from archives.
+     *
+     * @return Class loader generations
+     */
+    public RuleClassLoaders getClassLoaders() {
+        return this.classLoaders;
+    }
+
+    /**
+     * Factory composing the rules of this manager. It can be configured before the rules get loaded.
+     *
+     * @return Rule factory
+     */
+    public CriterionRuleFactory<P> getCriterionRuleFactory() {
+        return this.criterionRuleFactory;
+    }
+
     protected ApplicationContext getContext() {
         return this.context;
     }
 
+    /**
+     * Rule loaded from a bundle, with the hash of its definition and the parameters it was compiled with.
+     */
+    private static final class BundledRule<P> {
+
+        private final BusinessRule<P> rule;
+
+        private final long hash;
+
+        private final Map<String, Object> parameters;
+
+        BundledRule(final BusinessRule<P> rule, final long hash, final Map<String, Object> parameters) {
+            this.rule = rule;
+            this.hash = hash;
+            this.parameters = parameters;
+        }
+    }
+
 }
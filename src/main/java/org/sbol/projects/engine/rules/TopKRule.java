@@ -0,0 +1,101 @@
+package org.sbol.projects.engine.rules;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.Stream;
+
+/**
+ * Partial sort rule. Only the first items of the order are kept, using a bounded heap instead of sorting the whole
+ * input: O(n log k) time and O(k) memory for k = offset + limit.
+ * Ties keep the input order, so the page is the same one a stable full sort would give.
+ *
+ * @author david.ralluy
+ * @param <T>
+ *            Rule type
+ *
+ */
+public class TopKRule<T> implements StreamRule<T> {
+
+    private final Comparator<T> comparator;
+
+    private final int offset;
+
+    private final int limit;
+
+    /**
+     * Constructor.
+     *
+     * @param comparator Order of the items
+     * @param offset First item of the page
+     * @param limit Page size
+     */
+    public TopKRule(final Comparator<T> comparator, final int offset, final int limit) {
+        this.comparator = comparator;
+        this.offset = offset;
+        this.limit = limit;
+    }
+
+    @Override
+    public Stream<T> apply(final Stream<T> stream) {
+        int size = (int) Math.min((long) this.offset + this.limit, Integer.MAX_VALUE);
+        if (size == 0) {
+            return Stream.empty();
+        }
+
+        Comparator<Ranked<T>> order = (r1, r2) -> {
+            int result = this.comparator.compare(r1.item, r2.item);
+            return result != 0 ? result : Long.compare(r1.index, r2.index);
+        };
+        // Max heap: the worst item of the page is on top, ready to be replaced.
+        PriorityQueue<Ranked<T>> heap = new PriorityQueue<>(Math.min(size, 1024), order.reversed());
+
+        long index = 0;
+        Iterator<T> items = stream.iterator();
+        while (items.hasNext()) {
+            Ranked<T> ranked = new Ranked<>(items.next(), index++);
+            if (heap.size() < size) {
+                heap.add(ranked);
+            } else if (order.compare(ranked, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(ranked);
+            }
+        }
+
+        List<Ranked<T>> page = new ArrayList<>(heap);
+        page.sort(order);
+        return page.stream().skip(this.offset).map(r -> r.item);
+    }
+
+    @Override
+    public RuleKind getKind() {
+        return RuleKind.SORT;
+    }
+
+    /**
+     * Order of the items.
+     *
+     * @return Comparator
+     */
+    public Comparator<T> getComparator() {
+        return this.comparator;
+    }
+
+    /**
+     * Item with its input position, for the ties.
+     */
+    private static final class Ranked<T> {
+
+        private final T item;
+
+        private final long index;
+
+        Ranked(final T item, final long index) {
+            this.item = item;
+            this.index = index;
+        }
+    }
+
+}
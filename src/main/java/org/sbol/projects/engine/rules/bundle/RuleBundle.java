@@ -0,0 +1,334 @@
+package org.sbol.projects.engine.rules.bundle;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.sbol.projects.engine.constants.Channel;
+
+/**
+ * Rule bundle file (see {@link RuleBundleFormat}), mapped in memory. Opening a bundle only maps the file and checks
+ * its index: nothing gets copied to the heap, and every accessor reads the mapping in place, so opening a bundle of
+ * tens of thousands of rules takes as long as mapping a file. Names are looked up by binary search over the index.
+ *
+ * A bundle is immutable and can be read by any number of threads. The mapping lasts until the bundle gets
+ * collected; replacing the file doesn't change an open bundle, as the writer moves a new file into place.
+ *
+ * @author david.ralluy
+ *
+ */
+public final class RuleBundle {
+
+    private static final Channel[] CHANNELS = Channel.values();
+
+    private final Path path;
+
+    private final ByteBuffer buffer;
+
+    private final long version;
+
+    private final int count;
+
+    private final int index;
+
+    private RuleBundle(final Path path, final ByteBuffer buffer) throws IOException {
+        this.path = path;
+        this.buffer = buffer;
+        if (buffer.capacity() < RuleBundleFormat.HEADER_SIZE || buffer.getInt(0) != RuleBundleFormat.MAGIC) {
+            throw new IOException("Not a rule bundle: " + path);
+        }
+        short format = buffer.getShort(RuleBundleFormat.HEADER_FORMAT_VERSION);
+        if (format != RuleBundleFormat.FORMAT_VERSION) {
+            throw new IOException("Unsupported rule bundle format " + format + ": " + path);
+        }
+        this.version = buffer.getLong(RuleBundleFormat.HEADER_BUNDLE_VERSION);
+        this.count = buffer.getInt(RuleBundleFormat.HEADER_COUNT);
+        this.index = buffer.getInt(RuleBundleFormat.HEADER_INDEX);
+        if (this.count < 0 || this.index < RuleBundleFormat.HEADER_SIZE
+                || (long) this.index + (long) this.count * RuleBundleFormat.ENTRY_SIZE > buffer.capacity()) {
+            throw new IOException("Corrupted rule bundle index: " + path);
+        }
+        for (int i = 0; i < this.count; i++) {
+            int entry = this.entry(i);
+            if (!this.inBounds(buffer.getInt(entry + RuleBundleFormat.ENTRY_NAME_OFFSET),
+                    buffer.getInt(entry + RuleBundleFormat.ENTRY_NAME_LENGTH))
+                    || !this.inBounds(buffer.getInt(entry + RuleBundleFormat.ENTRY_RECORD_OFFSET),
+                            buffer.getInt(entry + RuleBundleFormat.ENTRY_RECORD_LENGTH))
+                    || (buffer.get(entry + RuleBundleFormat.ENTRY_CHANNEL) & 0xff) >= RuleBundle.CHANNELS.length) {
+                throw new IOException("Corrupted rule bundle entry " + i + ": " + path);
+            }
+        }
+    }
+
+    /**
+     * Map a bundle file.
+     *
+     * @param path File
+     * @return Bundle
+     * @throws IOException Error reading the file, or not a valid bundle
+     */
+    public static RuleBundle open(final Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Rule bundle too large: " + path);
+            }
+            // The mapping outlives the channel.
+            return new RuleBundle(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Bundle version, as given to the writer.
+     *
+     * @return Version
+     */
+    public long getVersion() {
+        return this.version;
+    }
+
+    /**
+     * Bundle file.
+     *
+     * @return Path
+     */
+    public Path getPath() {
+        return this.path;
+    }
+
+    /**
+     * Number of rules.
+     *
+     * @return Rules
+     */
+    public int size() {
+        return this.count;
+    }
+
+    /**
+     * Position of a rule, by name.
+     *
+     * @param name Rule name
+     * @return Position, -1 if the bundle has no such rule
+     */
+    public int indexOf(final String name) {
+        byte[] key = name.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = this.count - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int entry = this.entry(middle);
+            int result = this.compareName(this.buffer.getInt(entry + RuleBundleFormat.ENTRY_NAME_OFFSET),
+                    this.buffer.getInt(entry + RuleBundleFormat.ENTRY_NAME_LENGTH), key);
+            if (result < 0) {
+                low = middle + 1;
+            } else if (result > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Name of a rule.
+     *
+     * @param rule Position
+     * @return Name
+     */
+    public String getName(final int rule) {
+        int entry = this.entry(rule);
+        return this.string(this.buffer.getInt(entry + RuleBundleFormat.ENTRY_NAME_OFFSET),
+                this.buffer.getInt(entry + RuleBundleFormat.ENTRY_NAME_LENGTH));
+    }
+
+    /**
+     * Priority of a rule.
+     *
+     * @param rule Position
+     * @return Priority
+     */
+    public int getPriority(final int rule) {
+        return this.buffer.getInt(this.entry(rule) + RuleBundleFormat.ENTRY_PRIORITY);
+    }
+
+    /**
+     * Channel of a rule.
+     *
+     * @param rule Position
+     * @return Channel
+     */
+    public Channel getChannel(final int rule) {
+        return RuleBundle.CHANNELS[this.buffer.get(this.entry(rule) + RuleBundleFormat.ENTRY_CHANNEL) & 0xff];
+    }
+
+    /**
+     * Activation of a rule.
+     *
+     * @param rule Position
+     * @return Enabled S/N
+     */
+    public boolean isEnabled(final int rule) {
+        return (this.buffer.get(this.entry(rule) + RuleBundleFormat.ENTRY_FLAGS) & RuleBundleFormat.FLAG_ENABLED) != 0;
+    }
+
+    /**
+     * Indicates if a rule is a commutative filter.
+     *
+     * @param rule Position
+     * @return Commutative S/N
+     */
+    public boolean isCommutative(final int rule) {
+        return (this.buffer.get(this.entry(rule) + RuleBundleFormat.ENTRY_FLAGS)
+                & RuleBundleFormat.FLAG_COMMUTATIVE) != 0;
+    }
+
+    /**
+     * Hash of the definition of a rule, its source and parameters. Equal hashes mean, in practice, the same
+     * definition, so a reload can keep the rules already compiled.
+     *
+     * @param rule Position
+     * @return Hash
+     */
+    public long getHash(final int rule) {
+        return this.buffer.getLong(this.entry(rule) + RuleBundleFormat.ENTRY_HASH);
+    }
+
+    /**
+     * Parameter values of a rule.
+     *
+     * @param rule Position
+     * @return Values by name, in the written order
+     * @throws IllegalStateException Corrupted record
+     */
+    public Map<String, Object> getParameters(final int rule) {
+        int position = this.buffer.getInt(this.entry(rule) + RuleBundleFormat.ENTRY_RECORD_OFFSET);
+        int parameters = this.buffer.getShort(position) & 0xffff;
+        position += 2;
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (int i = 0; i < parameters; i++) {
+            int nameLength = this.buffer.getShort(position) & 0xffff;
+            String name = this.string(position + 2, nameLength);
+            position += 2 + nameLength;
+            byte type = this.buffer.get(position++);
+            switch (type) {
+                case RuleBundleFormat.TYPE_NULL:
+                    values.put(name, null);
+                    break;
+                case RuleBundleFormat.TYPE_INT:
+                    values.put(name, Integer.valueOf(this.buffer.getInt(position)));
+                    position += Integer.BYTES;
+                    break;
+                case RuleBundleFormat.TYPE_LONG:
+                    values.put(name, Long.valueOf(this.buffer.getLong(position)));
+                    position += Long.BYTES;
+                    break;
+                case RuleBundleFormat.TYPE_DOUBLE:
+                    values.put(name, Double.valueOf(this.buffer.getDouble(position)));
+                    position += Double.BYTES;
+                    break;
+                case RuleBundleFormat.TYPE_BOOLEAN:
+                    values.put(name, Boolean.valueOf(this.buffer.get(position) != 0));
+                    position++;
+                    break;
+                case RuleBundleFormat.TYPE_STRING:
+                    int length = this.buffer.getInt(position);
+                    values.put(name, this.string(position + Integer.BYTES, length));
+                    position += Integer.BYTES + length;
+                    break;
+                default:
+                    throw new IllegalStateException("Corrupted parameter " + name + " of rule " + this.getName(rule));
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Source of a rule in the rules language.
+     *
+     * @param rule Position
+     * @return Source
+     */
+    public String getSource(final int rule) {
+        int position = this.buffer.getInt(this.entry(rule) + RuleBundleFormat.ENTRY_RECORD_OFFSET);
+        int parameters = this.buffer.getShort(position) & 0xffff;
+        position += 2;
+        for (int i = 0; i < parameters; i++) {
+            position += 2 + (this.buffer.getShort(position) & 0xffff);
+            byte type = this.buffer.get(position++);
+            switch (type) {
+                case RuleBundleFormat.TYPE_INT:
+                    position += Integer.BYTES;
+                    break;
+                case RuleBundleFormat.TYPE_LONG:
+                    position += Long.BYTES;
+                    break;
+                case RuleBundleFormat.TYPE_DOUBLE:
+                    position += Double.BYTES;
+                    break;
+                case RuleBundleFormat.TYPE_BOOLEAN:
+                    position++;
+                    break;
+                case RuleBundleFormat.TYPE_STRING:
+                    position += Integer.BYTES + this.buffer.getInt(position);
+                    break;
+                default:
+                    break;
+            }
+        }
+        return this.string(position + Integer.BYTES, this.buffer.getInt(position));
+    }
+
+    /**
+     * Unsigned lexicographic order of UTF-8 bytes, the order of the index.
+     *
+     * @param first First name
+     * @param second Second name
+     * @return Comparison
+     */
+    static int compare(final byte[] first, final byte[] second) {
+        int length = Math.min(first.length, second.length);
+        for (int i = 0; i < length; i++) {
+            int result = (first[i] & 0xff) - (second[i] & 0xff);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return first.length - second.length;
+    }
+
+    private int compareName(final int offset, final int length, final byte[] key) {
+        int common = Math.min(length, key.length);
+        for (int i = 0; i < common; i++) {
+            int result = (this.buffer.get(offset + i) & 0xff) - (key[i] & 0xff);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return length - key.length;
+    }
+
+    private int entry(final int rule) {
+        if (rule < 0 || rule >= this.count) {
+            throw new IndexOutOfBoundsException("Rule " + rule + " of " + this.count);
+        }
+        return this.index + rule * RuleBundleFormat.ENTRY_SIZE;
+    }
+
+    private boolean inBounds(final int offset, final int length) {
+        return offset >= 0 && length >= 0 && (long) offset + length <= this.buffer.capacity();
+    }
+
+    private String string(final int offset, final int length) {
+        ByteBuffer bytes = this.buffer.duplicate();
+        bytes.position(offset);
+        bytes.limit(offset + length);
+        return StandardCharsets.UTF_8.decode(bytes).toString();
+    }
+
+}
@@ -0,0 +1,115 @@
+package org.sbol.projects.engine.rules.bundle;
+
+/**
+ * Layout of a rule bundle file, big endian:
+ *
+ * <pre>
+ * Header (32 bytes)
+ *   0  int   magic "RBND"
+ *   4  short format version
+ *   6  short reserved
+ *   8  long  bundle version
+ *   16 int   number of rules
+ *   20 int   index offset
+ *   24 int   data offset
+ *   28 int   reserved
+ * Index, an entry of 32 bytes per rule, sorted by the UTF-8 bytes of the name
+ *   0  int   name offset
+ *   4  int   name length
+ *   8  int   record offset
+ *   12 int   record length
+ *   16 int   priority
+ *   20 byte  channel ordinal
+ *   21 byte  flags: 1 enabled, 2 commutative
+ *   22 short reserved
+ *   24 long  FNV-1a hash of the record
+ * Data: name and record of every rule
+ *   record: short parameter count, parameters (short name length, name, byte type, value), int source length,
+ *   source of the rule in the rules language
+ * </pre>
+ *
+ * The index has fixed size entries, so a rule is found without reading the others, and the metadata is read in
+ * place. The format version changes with the layout, and with the constants of {@link
+ * org.sbol.projects.engine.constants.Channel}.
+ *
+ * @author david.ralluy
+ *
+ */
+final class RuleBundleFormat {
+
+    static final int MAGIC = 0x52424E44;
+
+    static final short FORMAT_VERSION = 1;
+
+    static final int HEADER_SIZE = 32;
+
+    static final int ENTRY_SIZE = 32;
+
+    static final int HEADER_FORMAT_VERSION = 4;
+
+    static final int HEADER_BUNDLE_VERSION = 8;
+
+    static final int HEADER_COUNT = 16;
+
+    static final int HEADER_INDEX = 20;
+
+    static final int HEADER_DATA = 24;
+
+    static final int ENTRY_NAME_OFFSET = 0;
+
+    static final int ENTRY_NAME_LENGTH = 4;
+
+    static final int ENTRY_RECORD_OFFSET = 8;
+
+    static final int ENTRY_RECORD_LENGTH = 12;
+
+    static final int ENTRY_PRIORITY = 16;
+
+    static final int ENTRY_CHANNEL = 20;
+
+    static final int ENTRY_FLAGS = 21;
+
+    static final int ENTRY_HASH = 24;
+
+    static final byte FLAG_ENABLED = 1;
+
+    static final byte FLAG_COMMUTATIVE = 2;
+
+    static final byte TYPE_NULL = 'N';
+
+    static final byte TYPE_INT = 'I';
+
+    static final byte TYPE_LONG = 'J';
+
+    static final byte TYPE_DOUBLE = 'D';
+
+    static final byte TYPE_BOOLEAN = 'Z';
+
+    static final byte TYPE_STRING = 'S';
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private RuleBundleFormat() {
+        // Constants
+    }
+
+    /**
+     * FNV-1a hash of a range of bytes.
+     *
+     * @param bytes Bytes
+     * @param offset First byte
+     * @param length Number of bytes
+     * @return Hash
+     */
+    static long hash(final byte[] bytes, final int offset, final int length) {
+        long hash = RuleBundleFormat.FNV_OFFSET;
+        for (int i = offset; i < offset + length; i++) {
+            hash ^= bytes[i] & 0xff;
+            hash *= RuleBundleFormat.FNV_PRIME;
+        }
+        return hash;
+    }
+
+}
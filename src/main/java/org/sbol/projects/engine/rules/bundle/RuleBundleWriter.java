@@ -0,0 +1,219 @@
+package org.sbol.projects.engine.rules.bundle;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.sbol.projects.engine.constants.Channel;
+
+/**
+ * Writer of rule bundle files (see {@link RuleBundleFormat}). The file is written aside and moved into place, so a
+ * reader never maps a half written bundle.
+ *
+ * @author david.ralluy
+ *
+ */
+public class RuleBundleWriter {
+
+    private final long version;
+
+    private final List<Entry> entries = new ArrayList<>();
+
+    private final Set<String> names = new HashSet<>();
+
+    /**
+     * Constructor.
+     *
+     * @param version Bundle version
+     */
+    public RuleBundleWriter(final long version) {
+        this.version = version;
+    }
+
+    /**
+     * Add a rule.
+     *
+     * @param name Rule name, as declared in the source
+     * @param priority Priority
+     * @param channel Channel
+     * @param enabled Activation
+     * @param commutative Commutative filter S/N
+     * @param parameters Parameter values, over the defaults of the source; ints, longs, doubles, booleans, strings
+     *            or nulls
+     * @param source Source of the rule in the rules language
+     * @return this
+     */
+    public RuleBundleWriter add(final String name, final int priority, final Channel channel, final boolean enabled,
+            final boolean commutative, final Map<String, Object> parameters, final String source) {
+        if (!this.names.add(name)) {
+            throw new IllegalArgumentException("Duplicated rule " + name);
+        }
+        Map<String, Object> values = parameters == null ? Collections.<String, Object> emptyMap()
+            : new LinkedHashMap<>(parameters);
+        this.entries.add(new Entry(name.getBytes(StandardCharsets.UTF_8), priority, channel, enabled, commutative,
+                RuleBundleWriter.record(values, source)));
+        return this;
+    }
+
+    /**
+     * Number of rules added.
+     *
+     * @return Rules
+     */
+    public int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * Write the bundle.
+     *
+     * @param path File
+     * @throws IOException Error writing the file
+     */
+    public void write(final Path path) throws IOException {
+        List<Entry> sorted = new ArrayList<>(this.entries);
+        sorted.sort((p1, p2) -> RuleBundle.compare(p1.name, p2.name));
+
+        long dataOffset = RuleBundleFormat.HEADER_SIZE + (long) RuleBundleFormat.ENTRY_SIZE * sorted.size();
+        long size = dataOffset;
+        for (Entry entry : sorted) {
+            size += entry.name.length + entry.record.length;
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Bundle too large: " + size + " bytes");
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream((int) size);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(RuleBundleFormat.MAGIC);
+        out.writeShort(RuleBundleFormat.FORMAT_VERSION);
+        out.writeShort(0);
+        out.writeLong(this.version);
+        out.writeInt(sorted.size());
+        out.writeInt(RuleBundleFormat.HEADER_SIZE);
+        out.writeInt((int) dataOffset);
+        out.writeInt(0);
+
+        int offset = (int) dataOffset;
+        for (Entry entry : sorted) {
+            out.writeInt(offset);
+            out.writeInt(entry.name.length);
+            out.writeInt(offset + entry.name.length);
+            out.writeInt(entry.record.length);
+            out.writeInt(entry.priority);
+            out.writeByte(entry.channel.ordinal());
+            out.writeByte((entry.enabled ? RuleBundleFormat.FLAG_ENABLED : 0)
+                    | (entry.commutative ? RuleBundleFormat.FLAG_COMMUTATIVE : 0));
+            out.writeShort(0);
+            out.writeLong(RuleBundleFormat.hash(entry.record, 0, entry.record.length));
+            offset += entry.name.length + entry.record.length;
+        }
+        for (Entry entry : sorted) {
+            out.write(entry.name);
+            out.write(entry.record);
+        }
+        out.flush();
+
+        Path absolute = path.toAbsolutePath();
+        Path temporary = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temporary, bytes.toByteArray());
+            try {
+                Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private static byte[] record(final Map<String, Object> parameters, final String source) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeShort(parameters.size());
+            for (Map.Entry<String, Object> parameter : parameters.entrySet()) {
+                byte[] name = parameter.getKey().getBytes(StandardCharsets.UTF_8);
+                out.writeShort(name.length);
+                out.write(name);
+                RuleBundleWriter.value(out, parameter.getKey(), parameter.getValue());
+            }
+            byte[] text = source.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(text.length);
+            out.write(text);
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            // No I/O on a byte array
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void value(final DataOutputStream out, final String name, final Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(RuleBundleFormat.TYPE_NULL);
+        } else if (value instanceof Integer) {
+            out.writeByte(RuleBundleFormat.TYPE_INT);
+            out.writeInt(((Integer) value).intValue());
+        } else if (value instanceof Long) {
+            out.writeByte(RuleBundleFormat.TYPE_LONG);
+            out.writeLong(((Long) value).longValue());
+        } else if (value instanceof Double) {
+            out.writeByte(RuleBundleFormat.TYPE_DOUBLE);
+            out.writeDouble(((Double) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            out.writeByte(RuleBundleFormat.TYPE_BOOLEAN);
+            out.writeBoolean(((Boolean) value).booleanValue());
+        } else if (value instanceof String) {
+            byte[] text = ((String) value).getBytes(StandardCharsets.UTF_8);
+            out.writeByte(RuleBundleFormat.TYPE_STRING);
+            out.writeInt(text.length);
+            out.write(text);
+        } else {
+            throw new IllegalArgumentException("Unsupported type of parameter " + name + ": " + value.getClass());
+        }
+    }
+
+    /**
+     * Rule to write.
+     */
+    private static final class Entry {
+
+        private final byte[] name;
+
+        private final int priority;
+
+        private final Channel channel;
+
+        private final boolean enabled;
+
+        private final boolean commutative;
+
+        private final byte[] record;
+
+        Entry(final byte[] name, final int priority, final Channel channel, final boolean enabled,
+                final boolean commutative, final byte[] record) {
+            this.name = name;
+            this.priority = priority;
+            this.channel = channel;
+            this.enabled = enabled;
+            this.commutative = commutative;
+            this.record = record;
+        }
+    }
+
+}
@@ -0,0 +1,121 @@
+package org.sbol.projects.engine.rules.columnar;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * Columns projected from the items of a type: primitive int attributes, and attributes of any type encoded by a
+ * dictionary as int codes.
+ *
+ * @author david.ralluy
+ *
+ * @param <T> Item type
+ */
+public final class ColumnSchema<T> {
+
+    private final Map<String, IntColumn<T>> intColumns = new LinkedHashMap<>();
+
+    private final Map<String, Function<T, ?>> dictionaryColumns = new LinkedHashMap<>();
+
+    /**
+     * Int column, read only.
+     *
+     * @param name Column name
+     * @param getter Attribute getter
+     * @return this
+     */
+    public ColumnSchema<T> intColumn(final String name, final ToIntFunction<T> getter) {
+        return this.intColumn(name, getter, null);
+    }
+
+    /**
+     * Int column. Updated values are written back to the items with the setter.
+     *
+     * @param name Column name
+     * @param getter Attribute getter
+     * @param setter Attribute setter, null for a read only column
+     * @return this
+     */
+    public ColumnSchema<T> intColumn(final String name, final ToIntFunction<T> getter, final ObjIntConsumer<T> setter) {
+        this.intColumns.put(name, new IntColumn<>(getter, setter));
+        return this;
+    }
+
+    /**
+     * Dictionary encoded column, read only.
+     *
+     * @param name Column name
+     * @param getter Attribute getter
+     * @return this
+     */
+    public ColumnSchema<T> dictionaryColumn(final String name, final Function<T, ?> getter) {
+        this.dictionaryColumns.put(name, getter);
+        return this;
+    }
+
+    /**
+     * Projection of the items into columns.
+     *
+     * @param items Items
+     * @return Batch
+     */
+    public ColumnarBatch<T> project(final List<T> items) {
+        int size = items.size();
+        Map<String, int[]> ints = new LinkedHashMap<>();
+        for (Map.Entry<String, IntColumn<T>> column : this.intColumns.entrySet()) {
+            ToIntFunction<T> getter = column.getValue().getter;
+            int[] values = new int[size];
+            for (int i = 0; i < size; i++) {
+                values[i] = getter.applyAsInt(items.get(i));
+            }
+            ints.put(column.getKey(), values);
+        }
+        Map<String, Dictionary> dictionaries = new LinkedHashMap<>();
+        for (Map.Entry<String, Function<T, ?>> column : this.dictionaryColumns.entrySet()) {
+            dictionaries.put(column.getKey(), Dictionary.encode(items, column.getValue()));
+        }
+        return new ColumnarBatch<>(this, items, ints, dictionaries);
+    }
+
+    /**
+     * Indicates if an int column can be written back to the items.
+     *
+     * @param name Column name
+     * @return Writable S/N, not for unknown or read only columns
+     */
+    boolean isWritable(final String name) {
+        IntColumn<T> column = this.intColumns.get(name);
+        return column != null && column.setter != null;
+    }
+
+    /**
+     * Write a value of a writable int column back to an item.
+     *
+     * @param name Column name
+     * @param item Item
+     * @param value Value
+     */
+    void write(final String name, final T item, final int value) {
+        this.intColumns.get(name).setter.accept(item, value);
+    }
+
+    /**
+     * Int column definition.
+     */
+    private static final class IntColumn<T> {
+
+        private final ToIntFunction<T> getter;
+
+        private final ObjIntConsumer<T> setter;
+
+        IntColumn(final ToIntFunction<T> getter, final ObjIntConsumer<T> setter) {
+            this.getter = getter;
+            this.setter = setter;
+        }
+    }
+
+}
@@ -0,0 +1,210 @@
+package org.sbol.projects.engine.rules.columnar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Batch of items projected into columns, with a selection vector: the indexes of the items still selected, in order.
+ * Rules over columns narrow the selection or update the columns of the selected items. As with the equivalent row
+ * rules, an update reaches every item selected when it runs, even if a later rule deselects it: the updates are
+ * written back to the items selected at the first update of every column.
+ *
+ * @author david.ralluy
+ *
+ * @param <T> Item type
+ */
+public final class ColumnarBatch<T> {
+
+    private final ColumnSchema<T> schema;
+
+    private final List<T> items;
+
+    private final Map<String, int[]> intColumns;
+
+    private final Map<String, Dictionary> dictionaries;
+
+    // Items selected at the first update of every column.
+    private final Map<String, int[]> updated = new HashMap<>();
+
+    private final int[] selection;
+
+    private int selected;
+
+    /**
+     * Constructor, with all the items selected.
+     *
+     * @param schema Columns definition
+     * @param items Items
+     * @param intColumns Int columns by name
+     * @param dictionaries Dictionary encoded columns by name
+     */
+    ColumnarBatch(final ColumnSchema<T> schema, final List<T> items, final Map<String, int[]> intColumns,
+            final Map<String, Dictionary> dictionaries) {
+        this.schema = schema;
+        this.items = items;
+        this.intColumns = intColumns;
+        this.dictionaries = dictionaries;
+        this.selection = new int[items.size()];
+        for (int i = 0; i < this.selection.length; i++) {
+            this.selection[i] = i;
+        }
+        this.selected = this.selection.length;
+    }
+
+    /**
+     * Number of items of the batch, selected or not.
+     *
+     * @return Size
+     */
+    public int size() {
+        return this.items.size();
+    }
+
+    /**
+     * Values of an int column, by item index.
+     *
+     * @param name Column name
+     * @return Values
+     */
+    public int[] getIntColumn(final String name) {
+        int[] column = this.intColumns.get(name);
+        if (column == null) {
+            throw new IllegalArgumentException("Unknown int column: " + name);
+        }
+        return column;
+    }
+
+    /**
+     * Dictionary codes of a column, by item index.
+     *
+     * @param name Column name
+     * @return Codes
+     */
+    public int[] getCodes(final String name) {
+        return this.dictionary(name).getCodes();
+    }
+
+    /**
+     * Number of distinct values of a dictionary encoded column.
+     *
+     * @param name Column name
+     * @return Dictionary size
+     */
+    public int getDictionarySize(final String name) {
+        return this.dictionary(name).size();
+    }
+
+    /**
+     * Code of a value in a dictionary encoded column.
+     *
+     * @param name Column name
+     * @param value Value
+     * @return Code, -1 if no item has the value
+     */
+    public int encode(final String name, final Object value) {
+        return this.dictionary(name).code(value);
+    }
+
+    /**
+     * Value of a code in a dictionary encoded column.
+     *
+     * @param name Column name
+     * @param code Code
+     * @return Value
+     */
+    public Object decode(final String name, final int code) {
+        return this.dictionary(name).value(code);
+    }
+
+    private Dictionary dictionary(final String name) {
+        Dictionary dictionary = this.dictionaries.get(name);
+        if (dictionary == null) {
+            throw new IllegalArgumentException("Unknown dictionary column: " + name);
+        }
+        return dictionary;
+    }
+
+    /**
+     * Selection vector: the first {@link #getSelected()} positions hold the indexes of the selected items, in order.
+     * Rules narrowing the selection compact it in place.
+     *
+     * @return Selection vector
+     */
+    public int[] getSelection() {
+        return this.selection;
+    }
+
+    /**
+     * Number of selected items.
+     *
+     * @return Selected items
+     */
+    public int getSelected() {
+        return this.selected;
+    }
+
+    /**
+     * Set the number of selected items, after compacting the selection vector.
+     *
+     * @param selected Selected items
+     */
+    public void setSelected(final int selected) {
+        if (selected < 0 || selected > this.selected) {
+            throw new IllegalArgumentException("Invalid selection: " + selected);
+        }
+        this.selected = selected;
+    }
+
+    /**
+     * Mark an int column as updated, so it gets written back to the items selected now. Rules updating a column
+     * must only update the selected items, and mark it before updating it.
+     *
+     * @param name Column name
+     * @throws IllegalArgumentException The column is unknown or read only, so the update couldn't reach the items
+     */
+    public void markUpdated(final String name) {
+        if (!this.schema.isWritable(name)) {
+            throw new IllegalArgumentException("Int column without setter: " + name);
+        }
+        this.updated.computeIfAbsent(name, p -> this.selectionVector());
+    }
+
+    /**
+     * Indexes of the selected items, in order.
+     *
+     * @return Selection vector, sized to the selected items
+     */
+    public int[] selectionVector() {
+        return Arrays.copyOf(this.selection, this.selected);
+    }
+
+    /**
+     * Write the updated columns back to the items selected when they were updated.
+     */
+    public void writeBack() {
+        for (Map.Entry<String, int[]> entry : this.updated.entrySet()) {
+            int[] column = this.intColumns.get(entry.getKey());
+            for (int i : entry.getValue()) {
+                this.schema.write(entry.getKey(), this.items.get(i), column[i]);
+            }
+        }
+        this.updated.clear();
+    }
+
+    /**
+     * Selected items, in order.
+     *
+     * @return Items
+     */
+    public List<T> selectedItems() {
+        List<T> result = new ArrayList<>(this.selected);
+        for (int k = 0; k < this.selected; k++) {
+            result.add(this.items.get(this.selection[k]));
+        }
+        return result;
+    }
+
+}
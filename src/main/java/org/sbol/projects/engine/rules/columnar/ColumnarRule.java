@@ -0,0 +1,114 @@
+package org.sbol.projects.engine.rules.columnar;
+
+import java.util.Collection;
+
+import org.sbol.projects.engine.rules.threshold.ThresholdOperator;
+
+/**
+ * Business rule over the columns of a batch. A rule narrows the selection vector or updates columns, in plain loops
+ * over primitive arrays the JIT can unroll and vectorize.
+ *
+ * @author david.ralluy
+ *
+ * @param <T> Item type
+ */
+@FunctionalInterface
+public interface ColumnarRule<T> {
+
+    /**
+     * Apply the rule to a batch.
+     *
+     * @param batch Batch
+     */
+    void apply(final ColumnarBatch<T> batch);
+
+    /**
+     * Filter keeping the selected items whose int column matches a threshold.
+     *
+     * @param column Column name
+     * @param operator Comparison
+     * @param threshold Threshold
+     * @param <T> Item type
+     * @return Rule
+     */
+    static <T> ColumnarRule<T> filter(final String column, final ThresholdOperator operator, final int threshold) {
+        IntRange range = IntRange.of(operator, threshold);
+        int min = range.getMin();
+        int max = range.getMax();
+        return batch -> {
+            int[] values = batch.getIntColumn(column);
+            int[] selection = batch.getSelection();
+            int selected = batch.getSelected();
+            int kept = 0;
+            for (int k = 0; k < selected; k++) {
+                int i = selection[k];
+                int value = values[i];
+                // Branch free compaction: the index is always written, and only counted when it matches.
+                selection[kept] = i;
+                kept += value >= min & value <= max ? 1 : 0;
+            }
+            batch.setSelected(kept);
+        };
+    }
+
+    /**
+     * Update of the int column of the selected items matching a threshold. The update is written back to all of
+     * them, even if a later filter deselects some, as a peek followed by a filter would do.
+     *
+     * @param column Column name
+     * @param operator Comparison
+     * @param threshold Threshold
+     * @param value New value
+     * @param <T> Item type
+     * @return Rule
+     */
+    static <T> ColumnarRule<T> update(final String column, final ThresholdOperator operator, final int threshold,
+            final int value) {
+        IntRange range = IntRange.of(operator, threshold);
+        int min = range.getMin();
+        int max = range.getMax();
+        return batch -> {
+            batch.markUpdated(column);
+            int[] values = batch.getIntColumn(column);
+            int[] selection = batch.getSelection();
+            // Only the selected items: a deselected item keeps the values it had when a filter dropped it.
+            for (int k = 0, selected = batch.getSelected(); k < selected; k++) {
+                int i = selection[k];
+                int current = values[i];
+                values[i] = current >= min & current <= max ? value : current;
+            }
+        };
+    }
+
+    /**
+     * Filter keeping the selected items whose dictionary encoded column takes one of the given values. The values
+     * are translated to codes once, so the loop only tests ints.
+     *
+     * @param column Column name
+     * @param values Accepted values
+     * @param <T> Item type
+     * @return Rule
+     */
+    static <T> ColumnarRule<T> filterIn(final String column, final Collection<?> values) {
+        return batch -> {
+            boolean[] accepted = new boolean[batch.getDictionarySize(column)];
+            for (Object value : values) {
+                int code = batch.encode(column, value);
+                if (code >= 0) {
+                    accepted[code] = true;
+                }
+            }
+            int[] codes = batch.getCodes(column);
+            int[] selection = batch.getSelection();
+            int selected = batch.getSelected();
+            int kept = 0;
+            for (int k = 0; k < selected; k++) {
+                int i = selection[k];
+                selection[kept] = i;
+                kept += accepted[codes[i]] ? 1 : 0;
+            }
+            batch.setSelected(kept);
+        };
+    }
+
+}
@@ -0,0 +1,93 @@
+package org.sbol.projects.engine.rules.columnar;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.sbol.projects.engine.rules.StreamRule;
+
+/**
+ * Rules executed in columnar mode: the items are projected into primitive columns, the rules run over the columns,
+ * and the updates are written back to the items they reached. The result is the selection vector, or the selected
+ * items.
+ *
+ * As a {@link StreamRule} it buffers the stream into a batch, so it can be the rule of a business rule.
+ *
+ * @author david.ralluy
+ *
+ * @param <T> Item type
+ */
+public class ColumnarRuleSet<T> implements StreamRule<T> {
+
+    private final ColumnSchema<T> schema;
+
+    private final List<ColumnarRule<T>> rules;
+
+    /**
+     * Constructor.
+     *
+     * @param schema Columns of the items
+     * @param rules Rules in execution order
+     */
+    public ColumnarRuleSet(final ColumnSchema<T> schema, final List<ColumnarRule<T>> rules) {
+        this.schema = schema;
+        this.rules = Collections.unmodifiableList(new ArrayList<>(rules));
+    }
+
+    /**
+     * Run the rules over a batch of the items, writing the updates back.
+     *
+     * @param items Items
+     * @return Batch, with the final selection
+     */
+    public ColumnarBatch<T> run(final List<T> items) {
+        ColumnarBatch<T> batch = this.schema.project(items);
+        for (int i = 0; i < this.rules.size() && batch.getSelected() > 0; i++) {
+            this.rules.get(i).apply(batch);
+        }
+        batch.writeBack();
+        return batch;
+    }
+
+    /**
+     * Indexes of the items selected by the rules.
+     *
+     * @param items Items, updated
+     * @return Selection vector
+     */
+    public int[] select(final List<T> items) {
+        return this.run(items).selectionVector();
+    }
+
+    /**
+     * Items selected by the rules.
+     *
+     * @param items Items, updated
+     * @return Selected items, in order
+     */
+    public List<T> execute(final List<T> items) {
+        return this.run(items).selectedItems();
+    }
+
+    @Override
+    public Stream<T> apply(final Stream<T> stream) {
+        return this.execute(stream.collect(Collectors.toList())).stream();
+    }
+
+    @Override
+    public boolean isBuffering() {
+        return true;
+    }
+
+    /**
+     * Rules, in execution order.
+     *
+     * @return Rules
+     */
+    public List<ColumnarRule<T>> getRules() {
+        return this.rules;
+    }
+
+}
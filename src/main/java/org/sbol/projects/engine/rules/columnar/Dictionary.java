@@ -0,0 +1,71 @@
+package org.sbol.projects.engine.rules.columnar;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Dictionary encoding of a column: every distinct value gets an int code, in order of first appearance.
+ *
+ * @author david.ralluy
+ *
+ */
+final class Dictionary {
+
+    private final int[] codes;
+
+    private final List<Object> values;
+
+    private final Map<Object, Integer> index;
+
+    private Dictionary(final int[] codes, final List<Object> values, final Map<Object, Integer> index) {
+        this.codes = codes;
+        this.values = values;
+        this.index = index;
+    }
+
+    /**
+     * Encoding of an attribute of the items.
+     *
+     * @param items Items
+     * @param getter Attribute getter
+     * @param <T> Item type
+     * @return Dictionary
+     */
+    static <T> Dictionary encode(final List<T> items, final Function<T, ?> getter) {
+        int[] codes = new int[items.size()];
+        List<Object> values = new ArrayList<>();
+        Map<Object, Integer> index = new HashMap<>();
+        for (int i = 0; i < codes.length; i++) {
+            Object value = getter.apply(items.get(i));
+            Integer code = index.get(value);
+            if (code == null) {
+                code = Integer.valueOf(values.size());
+                index.put(value, code);
+                values.add(value);
+            }
+            codes[i] = code.intValue();
+        }
+        return new Dictionary(codes, values, index);
+    }
+
+    int[] getCodes() {
+        return this.codes;
+    }
+
+    int size() {
+        return this.values.size();
+    }
+
+    int code(final Object value) {
+        Integer code = this.index.get(value);
+        return code == null ? -1 : code.intValue();
+    }
+
+    Object value(final int code) {
+        return this.values.get(code);
+    }
+
+}
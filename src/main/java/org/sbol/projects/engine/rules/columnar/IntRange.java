@@ -0,0 +1,59 @@
+package org.sbol.projects.engine.rules.columnar;
+
+import org.sbol.projects.engine.rules.threshold.ThresholdOperator;
+
+/**
+ * Threshold comparison as an inclusive range of ints, so every operator runs the same loop. An empty range has its
+ * minimum over its maximum.
+ *
+ * @author david.ralluy
+ *
+ */
+final class IntRange {
+
+    private final int min;
+
+    private final int max;
+
+    private IntRange(final int min, final int max) {
+        this.min = min;
+        this.max = max;
+    }
+
+    /**
+     * Range of the values matching a threshold.
+     *
+     * @param operator Comparison
+     * @param threshold Threshold
+     * @return Range
+     */
+    static IntRange of(final ThresholdOperator operator, final int threshold) {
+        switch (operator) {
+            case GREATER:
+                return threshold == Integer.MAX_VALUE ? IntRange.empty()
+                    : new IntRange(threshold + 1, Integer.MAX_VALUE);
+            case GREATER_OR_EQUAL:
+                return new IntRange(threshold, Integer.MAX_VALUE);
+            case LESS:
+                return threshold == Integer.MIN_VALUE ? IntRange.empty()
+                    : new IntRange(Integer.MIN_VALUE, threshold - 1);
+            case LESS_OR_EQUAL:
+                return new IntRange(Integer.MIN_VALUE, threshold);
+            default:
+                throw new IllegalArgumentException("Unknown operator: " + operator);
+        }
+    }
+
+    private static IntRange empty() {
+        return new IntRange(Integer.MAX_VALUE, Integer.MIN_VALUE);
+    }
+
+    int getMin() {
+        return this.min;
+    }
+
+    int getMax() {
+        return this.max;
+    }
+
+}
@@ -0,0 +1,64 @@
+package org.sbol.projects.engine.rules.dsl;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.sbol.projects.engine.rules.parameters.RuleParameters;
+
+/**
+ * State of the compilation of a rule: the item type, with its attributes bound once, and the current parameters.
+ *
+ * @author david.ralluy
+ *
+ * @param <T> Item type
+ */
+final class CompilationContext<T> {
+
+    private final Class<T> itemType;
+
+    private final RuleParameters parameters;
+
+    private final Map<String, Property<T>> properties = new HashMap<>();
+
+    CompilationContext(final Class<T> itemType, final RuleParameters parameters) {
+        this.itemType = itemType;
+        this.parameters = parameters;
+    }
+
+    /**
+     * Attribute of the items.
+     *
+     * @param name Attribute name
+     * @param line Line of the reference
+     * @param column Column of the reference
+     * @return Attribute
+     */
+    Property<T> property(final String name, final int line, final int column) {
+        Property<T> property = this.properties.get(name);
+        if (property == null) {
+            property = Property.resolve(this.itemType, name);
+            if (property == null) {
+                throw new RuleSyntaxException("Unknown attribute " + name + " of " + this.itemType.getSimpleName(),
+                        line, column);
+            }
+            this.properties.put(name, property);
+        }
+        return property;
+    }
+
+    /**
+     * Current value of a parameter.
+     *
+     * @param name Parameter name
+     * @param line Line of the reference
+     * @param column Column of the reference
+     * @return Value
+     */
+    Object parameter(final String name, final int line, final int column) {
+        if (this.parameters == null || !this.parameters.asMap().containsKey(name)) {
+            throw new RuleSyntaxException("Undeclared parameter $" + name, line, column);
+        }
+        return this.parameters.get(name);
+    }
+
+}
@@ -0,0 +1,65 @@
+package org.sbol.projects.engine.rules.dsl;
+
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import org.sbol.projects.engine.rules.BusinessRule;
+import org.sbol.projects.engine.rules.StreamRule;
+
+/**
+ * Business rule declared in the rules language. The rule is compiled again with every new version of its
+ * parameters, which become constants of the compiled rule.
+ *
+ * @author david.ralluy
+ *
+ * @param <T> Item type
+ */
+public class DslRule<T> extends BusinessRule<T> {
+
+    private final RuleDefinition definition;
+
+    private final Class<T> itemType;
+
+    /**
+     * Constructor.
+     *
+     * @param definition Parsed rule
+     * @param itemType Item class
+     */
+    DslRule(final RuleDefinition definition, final Class<T> itemType) {
+        this.definition = definition;
+        this.itemType = itemType;
+        this.setName(definition.getName());
+        this.setPriority(definition.getPriority());
+        this.setChannel(definition.getChannel());
+        this.setCommutative(definition.isCommutative());
+        this.define();
+    }
+
+    @Override
+    public StreamRule<T> defineRule() {
+        return this.definition.compile(new CompilationContext<>(this.itemType, this.getParameterSet()));
+    }
+
+    @Override
+    public Map<String, Object> defineParameters() {
+        return this.definition.getParameters().isEmpty() ? null : this.definition.getParameters();
+    }
+
+    /**
+     * The rule applied to a single item.
+     *
+     * @return Transformation, giving null when the rule discards the item
+     */
+    @Override
+    public Function<T, T> defineTransformation() {
+        return p -> this.getRule().apply(Stream.of(p)).findFirst().orElse(null);
+    }
+
+    @Override
+    protected T internalProcess(final T context) {
+        return this.transform(context);
+    }
+
+}
@@ -0,0 +1,216 @@
+package org.sbol.projects.engine.rules.dsl;
+
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Expression of the rules, as parsed. It gets compiled into a {@link TypedExpression} every time the rule is defined,
+ * with the parameters values of that moment.
+ *
+ * @author david.ralluy
+ *
+ */
+abstract class Expression {
+
+    private final int line;
+
+    private final int column;
+
+    Expression(final int line, final int column) {
+        this.line = line;
+        this.column = column;
+    }
+
+    int getLine() {
+        return this.line;
+    }
+
+    int getColumn() {
+        return this.column;
+    }
+
+    /**
+     * Compile the expression.
+     *
+     * @param context Compilation context
+     * @param <T> Item type
+     * @return Compiled expression
+     */
+    abstract <T> TypedExpression<T> compile(CompilationContext<T> context);
+
+    /**
+     * Type error at the expression.
+     *
+     * @param message Error description
+     * @return Exception
+     */
+    RuleSyntaxException error(final String message) {
+        return new RuleSyntaxException(message, this.line, this.column);
+    }
+
+    /**
+     * Literal value.
+     */
+    static final class Literal extends Expression {
+
+        private final Object value;
+
+        Literal(final Object value, final int line, final int column) {
+            super(line, column);
+            this.value = value;
+        }
+
+        @Override
+        <T> TypedExpression<T> compile(final CompilationContext<T> context) {
+            return TypedExpression.constant(this.value);
+        }
+    }
+
+    /**
+     * Item attribute.
+     */
+    static final class Attribute extends Expression {
+
+        private final String name;
+
+        Attribute(final String name, final int line, final int column) {
+            super(line, column);
+            this.name = name;
+        }
+
+        String getName() {
+            return this.name;
+        }
+
+        @Override
+        <T> TypedExpression<T> compile(final CompilationContext<T> context) {
+            return context.property(this.name, this.getLine(), this.getColumn()).read();
+        }
+    }
+
+    /**
+     * Rule parameter, a constant for the compiled rule.
+     */
+    static final class Parameter extends Expression {
+
+        private final String name;
+
+        Parameter(final String name, final int line, final int column) {
+            super(line, column);
+            this.name = name;
+        }
+
+        @Override
+        <T> TypedExpression<T> compile(final CompilationContext<T> context) {
+            return TypedExpression.constant(context.parameter(this.name, this.getLine(), this.getColumn()));
+        }
+    }
+
+    /**
+     * Unary operation: <code>-</code> or <code>not</code>.
+     */
+    static final class Unary extends Expression {
+
+        private final String operator;
+
+        private final Expression operand;
+
+        Unary(final String operator, final Expression operand, final int line, final int column) {
+            super(line, column);
+            this.operator = operator;
+            this.operand = operand;
+        }
+
+        @Override
+        <T> TypedExpression<T> compile(final CompilationContext<T> context) {
+            TypedExpression<T> value = this.operand.compile(context);
+            TypedExpression<T> result;
+            if ("not".equals(this.operator)) {
+                if (value.getType() != ValueType.BOOLEAN) {
+                    throw this.error("Operator not needs a boolean, found " + value.getType());
+                }
+                result = TypedExpression.ofBoolean(value.asBoolean().negate());
+            } else if (value.getType() == ValueType.INT) {
+                ToIntFunction<T> function = value.asInt();
+                result = TypedExpression.ofInt(p -> -function.applyAsInt(p));
+            } else if (value.getType() == ValueType.LONG) {
+                ToLongFunction<T> function = value.asLong();
+                result = TypedExpression.ofLong(p -> -function.applyAsLong(p));
+            } else if (value.getType() == ValueType.DOUBLE) {
+                ToDoubleFunction<T> function = value.asDouble();
+                result = TypedExpression.ofDouble(p -> -function.applyAsDouble(p));
+            } else {
+                throw this.error("Operator - needs a number, found " + value.getType());
+            }
+            return value.isConstant() ? TypedExpression.constant(result.asObject().apply(null)) : result;
+        }
+    }
+
+    /**
+     * Binary operation: logical, comparison or arithmetic.
+     */
+    static final class Binary extends Expression {
+
+        private final String operator;
+
+        private final Expression left;
+
+        private final Expression right;
+
+        Binary(final String operator, final Expression left, final Expression right, final int line,
+                final int column) {
+            super(line, column);
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        <T> TypedExpression<T> compile(final CompilationContext<T> context) {
+            TypedExpression<T> first = this.left.compile(context);
+            TypedExpression<T> second = this.right.compile(context);
+            TypedExpression<T> result;
+            switch (this.operator) {
+                case "and":
+                case "or":
+                    if (first.getType() != ValueType.BOOLEAN || second.getType() != ValueType.BOOLEAN) {
+                        throw this.error("Operator " + this.operator + " needs booleans, found " + first.getType()
+                                + " and " + second.getType());
+                    }
+                    Predicate<T> a = first.asBoolean();
+                    Predicate<T> b = second.asBoolean();
+                    result = TypedExpression.ofBoolean("and".equals(this.operator) ? p -> a.test(p) && b.test(p)
+                        : p -> a.test(p) || b.test(p));
+                    break;
+                case "==":
+                case "!=":
+                    result = Operators.equality(this.operator, first, second);
+                    break;
+                case "<":
+                case "<=":
+                case ">":
+                case ">=":
+                    result = Operators.comparison(this.operator, first, second);
+                    break;
+                default:
+                    result = Operators.arithmetic(this.operator, first, second);
+            }
+            if (result == null) {
+                throw this.error("Operator " + this.operator + " not applicable to " + first.getType() + " and "
+                        + second.getType());
+            }
+            if (!first.isConstant() || !second.isConstant()) {
+                return result;
+            }
+            // Nothing of the item involved: evaluated once, here.
+            try {
+                return TypedExpression.constant(result.asObject().apply(null));
+            } catch (ArithmeticException e) {
+                throw this.error(e.getMessage());
+            }
+        }
+    }
+
+}
@@ -0,0 +1,232 @@
+package org.sbol.projects.engine.rules.dsl;
+
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Operators of the rules, compiled into a lambda per operator and type. Numbers are compared and operated in the
+ * widest type of the operands, as Java does. An int compared against a constant, the usual threshold, gets the
+ * constant inlined in the lambda.
+ *
+ * @author david.ralluy
+ *
+ */
+final class Operators {
+
+    private Operators() {
+        // Utility class
+    }
+
+    /**
+     * Equality: numbers by value, the rest with equals.
+     *
+     * @param operator == or !=
+     * @param first First operand
+     * @param second Second operand
+     * @param <T> Item type
+     * @return Expression, null if the types are not comparable
+     */
+    static <T> TypedExpression<T> equality(final String operator, final TypedExpression<T> first,
+            final TypedExpression<T> second) {
+        ValueType a = first.getType();
+        ValueType b = second.getType();
+        if (a.isNumeric() && b.isNumeric()) {
+            return Operators.comparison(operator, first, second);
+        }
+        Predicate<T> equals;
+        if (a == ValueType.BOOLEAN && b == ValueType.BOOLEAN) {
+            Predicate<T> left = first.asBoolean();
+            Predicate<T> right = second.asBoolean();
+            equals = p -> left.test(p) == right.test(p);
+        } else if (a == b || a == ValueType.OBJECT || b == ValueType.OBJECT) {
+            Function<T, Object> left = first.asObject();
+            Function<T, Object> right = second.asObject();
+            equals = p -> Objects.equals(left.apply(p), right.apply(p));
+        } else {
+            return null;
+        }
+        return TypedExpression.ofBoolean("==".equals(operator) ? equals : equals.negate());
+    }
+
+    /**
+     * Numeric comparison.
+     *
+     * @param operator Comparison operator
+     * @param first First operand
+     * @param second Second operand
+     * @param <T> Item type
+     * @return Expression, null if an operand is not a number
+     */
+    static <T> TypedExpression<T> comparison(final String operator, final TypedExpression<T> first,
+            final TypedExpression<T> second) {
+        if (!first.getType().isNumeric() || !second.getType().isNumeric()) {
+            return null;
+        }
+        switch (ValueType.widest(first.getType(), second.getType())) {
+            case INT:
+                return TypedExpression.ofBoolean(second.isConstant()
+                    ? Operators.compareInt(operator, first.asInt(), ((Number) second.getValue()).intValue())
+                    : Operators.compareInt(operator, first.asInt(), second.asInt()));
+            case LONG:
+                return TypedExpression.ofBoolean(Operators.compareLong(operator, first.asLong(), second.asLong()));
+            default:
+                return TypedExpression.ofBoolean(Operators.compareDouble(operator, first.asDouble(),
+                        second.asDouble()));
+        }
+    }
+
+    private static <T> Predicate<T> compareInt(final String operator, final ToIntFunction<T> a, final int b) {
+        switch (operator) {
+            case "==":
+                return p -> a.applyAsInt(p) == b;
+            case "!=":
+                return p -> a.applyAsInt(p) != b;
+            case "<":
+                return p -> a.applyAsInt(p) < b;
+            case "<=":
+                return p -> a.applyAsInt(p) <= b;
+            case ">":
+                return p -> a.applyAsInt(p) > b;
+            default:
+                return p -> a.applyAsInt(p) >= b;
+        }
+    }
+
+    private static <T> Predicate<T> compareInt(final String operator, final ToIntFunction<T> a,
+            final ToIntFunction<T> b) {
+        switch (operator) {
+            case "==":
+                return p -> a.applyAsInt(p) == b.applyAsInt(p);
+            case "!=":
+                return p -> a.applyAsInt(p) != b.applyAsInt(p);
+            case "<":
+                return p -> a.applyAsInt(p) < b.applyAsInt(p);
+            case "<=":
+                return p -> a.applyAsInt(p) <= b.applyAsInt(p);
+            case ">":
+                return p -> a.applyAsInt(p) > b.applyAsInt(p);
+            default:
+                return p -> a.applyAsInt(p) >= b.applyAsInt(p);
+        }
+    }
+
+    private static <T> Predicate<T> compareLong(final String operator, final ToLongFunction<T> a,
+            final ToLongFunction<T> b) {
+        switch (operator) {
+            case "==":
+                return p -> a.applyAsLong(p) == b.applyAsLong(p);
+            case "!=":
+                return p -> a.applyAsLong(p) != b.applyAsLong(p);
+            case "<":
+                return p -> a.applyAsLong(p) < b.applyAsLong(p);
+            case "<=":
+                return p -> a.applyAsLong(p) <= b.applyAsLong(p);
+            case ">":
+                return p -> a.applyAsLong(p) > b.applyAsLong(p);
+            default:
+                return p -> a.applyAsLong(p) >= b.applyAsLong(p);
+        }
+    }
+
+    private static <T> Predicate<T> compareDouble(final String operator, final ToDoubleFunction<T> a,
+            final ToDoubleFunction<T> b) {
+        switch (operator) {
+            case "==":
+                return p -> a.applyAsDouble(p) == b.applyAsDouble(p);
+            case "!=":
+                return p -> a.applyAsDouble(p) != b.applyAsDouble(p);
+            case "<":
+                return p -> a.applyAsDouble(p) < b.applyAsDouble(p);
+            case "<=":
+                return p -> a.applyAsDouble(p) <= b.applyAsDouble(p);
+            case ">":
+                return p -> a.applyAsDouble(p) > b.applyAsDouble(p);
+            default:
+                return p -> a.applyAsDouble(p) >= b.applyAsDouble(p);
+        }
+    }
+
+    /**
+     * Arithmetic, or concatenation when an operand of + is a string.
+     *
+     * @param operator Arithmetic operator
+     * @param first First operand
+     * @param second Second operand
+     * @param <T> Item type
+     * @return Expression, null if the types can't be operated
+     */
+    static <T> TypedExpression<T> arithmetic(final String operator, final TypedExpression<T> first,
+            final TypedExpression<T> second) {
+        if ("+".equals(operator)
+                && (first.getType() == ValueType.STRING || second.getType() == ValueType.STRING)) {
+            Function<T, Object> a = first.asObject();
+            Function<T, Object> b = second.asObject();
+            return TypedExpression.ofObject(ValueType.STRING, p -> String.valueOf(a.apply(p)) + b.apply(p));
+        }
+        if (!first.getType().isNumeric() || !second.getType().isNumeric()) {
+            return null;
+        }
+        switch (ValueType.widest(first.getType(), second.getType())) {
+            case INT:
+                return TypedExpression.ofInt(Operators.operateInt(operator, first.asInt(), second.asInt()));
+            case LONG:
+                return TypedExpression.ofLong(Operators.operateLong(operator, first.asLong(), second.asLong()));
+            default:
+                return TypedExpression.ofDouble(Operators.operateDouble(operator, first.asDouble(),
+                        second.asDouble()));
+        }
+    }
+
+    private static <T> ToIntFunction<T> operateInt(final String operator, final ToIntFunction<T> a,
+            final ToIntFunction<T> b) {
+        switch (operator) {
+            case "+":
+                return p -> a.applyAsInt(p) + b.applyAsInt(p);
+            case "-":
+                return p -> a.applyAsInt(p) - b.applyAsInt(p);
+            case "*":
+                return p -> a.applyAsInt(p) * b.applyAsInt(p);
+            case "/":
+                return p -> a.applyAsInt(p) / b.applyAsInt(p);
+            default:
+                return p -> a.applyAsInt(p) % b.applyAsInt(p);
+        }
+    }
+
+    private static <T> ToLongFunction<T> operateLong(final String operator, final ToLongFunction<T> a,
+            final ToLongFunction<T> b) {
+        switch (operator) {
+            case "+":
+                return p -> a.applyAsLong(p) + b.applyAsLong(p);
+            case "-":
+                return p -> a.applyAsLong(p) - b.applyAsLong(p);
+            case "*":
+                return p -> a.applyAsLong(p) * b.applyAsLong(p);
+            case "/":
+                return p -> a.applyAsLong(p) / b.applyAsLong(p);
+            default:
+                return p -> a.applyAsLong(p) % b.applyAsLong(p);
+        }
+    }
+
+    private static <T> ToDoubleFunction<T> operateDouble(final String operator, final ToDoubleFunction<T> a,
+            final ToDoubleFunction<T> b) {
+        switch (operator) {
+            case "+":
+                return p -> a.applyAsDouble(p) + b.applyAsDouble(p);
+            case "-":
+                return p -> a.applyAsDouble(p) - b.applyAsDouble(p);
+            case "*":
+                return p -> a.applyAsDouble(p) * b.applyAsDouble(p);
+            case "/":
+                return p -> a.applyAsDouble(p) / b.applyAsDouble(p);
+            default:
+                return p -> a.applyAsDouble(p) % b.applyAsDouble(p);
+        }
+    }
+
+}
@@ -0,0 +1,391 @@
+package org.sbol.projects.engine.rules.dsl;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Attribute of the items, read and written through its bean getter and setter. The accessors are bound once, as
+ * lambdas calling the methods directly (the same classes javac generates for a method reference), so reading an
+ * attribute costs what a handwritten <code>Item::getPrice</code> does. Classes the engine class loader can't see, or
+ * not public, go through method handles instead.
+ *
+ * @author david.ralluy
+ *
+ * @param <T> Item type
+ */
+final class Property<T> {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private final String name;
+
+    private final ValueType type;
+
+    private final Class<?> javaType;
+
+    private final TypedExpression<T> getter;
+
+    // ObjIntConsumer, ObjLongConsumer, ObjDoubleConsumer or BiConsumer by type, null when read only.
+    private final Object setter;
+
+    private Property(final String name, final ValueType type, final Class<?> javaType,
+            final TypedExpression<T> getter, final Object setter) {
+        this.name = name;
+        this.type = type;
+        this.javaType = javaType;
+        this.getter = getter;
+        this.setter = setter;
+    }
+
+    /**
+     * Attribute of a class.
+     *
+     * @param itemType Item class
+     * @param name Attribute name
+     * @param <T> Item type
+     * @return Attribute, null if the class has no getter for it
+     */
+    static <T> Property<T> resolve(final Class<T> itemType, final String name) {
+        String suffix = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        Method getterMethod = Property.method(itemType, "get" + suffix);
+        if (getterMethod == null) {
+            getterMethod = Property.method(itemType, "is" + suffix);
+            if (getterMethod != null && getterMethod.getReturnType() != boolean.class) {
+                getterMethod = null;
+            }
+        }
+        if (getterMethod == null || getterMethod.getReturnType() == void.class) {
+            return null;
+        }
+        Class<?> javaType = getterMethod.getReturnType();
+        Method setterMethod = Property.method(itemType, "set" + suffix, javaType);
+        boolean direct = Property.isDirect(itemType);
+        try {
+            ValueType type = Property.typeOf(javaType);
+            TypedExpression<T> getter = Property.getter(itemType, type, getterMethod, direct);
+            Object setter = setterMethod == null ? null
+                : Property.setter(itemType, type, javaType, setterMethod, direct);
+            return new Property<>(name, type, javaType, getter, setter);
+        } catch (Throwable e) {
+            throw new IllegalStateException("Cannot bind attribute " + name + " of " + itemType.getName(), e);
+        }
+    }
+
+    String getName() {
+        return this.name;
+    }
+
+    ValueType getType() {
+        return this.type;
+    }
+
+    /**
+     * Expression reading the attribute.
+     *
+     * @return Expression
+     */
+    TypedExpression<T> read() {
+        return this.getter;
+    }
+
+    /**
+     * Indicates if the attribute has a setter.
+     *
+     * @return Writable S/N
+     */
+    boolean isWritable() {
+        return this.setter != null;
+    }
+
+    /**
+     * Action writing the value of an expression to the attribute.
+     *
+     * @param value Value
+     * @return Action, null when the value type can't be assigned to the attribute
+     */
+    @SuppressWarnings("unchecked")
+    Consumer<T> write(final TypedExpression<T> value) {
+        switch (this.type) {
+            case INT:
+                if (value.getType() != ValueType.INT || this.javaType != int.class) {
+                    return null;
+                }
+                ObjIntConsumer<T> intSetter = (ObjIntConsumer<T>) this.setter;
+                ToIntFunction<T> intValue = value.asInt();
+                return p -> intSetter.accept(p, intValue.applyAsInt(p));
+            case LONG:
+                if (value.getType() != ValueType.INT && value.getType() != ValueType.LONG) {
+                    return null;
+                }
+                ObjLongConsumer<T> longSetter = (ObjLongConsumer<T>) this.setter;
+                ToLongFunction<T> longValue = value.asLong();
+                return p -> longSetter.accept(p, longValue.applyAsLong(p));
+            case DOUBLE:
+                if (!value.getType().isNumeric() || this.javaType != double.class) {
+                    return null;
+                }
+                ObjDoubleConsumer<T> doubleSetter = (ObjDoubleConsumer<T>) this.setter;
+                ToDoubleFunction<T> doubleValue = value.asDouble();
+                return p -> doubleSetter.accept(p, doubleValue.applyAsDouble(p));
+            case BOOLEAN:
+                if (value.getType() != ValueType.BOOLEAN) {
+                    return null;
+                }
+                BiConsumer<T, Object> booleanSetter = (BiConsumer<T, Object>) this.setter;
+                Predicate<T> booleanValue = value.asBoolean();
+                return p -> booleanSetter.accept(p, Boolean.valueOf(booleanValue.test(p)));
+            default:
+                // Reference types: only values of the same class, or null.
+                if (!(value.isConstant() && value.getValue() == null) && (value.getType() != this.type
+                        || this.type == ValueType.OBJECT)) {
+                    return null;
+                }
+                BiConsumer<T, Object> objectSetter = (BiConsumer<T, Object>) this.setter;
+                Function<T, Object> objectValue = value.asObject();
+                return p -> objectSetter.accept(p, objectValue.apply(p));
+        }
+    }
+
+    private static Method method(final Class<?> itemType, final String name, final Class<?>... parameters) {
+        try {
+            Method method = itemType.getMethod(name, parameters);
+            return Modifier.isStatic(method.getModifiers()) ? null : method;
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static ValueType typeOf(final Class<?> javaType) {
+        if (javaType == int.class || javaType == short.class || javaType == byte.class || javaType == char.class) {
+            return ValueType.INT;
+        } else if (javaType == long.class) {
+            return ValueType.LONG;
+        } else if (javaType == double.class || javaType == float.class) {
+            return ValueType.DOUBLE;
+        } else if (javaType == boolean.class) {
+            return ValueType.BOOLEAN;
+        } else if (javaType == String.class) {
+            return ValueType.STRING;
+        }
+        return ValueType.OBJECT;
+    }
+
+    /**
+     * Indicates if the accessors can be spun as lambdas: the class is public and visible from the engine class loader.
+     */
+    private static boolean isDirect(final Class<?> itemType) {
+        if (!Modifier.isPublic(itemType.getModifiers())) {
+            return false;
+        }
+        try {
+            return Class.forName(itemType.getName(), false, Property.class.getClassLoader()) == itemType;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> TypedExpression<T> getter(final Class<T> itemType, final ValueType type, final Method method,
+            final boolean direct) throws Throwable {
+        Class<?> javaType = method.getReturnType();
+        if (!direct) {
+            method.setAccessible(true);
+        }
+        MethodHandle handle = Property.LOOKUP.unreflect(method);
+        switch (type) {
+            case INT:
+                return TypedExpression.ofInt(direct
+                    ? (ToIntFunction<T>) Property.lambda(ToIntFunction.class, "applyAsInt", handle,
+                            MethodType.methodType(int.class, Object.class), MethodType.methodType(int.class, itemType))
+                    : Property.handleInt(handle.asType(MethodType.methodType(int.class, Object.class))));
+            case LONG:
+                return TypedExpression.ofLong(direct
+                    ? (ToLongFunction<T>) Property.lambda(ToLongFunction.class, "applyAsLong", handle,
+                            MethodType.methodType(long.class, Object.class),
+                            MethodType.methodType(long.class, itemType))
+                    : Property.handleLong(handle.asType(MethodType.methodType(long.class, Object.class))));
+            case DOUBLE:
+                return TypedExpression.ofDouble(direct
+                    ? (ToDoubleFunction<T>) Property.lambda(ToDoubleFunction.class, "applyAsDouble", handle,
+                            MethodType.methodType(double.class, Object.class),
+                            MethodType.methodType(double.class, itemType))
+                    : Property.handleDouble(handle.asType(MethodType.methodType(double.class, Object.class))));
+            case BOOLEAN:
+                return TypedExpression.ofBoolean(direct
+                    ? (Predicate<T>) Property.lambda(Predicate.class, "test", handle,
+                            MethodType.methodType(boolean.class, Object.class),
+                            MethodType.methodType(boolean.class, itemType))
+                    : Property.handleBoolean(handle.asType(MethodType.methodType(boolean.class, Object.class))));
+            default:
+                return TypedExpression.ofObject(type, direct
+                    ? (Function<T, Object>) Property.lambda(Function.class, "apply", handle,
+                            MethodType.methodType(Object.class, Object.class),
+                            MethodType.methodType(javaType, itemType))
+                    : Property.handleObject(handle.asType(MethodType.methodType(Object.class, Object.class))));
+        }
+    }
+
+    private static Object setter(final Class<?> itemType, final ValueType type, final Class<?> javaType,
+            final Method method, final boolean direct) throws Throwable {
+        if (!direct) {
+            method.setAccessible(true);
+        }
+        MethodHandle handle = Property.LOOKUP.unreflect(method);
+        if (type == ValueType.INT && javaType == int.class) {
+            return direct
+                ? Property.lambda(ObjIntConsumer.class, "accept", handle,
+                        MethodType.methodType(void.class, Object.class, int.class),
+                        MethodType.methodType(void.class, itemType, int.class))
+                : Property.handleIntSetter(handle.asType(MethodType.methodType(void.class, Object.class, int.class)));
+        } else if (type == ValueType.LONG) {
+            return direct
+                ? Property.lambda(ObjLongConsumer.class, "accept", handle,
+                        MethodType.methodType(void.class, Object.class, long.class),
+                        MethodType.methodType(void.class, itemType, long.class))
+                : Property.handleLongSetter(
+                        handle.asType(MethodType.methodType(void.class, Object.class, long.class)));
+        } else if (type == ValueType.DOUBLE && javaType == double.class) {
+            return direct
+                ? Property.lambda(ObjDoubleConsumer.class, "accept", handle,
+                        MethodType.methodType(void.class, Object.class, double.class),
+                        MethodType.methodType(void.class, itemType, double.class))
+                : Property.handleDoubleSetter(
+                        handle.asType(MethodType.methodType(void.class, Object.class, double.class)));
+        } else if (type == ValueType.BOOLEAN || !javaType.isPrimitive()) {
+            Class<?> boxed = javaType == boolean.class ? Boolean.class : javaType;
+            return direct
+                ? Property.lambda(BiConsumer.class, "accept", handle,
+                        MethodType.methodType(void.class, Object.class, Object.class),
+                        MethodType.methodType(void.class, itemType, boxed))
+                : Property.handleObjectSetter(
+                        handle.asType(MethodType.methodType(void.class, Object.class, Object.class)));
+        }
+        // Narrower primitives (short, float...) are read only.
+        return null;
+    }
+
+    /**
+     * Lambda of a functional interface calling a method directly.
+     */
+    private static Object lambda(final Class<?> functional, final String name, final MethodHandle implementation,
+            final MethodType erased, final MethodType instantiated) throws Throwable {
+        CallSite site = LambdaMetafactory.metafactory(Property.LOOKUP, name, MethodType.methodType(functional), erased,
+                implementation, instantiated);
+        return site.getTarget().invoke();
+    }
+
+    private static <T> ToIntFunction<T> handleInt(final MethodHandle handle) {
+        return p -> {
+            try {
+                return (int) handle.invokeExact((Object) p);
+            } catch (Throwable e) {
+                throw Property.propagate(e);
+            }
+        };
+    }
+
+    private static <T> ToLongFunction<T> handleLong(final MethodHandle handle) {
+        return p -> {
+            try {
+                return (long) handle.invokeExact((Object) p);
+            } catch (Throwable e) {
+                throw Property.propagate(e);
+            }
+        };
+    }
+
+    private static <T> ToDoubleFunction<T> handleDouble(final MethodHandle handle) {
+        return p -> {
+            try {
+                return (double) handle.invokeExact((Object) p);
+            } catch (Throwable e) {
+                throw Property.propagate(e);
+            }
+        };
+    }
+
+    private static <T> Predicate<T> handleBoolean(final MethodHandle handle) {
+        return p -> {
+            try {
+                return (boolean) handle.invokeExact((Object) p);
+            } catch (Throwable e) {
+                throw Property.propagate(e);
+            }
+        };
+    }
+
+    private static <T> Function<T, Object> handleObject(final MethodHandle handle) {
+        return p -> {
+            try {
+                return (Object) handle.invokeExact((Object) p);
+            } catch (Throwable e) {
+                throw Property.propagate(e);
+            }
+        };
+    }
+
+    private static ObjIntConsumer<Object> handleIntSetter(final MethodHandle handle) {
+        return (p, value) -> {
+            try {
+                handle.invokeExact(p, value);
+            } catch (Throwable e) {
+                throw Property.propagate(e);
+            }
+        };
+    }
+
+    private static ObjLongConsumer<Object> handleLongSetter(final MethodHandle handle) {
+        return (p, value) -> {
+            try {
+                handle.invokeExact(p, value);
+            } catch (Throwable e) {
+                throw Property.propagate(e);
+            }
+        };
+    }
+
+    private static ObjDoubleConsumer<Object> handleDoubleSetter(final MethodHandle handle) {
+        return (p, value) -> {
+            try {
+                handle.invokeExact(p, value);
+            } catch (Throwable e) {
+                throw Property.propagate(e);
+            }
+        };
+    }
+
+    private static BiConsumer<Object, Object> handleObjectSetter(final MethodHandle handle) {
+        return (p, value) -> {
+            try {
+                handle.invokeExact(p, value);
+            } catch (Throwable e) {
+                throw Property.propagate(e);
+            }
+        };
+    }
+
+    private static RuntimeException propagate(final Throwable e) {
+        if (e instanceof RuntimeException) {
+            return (RuntimeException) e;
+        } else if (e instanceof Error) {
+            throw (Error) e;
+        }
+        return new IllegalStateException(e);
+    }
+
+}
@@ -0,0 +1,67 @@
+package org.sbol.projects.engine.rules.dsl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.sbol.projects.engine.rules.BusinessRule;
+
+/**
+ * Compiler of the rules language into business rules. A source declares any number of rules:
+ *
+ * <pre>
+ * # Comments run to the end of the line
+ * rule descuento priority 10 channel WEB {
+ *     param minimo = 100;
+ *     param descuento = 10;
+ *     filter precio &gt; 0 and code != null;
+ *     set precio = precio - $descuento when precio &gt;= $minimo;
+ *     sort precio desc, code;
+ * }
+ * </pre>
+ *
+ * <ul>
+ * <li>Header: the name (an identifier or a string), and optionally <code>priority</code> (default 1),
+ * <code>channel</code> (default ALL) and <code>commutative</code>.</li>
+ * <li><code>param name = literal;</code> declares a parameter and its default value, referenced as
+ * <code>$name</code> and updated as any other rule parameter.</li>
+ * <li><code>filter condition;</code> keeps the items matching the condition.</li>
+ * <li><code>set attribute = value, ... [when condition];</code> updates attributes of the items.</li>
+ * <li><code>sort attribute [asc|desc], ...;</code> orders the items.</li>
+ * </ul>
+ *
+ * Expressions have literals (numbers, strings, <code>true</code>, <code>false</code>, <code>null</code>), item
+ * attributes by their bean name, parameters, <code>and or not</code>, comparisons <code>== != &lt; &lt;= &gt;
+ * &gt;=</code> and arithmetic <code>+ - * / %</code>; <code>+</code> concatenates strings.
+ *
+ * Every statement is compiled into a typed stream rule, with attribute accessors bound to the getters and setters
+ * and constants folded, so an item goes through lambdas like handwritten ones: no reflection nor interpretation per
+ * item. A rule with a single statement is optimized by the engine like any other typed rule; several statements run
+ * as a chain inside the rule. Types are checked at compile time.
+ *
+ * @author david.ralluy
+ *
+ */
+public final class RuleCompiler {
+
+    private RuleCompiler() {
+        // Utility class
+    }
+
+    /**
+     * Compile the rules of a source.
+     *
+     * @param source Rules source
+     * @param itemType Item class
+     * @param <T> Item type
+     * @return Rules, in declaration order
+     * @throws RuleSyntaxException Error in the source
+     */
+    public static <T> List<BusinessRule<T>> compile(final String source, final Class<T> itemType) {
+        List<BusinessRule<T>> rules = new ArrayList<>();
+        for (RuleDefinition definition : RuleParser.parse(source)) {
+            rules.add(new DslRule<>(definition, itemType));
+        }
+        return rules;
+    }
+
+}
@@ -0,0 +1,86 @@
+package org.sbol.projects.engine.rules.dsl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.sbol.projects.engine.constants.Channel;
+import org.sbol.projects.engine.rules.RuleChain;
+import org.sbol.projects.engine.rules.StreamRule;
+
+/**
+ * Rule as parsed: header and statements.
+ *
+ * @author david.ralluy
+ *
+ */
+final class RuleDefinition {
+
+    private final String name;
+
+    private final int priority;
+
+    private final Channel channel;
+
+    private final boolean commutative;
+
+    private final Map<String, Object> parameters;
+
+    private final List<Statement> statements;
+
+    RuleDefinition(final String name, final int priority, final Channel channel, final boolean commutative,
+            final Map<String, Object> parameters, final List<Statement> statements) {
+        this.name = name;
+        this.priority = priority;
+        this.channel = channel;
+        this.commutative = commutative;
+        this.parameters = Collections.unmodifiableMap(new LinkedHashMap<>(parameters));
+        this.statements = Collections.unmodifiableList(new ArrayList<>(statements));
+    }
+
+    String getName() {
+        return this.name;
+    }
+
+    int getPriority() {
+        return this.priority;
+    }
+
+    Channel getChannel() {
+        return this.channel;
+    }
+
+    boolean isCommutative() {
+        return this.commutative;
+    }
+
+    /**
+     * Declared parameters with their default values.
+     *
+     * @return Parameters
+     */
+    Map<String, Object> getParameters() {
+        return this.parameters;
+    }
+
+    /**
+     * Compile the statements: a single statement is the rule itself, several run as a chain.
+     *
+     * @param context Compilation context
+     * @param <T> Item type
+     * @return Rule
+     */
+    <T> StreamRule<T> compile(final CompilationContext<T> context) {
+        List<StreamRule<T>> stages = new ArrayList<>(this.statements.size());
+        for (Statement statement : this.statements) {
+            stages.add(statement.compile(context));
+        }
+        if (stages.size() == 1) {
+            return stages.get(0);
+        }
+        return new RuleChain<>(stages);
+    }
+
+}
@@ -0,0 +1,210 @@
+package org.sbol.projects.engine.rules.dsl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tokens of the rules source. Comments run from <code>#</code> or <code>//</code> to the end of the line.
+ *
+ * @author david.ralluy
+ *
+ */
+final class RuleLexer {
+
+    // Longest first, so "<=" is not read as "<".
+    private static final String[] SYMBOLS = {"==", "!=", "<=", ">=", "<", ">", "=", "+", "-", "*", "/", "%", "(",
+        ")", "{", "}", ",", ";" };
+
+    private final String source;
+
+    private int position;
+
+    private int line = 1;
+
+    private int lineStart;
+
+    private RuleLexer(final String source) {
+        this.source = source;
+    }
+
+    /**
+     * Tokens of a source, ending with an {@link TokenType#END} token.
+     *
+     * @param source Source
+     * @return Tokens
+     */
+    static List<Token> tokenize(final String source) {
+        return new RuleLexer(source).tokens();
+    }
+
+    private List<Token> tokens() {
+        List<Token> tokens = new ArrayList<>();
+        while (this.skipBlanks()) {
+            int start = this.position;
+            int column = start - this.lineStart + 1;
+            char current = this.source.charAt(start);
+            if (Character.isJavaIdentifierStart(current) && current != '$') {
+                tokens.add(new Token(TokenType.IDENTIFIER, this.identifier(), this.line, column));
+            } else if (current == '$') {
+                this.position++;
+                String name = this.identifier();
+                if (name.isEmpty()) {
+                    throw new RuleSyntaxException("Parameter name expected", this.line, column);
+                }
+                tokens.add(new Token(TokenType.PARAMETER, name, this.line, column));
+            } else if (Character.isDigit(current)) {
+                tokens.add(new Token(TokenType.NUMBER, this.number(), this.line, column));
+            } else if (current == '"') {
+                tokens.add(new Token(TokenType.STRING, this.string(column), this.line, column));
+            } else {
+                tokens.add(new Token(TokenType.SYMBOL, this.symbol(column), this.line, column));
+            }
+        }
+        tokens.add(new Token(TokenType.END, "", this.line, this.position - this.lineStart + 1));
+        return tokens;
+    }
+
+    /**
+     * Skip blanks and comments.
+     *
+     * @return More tokens S/N
+     */
+    private boolean skipBlanks() {
+        while (this.position < this.source.length()) {
+            char current = this.source.charAt(this.position);
+            if (current == '\n') {
+                this.position++;
+                this.line++;
+                this.lineStart = this.position;
+            } else if (Character.isWhitespace(current)) {
+                this.position++;
+            } else if (current == '#' || this.source.startsWith("//", this.position)) {
+                while (this.position < this.source.length() && this.source.charAt(this.position) != '\n') {
+                    this.position++;
+                }
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String identifier() {
+        int start = this.position;
+        while (this.position < this.source.length() && Character.isJavaIdentifierPart(this.source.charAt(this.position))
+                && this.source.charAt(this.position) != '$') {
+            this.position++;
+        }
+        return this.source.substring(start, this.position);
+    }
+
+    private String number() {
+        int start = this.position;
+        this.digits();
+        if (this.position + 1 < this.source.length() && this.source.charAt(this.position) == '.'
+                && Character.isDigit(this.source.charAt(this.position + 1))) {
+            this.position++;
+            this.digits();
+        }
+        return this.source.substring(start, this.position);
+    }
+
+    private void digits() {
+        while (this.position < this.source.length() && Character.isDigit(this.source.charAt(this.position))) {
+            this.position++;
+        }
+    }
+
+    private String string(final int column) {
+        StringBuilder value = new StringBuilder();
+        this.position++;
+        while (this.position < this.source.length()) {
+            char current = this.source.charAt(this.position++);
+            if (current == '"') {
+                return value.toString();
+            } else if (current == '\n') {
+                break;
+            } else if (current == '\\' && this.position < this.source.length()) {
+                char escaped = this.source.charAt(this.position++);
+                switch (escaped) {
+                    case 'n':
+                        value.append('\n');
+                        break;
+                    case 't':
+                        value.append('\t');
+                        break;
+                    default:
+                        value.append(escaped);
+                }
+            } else {
+                value.append(current);
+            }
+        }
+        throw new RuleSyntaxException("Unterminated string", this.line, column);
+    }
+
+    private String symbol(final int column) {
+        for (String symbol : RuleLexer.SYMBOLS) {
+            if (this.source.startsWith(symbol, this.position)) {
+                this.position += symbol.length();
+                return symbol;
+            }
+        }
+        throw new RuleSyntaxException("Unexpected character '" + this.source.charAt(this.position) + "'", this.line,
+                column);
+    }
+
+    /**
+     * Token type.
+     */
+    enum TokenType {
+        IDENTIFIER, PARAMETER, NUMBER, STRING, SYMBOL, END
+    }
+
+    /**
+     * Token of the source, with its position.
+     */
+    static final class Token {
+
+        private final TokenType type;
+
+        private final String text;
+
+        private final int line;
+
+        private final int column;
+
+        Token(final TokenType type, final String text, final int line, final int column) {
+            this.type = type;
+            this.text = text;
+            this.line = line;
+            this.column = column;
+        }
+
+        TokenType getType() {
+            return this.type;
+        }
+
+        String getText() {
+            return this.text;
+        }
+
+        int getLine() {
+            return this.line;
+        }
+
+        int getColumn() {
+            return this.column;
+        }
+
+        boolean is(final TokenType tokenType, final String value) {
+            return this.type == tokenType && this.text.equals(value);
+        }
+
+        @Override
+        public String toString() {
+            return this.type == TokenType.END ? "end of input" : "'" + this.text + "'";
+        }
+    }
+
+}
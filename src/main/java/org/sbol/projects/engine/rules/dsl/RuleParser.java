@@ -0,0 +1,336 @@
+package org.sbol.projects.engine.rules.dsl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.sbol.projects.engine.constants.Channel;
+import org.sbol.projects.engine.rules.dsl.RuleLexer.Token;
+import org.sbol.projects.engine.rules.dsl.RuleLexer.TokenType;
+
+/**
+ * Recursive descent parser of the rules source (see {@link RuleCompiler} for the grammar).
+ *
+ * @author david.ralluy
+ *
+ */
+final class RuleParser {
+
+    private static final Set<String> KEYWORDS = new HashSet<>(Arrays.asList("rule", "priority", "channel",
+            "commutative", "param", "filter", "set", "when", "sort", "asc", "desc", "and", "or", "not", "true",
+            "false", "null"));
+
+    private final List<Token> tokens;
+
+    private int position;
+
+    private RuleParser(final String source) {
+        this.tokens = RuleLexer.tokenize(source);
+    }
+
+    /**
+     * Parse the rules of a source.
+     *
+     * @param source Source
+     * @return Rules, in declaration order
+     */
+    static List<RuleDefinition> parse(final String source) {
+        return new RuleParser(source).rules();
+    }
+
+    private List<RuleDefinition> rules() {
+        List<RuleDefinition> rules = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        while (this.peek().getType() != TokenType.END) {
+            Token start = this.peek();
+            RuleDefinition rule = this.rule();
+            if (!names.add(rule.getName())) {
+                throw this.error(start, "Duplicated rule " + rule.getName());
+            }
+            rules.add(rule);
+        }
+        return rules;
+    }
+
+    private RuleDefinition rule() {
+        this.expectKeyword("rule");
+        Token nameToken = this.next();
+        if (nameToken.getType() != TokenType.STRING
+                && (nameToken.getType() != TokenType.IDENTIFIER || KEYWORDS.contains(nameToken.getText()))) {
+            throw this.error(nameToken, "Rule name expected, found " + nameToken);
+        }
+        int priority = 1;
+        Channel channel = Channel.ALL;
+        boolean commutative = false;
+        while (!this.peek().is(TokenType.SYMBOL, "{")) {
+            Token option = this.next();
+            if (this.isKeyword(option, "priority")) {
+                boolean negative = this.accept(TokenType.SYMBOL, "-");
+                Object value = this.number(this.next());
+                if (!(value instanceof Integer)) {
+                    throw this.error(option, "Priority must be an int");
+                }
+                priority = negative ? -((Integer) value).intValue() : ((Integer) value).intValue();
+            } else if (this.isKeyword(option, "channel")) {
+                Token channelToken = this.next();
+                try {
+                    channel = Channel.valueOf(channelToken.getText());
+                } catch (IllegalArgumentException e) {
+                    throw this.error(channelToken, "Unknown channel " + channelToken);
+                }
+            } else if (this.isKeyword(option, "commutative")) {
+                commutative = true;
+            } else {
+                throw this.error(option, "Expected priority, channel, commutative or '{', found " + option);
+            }
+        }
+        this.expect(TokenType.SYMBOL, "{");
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        List<Statement> statements = new ArrayList<>();
+        while (!this.accept(TokenType.SYMBOL, "}")) {
+            Token keyword = this.next();
+            if (this.isKeyword(keyword, "param")) {
+                Token parameter = this.identifier();
+                this.expect(TokenType.SYMBOL, "=");
+                Expression value = this.unary();
+                if (!(value instanceof Expression.Literal)) {
+                    throw this.error(parameter, "Parameter " + parameter.getText() + " needs a literal value");
+                }
+                if (parameters.containsKey(parameter.getText())) {
+                    throw this.error(parameter, "Duplicated parameter " + parameter.getText());
+                }
+                parameters.put(parameter.getText(), value.compile(null).getValue());
+            } else if (this.isKeyword(keyword, "filter")) {
+                statements.add(new Statement.Filter(this.expression(), keyword.getLine(), keyword.getColumn()));
+            } else if (this.isKeyword(keyword, "set")) {
+                statements.add(this.assignment(keyword));
+            } else if (this.isKeyword(keyword, "sort")) {
+                statements.add(this.sort(keyword));
+            } else {
+                throw this.error(keyword, "Expected param, filter, set, sort or '}', found " + keyword);
+            }
+            this.expect(TokenType.SYMBOL, ";");
+        }
+        return new RuleDefinition(nameToken.getText(), priority, channel, commutative, parameters, statements);
+    }
+
+    private Statement assignment(final Token keyword) {
+        List<Expression.Attribute> targets = new ArrayList<>();
+        List<Expression> values = new ArrayList<>();
+        do {
+            Token target = this.identifier();
+            targets.add(new Expression.Attribute(target.getText(), target.getLine(), target.getColumn()));
+            this.expect(TokenType.SYMBOL, "=");
+            values.add(this.expression());
+        } while (this.accept(TokenType.SYMBOL, ","));
+        Expression condition = this.acceptKeyword("when") ? this.expression() : null;
+        return new Statement.Assignment(targets, values, condition, keyword.getLine(), keyword.getColumn());
+    }
+
+    private Statement sort(final Token keyword) {
+        List<Expression.Attribute> keys = new ArrayList<>();
+        List<Boolean> descending = new ArrayList<>();
+        do {
+            Token key = this.identifier();
+            keys.add(new Expression.Attribute(key.getText(), key.getLine(), key.getColumn()));
+            boolean desc = this.acceptKeyword("desc");
+            if (!desc) {
+                this.acceptKeyword("asc");
+            }
+            descending.add(Boolean.valueOf(desc));
+        } while (this.accept(TokenType.SYMBOL, ","));
+        return new Statement.Sort(keys, descending, keyword.getLine(), keyword.getColumn());
+    }
+
+    // expression := and ('or' and)*
+    private Expression expression() {
+        Expression result = this.and();
+        while (this.peekKeyword("or")) {
+            Token operator = this.next();
+            result = new Expression.Binary("or", result, this.and(), operator.getLine(), operator.getColumn());
+        }
+        return result;
+    }
+
+    // and := not ('and' not)*
+    private Expression and() {
+        Expression result = this.not();
+        while (this.peekKeyword("and")) {
+            Token operator = this.next();
+            result = new Expression.Binary("and", result, this.not(), operator.getLine(), operator.getColumn());
+        }
+        return result;
+    }
+
+    // not := 'not' not | comparison
+    private Expression not() {
+        if (this.peekKeyword("not")) {
+            Token operator = this.next();
+            return new Expression.Unary("not", this.not(), operator.getLine(), operator.getColumn());
+        }
+        return this.comparison();
+    }
+
+    // comparison := additive (('==' | '!=' | '<' | '<=' | '>' | '>=') additive)?
+    private Expression comparison() {
+        Expression result = this.additive();
+        Token operator = this.peek();
+        if (operator.getType() == TokenType.SYMBOL && Arrays.asList("==", "!=", "<", "<=", ">", ">=")
+            .contains(operator.getText())) {
+            this.next();
+            result = new Expression.Binary(operator.getText(), result, this.additive(), operator.getLine(),
+                    operator.getColumn());
+        }
+        return result;
+    }
+
+    // additive := multiplicative (('+' | '-') multiplicative)*
+    private Expression additive() {
+        Expression result = this.multiplicative();
+        while (this.peek().is(TokenType.SYMBOL, "+") || this.peek().is(TokenType.SYMBOL, "-")) {
+            Token operator = this.next();
+            result = new Expression.Binary(operator.getText(), result, this.multiplicative(), operator.getLine(),
+                    operator.getColumn());
+        }
+        return result;
+    }
+
+    // multiplicative := unary (('*' | '/' | '%') unary)*
+    private Expression multiplicative() {
+        Expression result = this.unary();
+        while (this.peek().is(TokenType.SYMBOL, "*") || this.peek().is(TokenType.SYMBOL, "/")
+                || this.peek().is(TokenType.SYMBOL, "%")) {
+            Token operator = this.next();
+            result = new Expression.Binary(operator.getText(), result, this.unary(), operator.getLine(),
+                    operator.getColumn());
+        }
+        return result;
+    }
+
+    // unary := '-' unary | primary
+    private Expression unary() {
+        if (this.peek().is(TokenType.SYMBOL, "-")) {
+            Token operator = this.next();
+            Expression operand = this.unary();
+            if (operand instanceof Expression.Literal) {
+                // Negative literals stay literals, for the parameter defaults.
+                return new Expression.Literal(new Expression.Unary("-", operand, operator.getLine(),
+                        operator.getColumn()).compile(null).getValue(), operator.getLine(), operator.getColumn());
+            }
+            return new Expression.Unary("-", operand, operator.getLine(), operator.getColumn());
+        }
+        return this.primary();
+    }
+
+    // primary := number | string | 'true' | 'false' | 'null' | attribute | $parameter | '(' expression ')'
+    private Expression primary() {
+        Token token = this.next();
+        switch (token.getType()) {
+            case NUMBER:
+                return new Expression.Literal(this.number(token), token.getLine(), token.getColumn());
+            case STRING:
+                return new Expression.Literal(token.getText(), token.getLine(), token.getColumn());
+            case PARAMETER:
+                return new Expression.Parameter(token.getText(), token.getLine(), token.getColumn());
+            case IDENTIFIER:
+                if ("true".equals(token.getText()) || "false".equals(token.getText())) {
+                    return new Expression.Literal(Boolean.valueOf(token.getText()), token.getLine(),
+                            token.getColumn());
+                } else if ("null".equals(token.getText())) {
+                    return new Expression.Literal(null, token.getLine(), token.getColumn());
+                } else if (KEYWORDS.contains(token.getText())) {
+                    throw this.error(token, "Expression expected, found " + token);
+                }
+                return new Expression.Attribute(token.getText(), token.getLine(), token.getColumn());
+            default:
+                if (token.is(TokenType.SYMBOL, "(")) {
+                    Expression result = this.expression();
+                    this.expect(TokenType.SYMBOL, ")");
+                    return result;
+                }
+                throw this.error(token, "Expression expected, found " + token);
+        }
+    }
+
+    /**
+     * Value of a number: int if it fits, long, or double with a decimal point.
+     */
+    private Object number(final Token token) {
+        if (token.getType() != TokenType.NUMBER) {
+            throw this.error(token, "Number expected, found " + token);
+        }
+        String text = token.getText();
+        try {
+            if (text.indexOf('.') >= 0) {
+                return Double.valueOf(text);
+            }
+            long value = Long.parseLong(text);
+            return value <= Integer.MAX_VALUE ? (Object) Integer.valueOf((int) value) : (Object) Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw this.error(token, "Number out of range " + text);
+        }
+    }
+
+    private Token identifier() {
+        Token token = this.next();
+        if (token.getType() != TokenType.IDENTIFIER || KEYWORDS.contains(token.getText())) {
+            throw this.error(token, "Attribute name expected, found " + token);
+        }
+        return token;
+    }
+
+    private Token peek() {
+        return this.tokens.get(this.position);
+    }
+
+    private Token next() {
+        Token token = this.tokens.get(this.position);
+        if (token.getType() != TokenType.END) {
+            this.position++;
+        }
+        return token;
+    }
+
+    private boolean accept(final TokenType type, final String text) {
+        if (this.peek().is(type, text)) {
+            this.position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(final TokenType type, final String text) {
+        Token token = this.peek();
+        if (!this.accept(type, text)) {
+            throw this.error(token, "Expected '" + text + "', found " + token);
+        }
+    }
+
+    private boolean isKeyword(final Token token, final String keyword) {
+        return token.is(TokenType.IDENTIFIER, keyword);
+    }
+
+    private boolean peekKeyword(final String keyword) {
+        return this.isKeyword(this.peek(), keyword);
+    }
+
+    private boolean acceptKeyword(final String keyword) {
+        return this.accept(TokenType.IDENTIFIER, keyword);
+    }
+
+    private void expectKeyword(final String keyword) {
+        Token token = this.peek();
+        if (!this.acceptKeyword(keyword)) {
+            throw this.error(token, "Expected " + keyword + ", found " + token);
+        }
+    }
+
+    private RuleSyntaxException error(final Token token, final String message) {
+        return new RuleSyntaxException(message, token.getLine(), token.getColumn());
+    }
+
+}
@@ -0,0 +1,48 @@
+package org.sbol.projects.engine.rules.dsl;
+
+/**
+ * Error in the source of the rules, either of syntax or of types, at a line and column of the source.
+ *
+ * @author david.ralluy
+ *
+ */
+public class RuleSyntaxException extends IllegalArgumentException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int line;
+
+    private final int column;
+
+    /**
+     * Constructor.
+     *
+     * @param message Error description
+     * @param line Line, from 1
+     * @param column Column, from 1
+     */
+    public RuleSyntaxException(final String message, final int line, final int column) {
+        super(line + ":" + column + ": " + message);
+        this.line = line;
+        this.column = column;
+    }
+
+    /**
+     * Line of the error.
+     *
+     * @return Line, from 1
+     */
+    public int getLine() {
+        return this.line;
+    }
+
+    /**
+     * Column of the error.
+     *
+     * @return Column, from 1
+     */
+    public int getColumn() {
+        return this.column;
+    }
+
+}
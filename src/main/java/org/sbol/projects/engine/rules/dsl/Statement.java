@@ -0,0 +1,178 @@
+package org.sbol.projects.engine.rules.dsl;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import org.sbol.projects.engine.rules.StreamRule;
+
+/**
+ * Statement of a rule, compiled into a typed stream rule ({@link StreamRule#filtered}, {@link StreamRule#peeked},
+ * {@link StreamRule#sorted}), so the engine optimizes it like any other rule.
+ *
+ * @author david.ralluy
+ *
+ */
+abstract class Statement {
+
+    private final int line;
+
+    private final int column;
+
+    Statement(final int line, final int column) {
+        this.line = line;
+        this.column = column;
+    }
+
+    /**
+     * Compile the statement.
+     *
+     * @param context Compilation context
+     * @param <T> Item type
+     * @return Stream rule
+     */
+    abstract <T> StreamRule<T> compile(CompilationContext<T> context);
+
+    RuleSyntaxException error(final String message) {
+        return new RuleSyntaxException(message, this.line, this.column);
+    }
+
+    /**
+     * <code>filter condition;</code> keeps the items matching the condition.
+     */
+    static final class Filter extends Statement {
+
+        private final Expression condition;
+
+        Filter(final Expression condition, final int line, final int column) {
+            super(line, column);
+            this.condition = condition;
+        }
+
+        @Override
+        <T> StreamRule<T> compile(final CompilationContext<T> context) {
+            return StreamRule.filtered(Statement.condition(this.condition, context));
+        }
+    }
+
+    /**
+     * <code>set attribute = value, ... [when condition];</code> updates the attributes of the items, of those matching
+     * the condition if any. Assignments run in order, so a value sees the previous assignments.
+     */
+    static final class Assignment extends Statement {
+
+        private final List<Expression.Attribute> targets;
+
+        private final List<Expression> values;
+
+        private final Expression condition;
+
+        Assignment(final List<Expression.Attribute> targets, final List<Expression> values,
+                final Expression condition, final int line, final int column) {
+            super(line, column);
+            this.targets = targets;
+            this.values = values;
+            this.condition = condition;
+        }
+
+        @Override
+        <T> StreamRule<T> compile(final CompilationContext<T> context) {
+            List<Consumer<T>> actions = new ArrayList<>(this.targets.size());
+            for (int i = 0; i < this.targets.size(); i++) {
+                Expression.Attribute target = this.targets.get(i);
+                Property<T> property = context.property(target.getName(), target.getLine(), target.getColumn());
+                if (!property.isWritable()) {
+                    throw target.error("Attribute " + target.getName() + " is read only");
+                }
+                TypedExpression<T> value = this.values.get(i).compile(context);
+                Consumer<T> action = property.write(value);
+                if (action == null) {
+                    throw this.values.get(i).error("Cannot assign " + value.getType() + " to " + target.getName()
+                            + " of type " + property.getType());
+                }
+                actions.add(action);
+            }
+            Consumer<T> action = Statement.sequence(actions);
+            if (this.condition == null) {
+                return StreamRule.peeked(action);
+            }
+            Predicate<T> predicate = Statement.condition(this.condition, context);
+            return StreamRule.peeked(p -> {
+                if (predicate.test(p)) {
+                    action.accept(p);
+                }
+            });
+        }
+    }
+
+    /**
+     * <code>sort attribute [asc|desc], ...;</code> orders the items by the attributes.
+     */
+    static final class Sort extends Statement {
+
+        private final List<Expression.Attribute> keys;
+
+        private final List<Boolean> descending;
+
+        Sort(final List<Expression.Attribute> keys, final List<Boolean> descending, final int line,
+                final int column) {
+            super(line, column);
+            this.keys = keys;
+            this.descending = descending;
+        }
+
+        @Override
+        <T> StreamRule<T> compile(final CompilationContext<T> context) {
+            Comparator<T> comparator = null;
+            for (int i = 0; i < this.keys.size(); i++) {
+                Comparator<T> key = Sort.key(this.keys.get(i).compile(context));
+                if (this.descending.get(i).booleanValue()) {
+                    key = key.reversed();
+                }
+                comparator = comparator == null ? key : comparator.thenComparing(key);
+            }
+            return StreamRule.sorted(comparator);
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes" })
+        private static <T> Comparator<T> key(final TypedExpression<T> value) {
+            switch (value.getType()) {
+                case INT:
+                    return Comparator.comparingInt(value.asInt());
+                case LONG:
+                    return Comparator.comparingLong(value.asLong());
+                case DOUBLE:
+                    return Comparator.comparingDouble(value.asDouble());
+                default:
+                    // Strings, booleans and other comparable values, nulls first.
+                    Function<T, Comparable> function = (Function) value.asObject();
+                    return Comparator.comparing(function, Comparator.nullsFirst(Comparator.naturalOrder()));
+            }
+        }
+    }
+
+    private static <T> Predicate<T> condition(final Expression condition, final CompilationContext<T> context) {
+        TypedExpression<T> value = condition.compile(context);
+        if (value.getType() != ValueType.BOOLEAN) {
+            throw condition.error("Condition must be boolean, found " + value.getType());
+        }
+        return value.asBoolean();
+    }
+
+    private static <T> Consumer<T> sequence(final List<Consumer<T>> actions) {
+        if (actions.size() == 1) {
+            return actions.get(0);
+        }
+        @SuppressWarnings("unchecked")
+        Consumer<T>[] steps = actions.toArray(new Consumer[actions.size()]);
+        return p -> {
+            for (Consumer<T> step : steps) {
+                step.accept(p);
+            }
+        };
+    }
+
+}
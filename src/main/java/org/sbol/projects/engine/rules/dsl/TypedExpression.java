@@ -0,0 +1,166 @@
+package org.sbol.projects.engine.rules.dsl;
+
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Compiled expression: a function of the item, of the primitive functional interface of its type, so evaluating it
+ * doesn't box. Expressions without attributes are constants, folded at compile time.
+ *
+ * @author david.ralluy
+ *
+ * @param <T> Item type
+ */
+final class TypedExpression<T> {
+
+    private final ValueType type;
+
+    // ToIntFunction, ToLongFunction, ToDoubleFunction, Predicate or Function, by type.
+    private final Object function;
+
+    private final boolean constant;
+
+    private final Object value;
+
+    private TypedExpression(final ValueType type, final Object function, final boolean constant, final Object value) {
+        this.type = type;
+        this.function = function;
+        this.constant = constant;
+        this.value = value;
+    }
+
+    static <T> TypedExpression<T> ofInt(final ToIntFunction<T> function) {
+        return new TypedExpression<>(ValueType.INT, function, false, null);
+    }
+
+    static <T> TypedExpression<T> ofLong(final ToLongFunction<T> function) {
+        return new TypedExpression<>(ValueType.LONG, function, false, null);
+    }
+
+    static <T> TypedExpression<T> ofDouble(final ToDoubleFunction<T> function) {
+        return new TypedExpression<>(ValueType.DOUBLE, function, false, null);
+    }
+
+    static <T> TypedExpression<T> ofBoolean(final Predicate<T> function) {
+        return new TypedExpression<>(ValueType.BOOLEAN, function, false, null);
+    }
+
+    static <T> TypedExpression<T> ofObject(final ValueType type, final Function<T, Object> function) {
+        return new TypedExpression<>(type, function, false, null);
+    }
+
+    /**
+     * Constant expression.
+     *
+     * @param value Value, may be null
+     * @param <T> Item type
+     * @return Expression
+     */
+    static <T> TypedExpression<T> constant(final Object value) {
+        ValueType type = value == null ? ValueType.OBJECT : ValueType.of(value);
+        Object function;
+        switch (type) {
+            case INT:
+                int intValue = ((Number) value).intValue();
+                function = (ToIntFunction<T>) p -> intValue;
+                break;
+            case LONG:
+                long longValue = ((Number) value).longValue();
+                function = (ToLongFunction<T>) p -> longValue;
+                break;
+            case DOUBLE:
+                double doubleValue = ((Number) value).doubleValue();
+                function = (ToDoubleFunction<T>) p -> doubleValue;
+                break;
+            case BOOLEAN:
+                boolean booleanValue = ((Boolean) value).booleanValue();
+                function = (Predicate<T>) p -> booleanValue;
+                break;
+            default:
+                function = (Function<T, Object>) p -> value;
+        }
+        return new TypedExpression<>(type, function, true, value);
+    }
+
+    ValueType getType() {
+        return this.type;
+    }
+
+    boolean isConstant() {
+        return this.constant;
+    }
+
+    Object getValue() {
+        return this.value;
+    }
+
+    @SuppressWarnings("unchecked")
+    ToIntFunction<T> asInt() {
+        if (this.type != ValueType.INT) {
+            throw new IllegalStateException("Not an int expression: " + this.type);
+        }
+        return (ToIntFunction<T>) this.function;
+    }
+
+    @SuppressWarnings("unchecked")
+    ToLongFunction<T> asLong() {
+        if (this.type == ValueType.INT) {
+            ToIntFunction<T> intFunction = this.asInt();
+            return p -> intFunction.applyAsInt(p);
+        } else if (this.type != ValueType.LONG) {
+            throw new IllegalStateException("Not a long expression: " + this.type);
+        }
+        return (ToLongFunction<T>) this.function;
+    }
+
+    @SuppressWarnings("unchecked")
+    ToDoubleFunction<T> asDouble() {
+        if (this.type == ValueType.INT) {
+            ToIntFunction<T> intFunction = this.asInt();
+            return p -> intFunction.applyAsInt(p);
+        } else if (this.type == ValueType.LONG) {
+            ToLongFunction<T> longFunction = this.asLong();
+            return p -> longFunction.applyAsLong(p);
+        } else if (this.type != ValueType.DOUBLE) {
+            throw new IllegalStateException("Not a double expression: " + this.type);
+        }
+        return (ToDoubleFunction<T>) this.function;
+    }
+
+    @SuppressWarnings("unchecked")
+    Predicate<T> asBoolean() {
+        if (this.type != ValueType.BOOLEAN) {
+            throw new IllegalStateException("Not a boolean expression: " + this.type);
+        }
+        return (Predicate<T>) this.function;
+    }
+
+    /**
+     * Function giving the value boxed, for any type.
+     *
+     * @return Function
+     */
+    @SuppressWarnings("unchecked")
+    Function<T, Object> asObject() {
+        switch (this.type) {
+            case INT:
+                ToIntFunction<T> intFunction = this.asInt();
+                return p -> Integer.valueOf(intFunction.applyAsInt(p));
+            case LONG:
+                ToLongFunction<T> longFunction = this.asLong();
+                return p -> Long.valueOf(longFunction.applyAsLong(p));
+            case DOUBLE:
+                ToDoubleFunction<T> doubleFunction = this.asDouble();
+                return p -> Double.valueOf(doubleFunction.applyAsDouble(p));
+            case BOOLEAN:
+                Predicate<T> predicate = this.asBoolean();
+                return p -> Boolean.valueOf(predicate.test(p));
+            default:
+                return (Function<T, Object>) this.function;
+        }
+    }
+
+}
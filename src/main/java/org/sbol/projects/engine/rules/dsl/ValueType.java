@@ -0,0 +1,50 @@
+package org.sbol.projects.engine.rules.dsl;
+
+/**
+ * Type of an expression of the rules. Numeric types are ordered by width: operations are done in the widest type of
+ * their operands.
+ *
+ * @author david.ralluy
+ *
+ */
+enum ValueType {
+
+    INT, LONG, DOUBLE, BOOLEAN, STRING, OBJECT;
+
+    boolean isNumeric() {
+        return this == INT || this == LONG || this == DOUBLE;
+    }
+
+    /**
+     * Type of an operation between two numeric types.
+     *
+     * @param first First operand type
+     * @param second Second operand type
+     * @return Widest type
+     */
+    static ValueType widest(final ValueType first, final ValueType second) {
+        return first.ordinal() >= second.ordinal() ? first : second;
+    }
+
+    /**
+     * Type of a value.
+     *
+     * @param value Value
+     * @return Type
+     */
+    static ValueType of(final Object value) {
+        if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return INT;
+        } else if (value instanceof Long) {
+            return LONG;
+        } else if (value instanceof Double || value instanceof Float) {
+            return DOUBLE;
+        } else if (value instanceof Boolean) {
+            return BOOLEAN;
+        } else if (value instanceof String) {
+            return STRING;
+        }
+        return OBJECT;
+    }
+
+}
@@ -0,0 +1,251 @@
+package org.sbol.projects.engine.rules.metrics;
+
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.sbol.projects.engine.rules.RuleKind;
+import org.sbol.projects.engine.rules.StreamRule;
+
+/**
+ * Rule over the whole stream recording its executions. Nothing is materialized: the items are counted as they flow
+ * in and out of the rule, and the latency recorded is the time spent inside the rule, without the work of the rules
+ * it pulls the items from nor of the ones consuming its result. The execution gets recorded once its result has
+ * been consumed, or when the stream is closed. In parallel the time is summed over the threads.
+ *
+ * @author david.ralluy
+ *
+ * @param <T> Item type
+ */
+final class InstrumentedRule<T> implements StreamRule<T> {
+
+    private final StreamRule<T> rule;
+
+    private final RuleMetrics metrics;
+
+    /**
+     * Constructor.
+     *
+     * @param rule Rule to instrument
+     * @param metrics Metrics of the rule
+     */
+    InstrumentedRule(final StreamRule<T> rule, final RuleMetrics metrics) {
+        this.rule = rule;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Stream<T> apply(final Stream<T> stream) {
+        boolean parallel = stream.isParallel();
+        Execution execution = new Execution(this.metrics);
+        return StreamSupport.stream(() -> {
+            // Some rules start pulling their input as soon as they are applied.
+            long start = System.nanoTime();
+            Stream<T> input = StreamSupport.stream(new Input<>(stream.spliterator(), execution), parallel);
+            Spliterator<T> output = this.rule.apply(input).spliterator();
+            execution.spent.add(System.nanoTime() - start);
+            return new Output<>(output, execution);
+        }, Spliterator.ORDERED, parallel).onClose(() -> {
+            stream.close();
+            execution.record();
+        });
+    }
+
+    @Override
+    public RuleKind getKind() {
+        return this.rule.getKind();
+    }
+
+    @Override
+    public boolean isBuffering() {
+        return this.rule.isBuffering();
+    }
+
+    /**
+     * Counters of an execution of the rule.
+     */
+    private static final class Execution {
+
+        private final RuleMetrics metrics;
+
+        private final LongAdder in = new LongAdder();
+
+        private final LongAdder out = new LongAdder();
+
+        // Time inside the rule, including the work of the rules it pulls from.
+        private final LongAdder spent = new LongAdder();
+
+        // Work of the rules the rule pulls from.
+        private final LongAdder upstream = new LongAdder();
+
+        // Parts of the result not consumed yet.
+        private final AtomicInteger pending = new AtomicInteger(1);
+
+        private final AtomicBoolean recorded = new AtomicBoolean();
+
+        Execution(final RuleMetrics metrics) {
+            this.metrics = metrics;
+        }
+
+        void consumed() {
+            if (this.pending.decrementAndGet() == 0) {
+                this.record();
+            }
+        }
+
+        void record() {
+            if (this.recorded.compareAndSet(false, true)) {
+                this.metrics.record(this.in.sum(), this.out.sum(),
+                        Math.max(this.spent.sum() - this.upstream.sum(), 0L));
+            }
+        }
+    }
+
+    /**
+     * Input of the rule, timing the rules it comes from.
+     */
+    private static final class Input<T> implements Spliterator<T>, Consumer<T> {
+
+        private final Spliterator<T> spliterator;
+
+        private final Execution execution;
+
+        private Consumer<? super T> action;
+
+        private long actionNanos;
+
+        Input(final Spliterator<T> spliterator, final Execution execution) {
+            this.spliterator = spliterator;
+            this.execution = execution;
+        }
+
+        @Override
+        public boolean tryAdvance(final Consumer<? super T> consumer) {
+            this.action = consumer;
+            this.actionNanos = 0L;
+            long start = System.nanoTime();
+            boolean advanced = this.spliterator.tryAdvance(this);
+            this.execution.upstream.add(System.nanoTime() - start - this.actionNanos);
+            return advanced;
+        }
+
+        @Override
+        public void forEachRemaining(final Consumer<? super T> consumer) {
+            this.action = consumer;
+            this.actionNanos = 0L;
+            long start = System.nanoTime();
+            this.spliterator.forEachRemaining(this);
+            this.execution.upstream.add(System.nanoTime() - start - this.actionNanos);
+        }
+
+        @Override
+        public void accept(final T item) {
+            this.execution.in.increment();
+            long start = System.nanoTime();
+            this.action.accept(item);
+            this.actionNanos += System.nanoTime() - start;
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            Spliterator<T> split = this.spliterator.trySplit();
+            return split == null ? null : new Input<>(split, this.execution);
+        }
+
+        @Override
+        public long estimateSize() {
+            return this.spliterator.estimateSize();
+        }
+
+        @Override
+        public int characteristics() {
+            // Without the comparator of a sorted source.
+            return this.spliterator.characteristics() & ~Spliterator.SORTED;
+        }
+    }
+
+    /**
+     * Output of the rule, timing the rule without the consumers of its result.
+     */
+    private static final class Output<T> implements Spliterator<T>, Consumer<T> {
+
+        private final Spliterator<T> spliterator;
+
+        private final Execution execution;
+
+        private Consumer<? super T> action;
+
+        private long actionNanos;
+
+        private boolean consumed;
+
+        Output(final Spliterator<T> spliterator, final Execution execution) {
+            this.spliterator = spliterator;
+            this.execution = execution;
+        }
+
+        @Override
+        public boolean tryAdvance(final Consumer<? super T> consumer) {
+            this.action = consumer;
+            this.actionNanos = 0L;
+            long start = System.nanoTime();
+            boolean advanced = this.spliterator.tryAdvance(this);
+            this.execution.spent.add(System.nanoTime() - start - this.actionNanos);
+            if (!advanced) {
+                this.consumed();
+            }
+            return advanced;
+        }
+
+        @Override
+        public void forEachRemaining(final Consumer<? super T> consumer) {
+            this.action = consumer;
+            this.actionNanos = 0L;
+            long start = System.nanoTime();
+            this.spliterator.forEachRemaining(this);
+            this.execution.spent.add(System.nanoTime() - start - this.actionNanos);
+            this.consumed();
+        }
+
+        @Override
+        public void accept(final T item) {
+            this.execution.out.increment();
+            long start = System.nanoTime();
+            this.action.accept(item);
+            this.actionNanos += System.nanoTime() - start;
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            Spliterator<T> split = this.spliterator.trySplit();
+            if (split == null) {
+                return null;
+            }
+            this.execution.pending.incrementAndGet();
+            return new Output<>(split, this.execution);
+        }
+
+        @Override
+        public long estimateSize() {
+            return this.spliterator.estimateSize();
+        }
+
+        @Override
+        public int characteristics() {
+            // Without the comparator of a sorted source.
+            return this.spliterator.characteristics() & ~Spliterator.SORTED;
+        }
+
+        private void consumed() {
+            if (!this.consumed) {
+                this.consumed = true;
+                this.execution.consumed();
+            }
+        }
+    }
+
+}
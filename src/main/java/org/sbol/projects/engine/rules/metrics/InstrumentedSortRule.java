@@ -0,0 +1,62 @@
+package org.sbol.projects.engine.rules.metrics;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.sbol.projects.engine.rules.SortRule;
+import org.sbol.projects.engine.rules.StreamRule;
+
+/**
+ * Sort rule recording every sort. It is still a sort to the engine, so it gets merged with the sorts next to it,
+ * recording under the last one, and becomes a partial sort for a page.
+ *
+ * @author david.ralluy
+ *
+ * @param <T> Item type
+ */
+final class InstrumentedSortRule<T> extends SortRule<T> {
+
+    private final RuleMetrics metrics;
+
+    /**
+     * Constructor.
+     *
+     * @param comparator Order of the items
+     * @param metrics Metrics of the rule
+     */
+    InstrumentedSortRule(final Comparator<T> comparator, final RuleMetrics metrics) {
+        super(comparator);
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Stream<T> apply(final Stream<T> stream) {
+        // The sort runs when the result gets consumed, as it does inside a chain.
+        boolean parallel = stream.isParallel();
+        return StreamSupport.stream(() -> this.sort(stream.collect(Collectors.toList()), parallel).spliterator(),
+                Spliterator.ORDERED, parallel).onClose(stream::close);
+    }
+
+    @Override
+    public Stream<T> sort(final List<T> buffer, final boolean parallel) {
+        long start = System.nanoTime();
+        Stream<T> sorted = super.sort(buffer, parallel);
+        this.metrics.record(buffer.size(), buffer.size(), System.nanoTime() - start);
+        return sorted;
+    }
+
+    @Override
+    public SortRule<T> withComparator(final Comparator<T> order) {
+        return new InstrumentedSortRule<>(order, this.metrics);
+    }
+
+    @Override
+    public StreamRule<T> top(final int offset, final int limit) {
+        return new InstrumentedRule<>(super.top(offset, limit), this.metrics);
+    }
+
+}
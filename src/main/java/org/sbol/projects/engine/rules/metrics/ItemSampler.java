@@ -0,0 +1,155 @@
+package org.sbol.projects.engine.rules.metrics;
+
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+import org.sbol.projects.engine.rules.ItemRule;
+import org.sbol.projects.engine.rules.RuleKind;
+
+/**
+ * Function of a per item rule recording every item it evaluates. Only one evaluation in
+ * {@link RuleMetrics#SAMPLE_RATE} is timed, so the rule keeps running item by item at nearly its own cost.
+ *
+ * @author david.ralluy
+ *
+ */
+abstract class ItemSampler {
+
+    private final RuleMetrics metrics;
+
+    // Sampling counter. Lost updates between threads only move the sample, so it needs no synchronization.
+    private int tick;
+
+    /**
+     * Constructor.
+     *
+     * @param metrics Metrics of the rule
+     */
+    ItemSampler(final RuleMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Indicates if the next evaluation gets timed.
+     *
+     * @return Timed S/N
+     */
+    final boolean sampled() {
+        return (++this.tick & (RuleMetrics.SAMPLE_RATE - 1)) == 0;
+    }
+
+    /**
+     * Record an evaluation.
+     *
+     * @param kept The item goes on through the stream S/N
+     * @param start Start of the evaluation, if timed
+     * @param timed Timed S/N
+     */
+    final void record(final boolean kept, final long start, final boolean timed) {
+        if (timed) {
+            this.metrics.recordSample(System.nanoTime() - start);
+        }
+        this.metrics.recordItem(kept);
+    }
+
+    /**
+     * Predicate of a filter rule.
+     */
+    static final class Filter<T> extends ItemSampler implements Predicate<T> {
+
+        private final Predicate<T> predicate;
+
+        Filter(final Predicate<T> predicate, final RuleMetrics metrics) {
+            super(metrics);
+            this.predicate = predicate;
+        }
+
+        @Override
+        public boolean test(final T item) {
+            boolean timed = this.sampled();
+            long start = timed ? System.nanoTime() : 0L;
+            boolean kept = this.predicate.test(item);
+            this.record(kept, start, timed);
+            return kept;
+        }
+    }
+
+    /**
+     * Action of a peek rule.
+     */
+    static final class Action<T> extends ItemSampler implements Consumer<T> {
+
+        private final Consumer<T> action;
+
+        Action(final Consumer<T> action, final RuleMetrics metrics) {
+            super(metrics);
+            this.action = action;
+        }
+
+        @Override
+        public void accept(final T item) {
+            boolean timed = this.sampled();
+            long start = timed ? System.nanoTime() : 0L;
+            this.action.accept(item);
+            this.record(true, start, timed);
+        }
+    }
+
+    /**
+     * Mapper of a map rule. A null result discards the item.
+     */
+    static final class Mapper<T> extends ItemSampler implements UnaryOperator<T> {
+
+        private final UnaryOperator<T> mapper;
+
+        Mapper(final UnaryOperator<T> mapper, final RuleMetrics metrics) {
+            super(metrics);
+            this.mapper = mapper;
+        }
+
+        @Override
+        public T apply(final T item) {
+            boolean timed = this.sampled();
+            long start = timed ? System.nanoTime() : 0L;
+            T result = this.mapper.apply(item);
+            this.record(result != null, start, timed);
+            return result;
+        }
+    }
+
+    /**
+     * Any other per item rule, applied item by item also over a stream.
+     */
+    static final class Item<T> extends ItemSampler implements ItemRule<T> {
+
+        private final ItemRule<T> rule;
+
+        Item(final ItemRule<T> rule, final RuleMetrics metrics) {
+            super(metrics);
+            this.rule = rule;
+        }
+
+        @Override
+        public Stream<T> apply(final Stream<T> stream) {
+            return stream.map(this::applyTo).filter(Objects::nonNull);
+        }
+
+        @Override
+        public T applyTo(final T item) {
+            boolean timed = this.sampled();
+            long start = timed ? System.nanoTime() : 0L;
+            T result = this.rule.applyTo(item);
+            this.record(result != null, start, timed);
+            return result;
+        }
+
+        @Override
+        public RuleKind getKind() {
+            return this.rule.getKind();
+        }
+    }
+
+}
@@ -0,0 +1,58 @@
+package org.sbol.projects.engine.rules.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency histogram with a bucket per power of two of nanoseconds. Recording is lock free and the memory is fixed,
+ * at the cost of reporting percentiles as the upper bound of their bucket.
+ *
+ * @author david.ralluy
+ *
+ */
+public final class LatencyHistogram {
+
+    private static final int BUCKETS = Long.SIZE + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(LatencyHistogram.BUCKETS);
+
+    /**
+     * Record a latency.
+     *
+     * @param nanos Latency in nanoseconds
+     */
+    public void record(final long nanos) {
+        this.counts.incrementAndGet(Long.SIZE - Long.numberOfLeadingZeros(Math.max(nanos, 0L)));
+    }
+
+    /**
+     * Latency below which a ratio of the records fall.
+     *
+     * @param ratio Ratio, between 0 and 1
+     * @return Upper bound of the latency in nanoseconds, 0 without records
+     */
+    public long percentile(final double ratio) {
+        long total = 0L;
+        for (int i = 0; i < LatencyHistogram.BUCKETS; i++) {
+            total += this.counts.get(i);
+        }
+        long target = (long) Math.ceil(total * ratio);
+        long accumulated = 0L;
+        for (int i = 0; i < LatencyHistogram.BUCKETS; i++) {
+            accumulated += this.counts.get(i);
+            if (accumulated > 0 && accumulated >= target) {
+                return i == 0 ? 0L : i >= Long.SIZE - 1 ? Long.MAX_VALUE : (1L << i) - 1;
+            }
+        }
+        return 0L;
+    }
+
+    /**
+     * Remove all the records.
+     */
+    public void reset() {
+        for (int i = 0; i < LatencyHistogram.BUCKETS; i++) {
+            this.counts.set(i, 0L);
+        }
+    }
+
+}
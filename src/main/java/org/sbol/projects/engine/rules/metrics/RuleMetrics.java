@@ -0,0 +1,110 @@
+package org.sbol.projects.engine.rules.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.sbol.projects.engine.constants.Channel;
+
+/**
+ * Execution metrics of a rule in a channel. A per item rule records every item it evaluates as an execution, timing
+ * only one evaluation in {@link #SAMPLE_RATE}; a rule over the whole stream records every stream it runs over.
+ *
+ * @author david.ralluy
+ *
+ */
+public final class RuleMetrics {
+
+    /**
+     * Item evaluations per timed evaluation. Power of two.
+     */
+    static final int SAMPLE_RATE = 64;
+
+    private static final double P50 = 0.5;
+    private static final double P90 = 0.9;
+    private static final double P99 = 0.99;
+
+    private final String rule;
+
+    private final Channel channel;
+
+    private final LongAdder invocations = new LongAdder();
+
+    private final LongAdder itemsIn = new LongAdder();
+
+    private final LongAdder itemsOut = new LongAdder();
+
+    private final LongAdder totalNanos = new LongAdder();
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    /**
+     * Constructor.
+     *
+     * @param rule Rule name
+     * @param channel Channel
+     */
+    RuleMetrics(final String rule, final Channel channel) {
+        this.rule = rule;
+        this.channel = channel;
+    }
+
+    /**
+     * Record an execution of the rule.
+     *
+     * @param in Items in
+     * @param out Items out
+     * @param nanos Latency in nanoseconds
+     */
+    public void record(final long in, final long out, final long nanos) {
+        this.invocations.increment();
+        this.itemsIn.add(in);
+        this.itemsOut.add(out);
+        this.totalNanos.add(nanos);
+        this.latency.record(nanos);
+    }
+
+    /**
+     * Record an item evaluated by a per item rule.
+     *
+     * @param kept The item goes on through the stream S/N
+     */
+    public void recordItem(final boolean kept) {
+        this.invocations.increment();
+        this.itemsIn.increment();
+        if (kept) {
+            this.itemsOut.increment();
+        }
+    }
+
+    /**
+     * Record the latency of a timed item evaluation, standing for the evaluations of its sample.
+     *
+     * @param nanos Latency in nanoseconds
+     */
+    public void recordSample(final long nanos) {
+        this.totalNanos.add(nanos * RuleMetrics.SAMPLE_RATE);
+        this.latency.record(nanos);
+    }
+
+    /**
+     * Current values.
+     *
+     * @return Statistics
+     */
+    public RuleStatistics getStatistics() {
+        return new RuleStatistics(this.rule, this.channel.name(), this.invocations.sum(), this.itemsIn.sum(),
+                this.itemsOut.sum(), this.totalNanos.sum(), this.latency.percentile(RuleMetrics.P50),
+                this.latency.percentile(RuleMetrics.P90), this.latency.percentile(RuleMetrics.P99));
+    }
+
+    /**
+     * Remove all the records.
+     */
+    public void reset() {
+        this.invocations.reset();
+        this.itemsIn.reset();
+        this.itemsOut.reset();
+        this.totalNanos.reset();
+        this.latency.reset();
+    }
+
+}
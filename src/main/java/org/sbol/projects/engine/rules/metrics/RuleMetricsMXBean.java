@@ -0,0 +1,25 @@
+package org.sbol.projects.engine.rules.metrics;
+
+import java.util.List;
+
+/**
+ * JMX view of the rule execution metrics.
+ *
+ * @author david.ralluy
+ *
+ */
+public interface RuleMetricsMXBean {
+
+    /**
+     * Metrics of every rule and channel executed, the most expensive first.
+     *
+     * @return Statistics
+     */
+    List<RuleStatistics> getStatistics();
+
+    /**
+     * Remove all the records.
+     */
+    void reset();
+
+}
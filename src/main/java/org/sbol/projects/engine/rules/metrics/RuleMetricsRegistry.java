@@ -0,0 +1,165 @@
+package org.sbol.projects.engine.rules.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.sbol.projects.engine.constants.Channel;
+import org.sbol.projects.engine.exceptions.EngineRuleException;
+import org.sbol.projects.engine.rules.FilterRule;
+import org.sbol.projects.engine.rules.ItemRule;
+import org.sbol.projects.engine.rules.MapRule;
+import org.sbol.projects.engine.rules.PeekRule;
+import org.sbol.projects.engine.rules.SortRule;
+import org.sbol.projects.engine.rules.StreamRule;
+import org.sbol.projects.engine.rules.threshold.ThresholdRule;
+
+/**
+ * Registry of the execution metrics of every rule and channel.
+ *
+ * A manager with a registry compiles its chains with every rule instrumented; without it the chains are compiled as
+ * usual, with no cost at all. A per item rule keeps its shape, with its function recording every item, so the chain
+ * measured runs as the plain one does. A channel sharing the chain of its parent records under the parent channel.
+ *
+ * @author david.ralluy
+ *
+ */
+public class RuleMetricsRegistry implements RuleMetricsMXBean {
+
+    /**
+     * JMX domain of the registries.
+     */
+    public static final String JMX_DOMAIN = "org.sbol.projects.engine";
+
+    private final Map<String, Map<Channel, RuleMetrics>> metrics = new ConcurrentHashMap<>();
+
+    private ObjectName objectName;
+
+    /**
+     * Metrics of a rule in a channel.
+     *
+     * @param rule Rule name
+     * @param channel Channel
+     * @return Metrics
+     */
+    public RuleMetrics getMetrics(final String rule, final Channel channel) {
+        return this.metrics.computeIfAbsent(rule, p -> new ConcurrentHashMap<>()).computeIfAbsent(channel,
+                p -> new RuleMetrics(rule, channel));
+    }
+
+    /**
+     * Instrumented version of a rule, of the same kind. Per item rules record every item, timing a sample of them; a
+     * threshold rule records the items its action runs on. Sorts and the rest of the rules record every stream.
+     *
+     * @param name Rule name
+     * @param channel Channel
+     * @param rule Rule
+     * @param <T> Item type
+     * @return Rule recording its executions
+     */
+    public <T> StreamRule<T> instrument(final String name, final Channel channel, final StreamRule<T> rule) {
+        RuleMetrics ruleMetrics = this.getMetrics(name, channel);
+        if (rule instanceof FilterRule) {
+            return new FilterRule<>(new ItemSampler.Filter<>(((FilterRule<T>) rule).getPredicate(), ruleMetrics));
+        } else if (rule instanceof PeekRule) {
+            return new PeekRule<>(new ItemSampler.Action<>(((PeekRule<T>) rule).getAction(), ruleMetrics));
+        } else if (rule instanceof MapRule) {
+            return new MapRule<>(new ItemSampler.Mapper<>(((MapRule<T>) rule).getMapper(), ruleMetrics));
+        } else if (rule instanceof ThresholdRule) {
+            ThresholdRule<T> threshold = (ThresholdRule<T>) rule;
+            return new ThresholdRule<>(threshold.getAttribute(), threshold.getOperator(), threshold::getThreshold,
+                    new ItemSampler.Action<>(threshold.getAction(), ruleMetrics));
+        } else if (rule instanceof ItemRule) {
+            return new ItemSampler.Item<>((ItemRule<T>) rule, ruleMetrics);
+        } else if (rule instanceof SortRule) {
+            return new InstrumentedSortRule<>(((SortRule<T>) rule).getComparator(), ruleMetrics);
+        }
+        return new InstrumentedRule<>(rule, ruleMetrics);
+    }
+
+    /**
+     * Drop the metrics of the rules not in a rule set.
+     *
+     * @param rules Names of the rules of the set
+     */
+    public void retainRules(final Collection<String> rules) {
+        this.metrics.keySet().retainAll(rules);
+    }
+
+    /**
+     * Metrics of a rule in a channel.
+     *
+     * @param rule Rule name
+     * @param channel Channel
+     * @return Statistics, null if the rule never ran in the channel
+     */
+    public RuleStatistics getStatistics(final String rule, final Channel channel) {
+        Map<Channel, RuleMetrics> channels = this.metrics.get(rule);
+        RuleMetrics ruleMetrics = channels == null ? null : channels.get(channel);
+        return ruleMetrics == null ? null : ruleMetrics.getStatistics();
+    }
+
+    @Override
+    public List<RuleStatistics> getStatistics() {
+        List<RuleStatistics> statistics = new ArrayList<>();
+        for (Map<Channel, RuleMetrics> channels : this.metrics.values()) {
+            for (RuleMetrics ruleMetrics : channels.values()) {
+                statistics.add(ruleMetrics.getStatistics());
+            }
+        }
+        statistics.sort(Comparator.comparingLong(RuleStatistics::getTotalNanos).reversed());
+        return statistics;
+    }
+
+    @Override
+    public void reset() {
+        for (Map<Channel, RuleMetrics> channels : this.metrics.values()) {
+            for (RuleMetrics ruleMetrics : channels.values()) {
+                ruleMetrics.reset();
+            }
+        }
+    }
+
+    /**
+     * Register the registry in the platform MBean server.
+     *
+     * @param name Name of the registry, usually the item type
+     * @throws EngineRuleException Error registering
+     */
+    public synchronized void registerMBean(final String name) throws EngineRuleException {
+        try {
+            ObjectName lName = new ObjectName(RuleMetricsRegistry.JMX_DOMAIN + ":type=RuleMetrics,name=" + name);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, lName);
+            this.objectName = lName;
+        } catch (JMException e) {
+            throw new EngineRuleException(e);
+        }
+    }
+
+    /**
+     * Unregister the registry from the platform MBean server.
+     *
+     * @throws EngineRuleException Error unregistering
+     */
+    public synchronized void unregisterMBean() throws EngineRuleException {
+        if (this.objectName == null) {
+            return;
+        }
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.unregisterMBean(this.objectName);
+            this.objectName = null;
+        } catch (JMException e) {
+            throw new EngineRuleException(e);
+        }
+    }
+
+}
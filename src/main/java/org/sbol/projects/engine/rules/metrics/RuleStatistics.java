@@ -0,0 +1,79 @@
+package org.sbol.projects.engine.rules.metrics;
+
+import java.beans.ConstructorProperties;
+
+import lombok.Getter;
+
+/**
+ * Values of the execution metrics of a rule in a channel at a point in time. Latencies are in nanoseconds, per item
+ * for the per item rules and per stream for the rest.
+ *
+ * @author david.ralluy
+ *
+ */
+@Getter
+public final class RuleStatistics {
+
+    private final String rule;
+
+    private final String channel;
+
+    private final long invocations;
+
+    private final long itemsIn;
+
+    private final long itemsOut;
+
+    private final long totalNanos;
+
+    private final long p50Nanos;
+
+    private final long p90Nanos;
+
+    private final long p99Nanos;
+
+    /**
+     * Constructor.
+     *
+     * @param rule Rule name
+     * @param channel Channel
+     * @param invocations Executions: items evaluated, or streams for the rules over the whole stream
+     * @param itemsIn Items in
+     * @param itemsOut Items out
+     * @param totalNanos Cumulative latency
+     * @param p50Nanos Latency percentile 50
+     * @param p90Nanos Latency percentile 90
+     * @param p99Nanos Latency percentile 99
+     */
+    @ConstructorProperties({ "rule", "channel", "invocations", "itemsIn", "itemsOut", "totalNanos", "p50Nanos",
+            "p90Nanos", "p99Nanos" })
+    public RuleStatistics(final String rule, final String channel, final long invocations, final long itemsIn,
+            final long itemsOut, final long totalNanos, final long p50Nanos, final long p90Nanos, final long p99Nanos) {
+        this.rule = rule;
+        this.channel = channel;
+        this.invocations = invocations;
+        this.itemsIn = itemsIn;
+        this.itemsOut = itemsOut;
+        this.totalNanos = totalNanos;
+        this.p50Nanos = p50Nanos;
+        this.p90Nanos = p90Nanos;
+        this.p99Nanos = p99Nanos;
+    }
+
+    /**
+     * Ratio of the items kept by the rule.
+     *
+     * @return Selectivity, 1 without items
+     */
+    public double getSelectivity() {
+        return this.itemsIn == 0 ? 1.0 : (double) this.itemsOut / this.itemsIn;
+    }
+
+    @Override
+    public String toString() {
+        return this.rule + "@" + this.channel + " [invocations=" + this.invocations + ", in=" + this.itemsIn
+                + ", out=" + this.itemsOut + ", total=" + this.totalNanos + "ns, p50=" + this.p50Nanos + "ns, p90="
+                + this.p90Nanos + "ns, p99=" + this.p99Nanos + "ns]";
+    }
+
+}
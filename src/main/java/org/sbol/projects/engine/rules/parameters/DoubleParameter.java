@@ -0,0 +1,30 @@
+package org.sbol.projects.engine.rules.parameters;
+
+/**
+ * Typed handle for a double rule parameter.
+ *
+ * @author david.ralluy
+ *
+ */
+public final class DoubleParameter extends RuleParameter {
+
+    /**
+     * Constructor.
+     *
+     * @param name Parameter name
+     */
+    public DoubleParameter(final String name) {
+        super(name);
+    }
+
+    /**
+     * Value of the parameter in a version of the parameters.
+     *
+     * @param parameters Parameters version
+     * @return Value
+     */
+    public double get(final RuleParameters parameters) {
+        return this.number(parameters).doubleValue();
+    }
+
+}
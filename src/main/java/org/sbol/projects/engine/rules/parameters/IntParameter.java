@@ -0,0 +1,30 @@
+package org.sbol.projects.engine.rules.parameters;
+
+/**
+ * Typed handle for a int rule parameter.
+ *
+ * @author david.ralluy
+ *
+ */
+public final class IntParameter extends RuleParameter {
+
+    /**
+     * Constructor.
+     *
+     * @param name Parameter name
+     */
+    public IntParameter(final String name) {
+        super(name);
+    }
+
+    /**
+     * Value of the parameter in a version of the parameters.
+     *
+     * @param parameters Parameters version
+     * @return Value
+     */
+    public int get(final RuleParameters parameters) {
+        return this.number(parameters).intValue();
+    }
+
+}
@@ -0,0 +1,30 @@
+package org.sbol.projects.engine.rules.parameters;
+
+/**
+ * Typed handle for a long rule parameter.
+ *
+ * @author david.ralluy
+ *
+ */
+public final class LongParameter extends RuleParameter {
+
+    /**
+     * Constructor.
+     *
+     * @param name Parameter name
+     */
+    public LongParameter(final String name) {
+        super(name);
+    }
+
+    /**
+     * Value of the parameter in a version of the parameters.
+     *
+     * @param parameters Parameters version
+     * @return Value
+     */
+    public long get(final RuleParameters parameters) {
+        return this.number(parameters).longValue();
+    }
+
+}
@@ -0,0 +1,40 @@
+package org.sbol.projects.engine.rules.parameters;
+
+/**
+ * Typed handle for a rule parameter of any class.
+ *
+ * @author david.ralluy
+ *
+ * @param <V> Value type
+ */
+public final class ObjectParameter<V> extends RuleParameter {
+
+    private final Class<V> type;
+
+    /**
+     * Constructor.
+     *
+     * @param name Parameter name
+     * @param type Value type
+     */
+    public ObjectParameter(final String name, final Class<V> type) {
+        super(name);
+        this.type = type;
+    }
+
+    /**
+     * Value of the parameter in a version of the parameters.
+     *
+     * @param parameters Parameters version
+     * @return Value
+     */
+    public V get(final RuleParameters parameters) {
+        Object value = this.value(parameters);
+        if (!this.type.isInstance(value)) {
+            throw new IllegalArgumentException("Parameter " + this.getName() + " is not a " + this.type.getSimpleName()
+                    + ": " + value);
+        }
+        return this.type.cast(value);
+    }
+
+}
@@ -0,0 +1,65 @@
+package org.sbol.projects.engine.rules.parameters;
+
+/**
+ * Typed handle for a rule parameter. The value gets resolved once, when the rule is defined, instead of looking it
+ * up in a map for every item.
+ *
+ * @author david.ralluy
+ *
+ */
+public abstract class RuleParameter {
+
+    private final String name;
+
+    /**
+     * Constructor.
+     *
+     * @param name Parameter name
+     */
+    protected RuleParameter(final String name) {
+        this.name = name;
+    }
+
+    /**
+     * Parameter name.
+     *
+     * @return Name
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Value of the parameter in a version of the parameters.
+     *
+     * @param parameters Parameters version
+     * @return Value
+     */
+    protected Object value(final RuleParameters parameters) {
+        Object value = parameters == null ? null : parameters.get(this.name);
+        if (value == null) {
+            throw new IllegalArgumentException("Parameter not defined: " + this.name);
+        }
+        return value;
+    }
+
+    /**
+     * Numeric value of the parameter in a version of the parameters.
+     *
+     * @param parameters Parameters version
+     * @return Value
+     */
+    protected Number number(final RuleParameters parameters) {
+        Object value = this.value(parameters);
+        if (!(value instanceof Number)) {
+            throw new IllegalArgumentException("Parameter " + this.name + " is not numeric: " + value);
+        }
+        return (Number) value;
+    }
+
+    @Override
+    public String toString() {
+        return this.name;
+    }
+
+}
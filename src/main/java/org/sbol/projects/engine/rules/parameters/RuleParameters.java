@@ -0,0 +1,80 @@
+package org.sbol.projects.engine.rules.parameters;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Immutable version of the parameters of a rule. An update never changes a version: it builds the next one, which
+ * gets published as a whole, so a reader never sees a half applied update.
+ *
+ * @author david.ralluy
+ *
+ */
+public final class RuleParameters {
+
+    private final long version;
+
+    private final Map<String, Object> values;
+
+    private RuleParameters(final long version, final Map<String, Object> values) {
+        this.version = version;
+        this.values = Collections.unmodifiableMap(values);
+    }
+
+    /**
+     * First version of the parameters.
+     *
+     * @param values Parameter values by name
+     * @return Parameters
+     */
+    public static RuleParameters of(final Map<String, Object> values) {
+        return new RuleParameters(1L, new HashMap<>(values));
+    }
+
+    /**
+     * Next version of the parameters. Only the parameters already defined get updated, the others are ignored.
+     *
+     * @param updates Parameter values by name
+     * @return New version
+     */
+    public RuleParameters with(final Map<String, Object> updates) {
+        Map<String, Object> next = new HashMap<>(this.values);
+        for (Entry<String, Object> parameter : this.values.entrySet()) {
+            if (updates.containsKey(parameter.getKey())) {
+                next.put(parameter.getKey(), updates.get(parameter.getKey()));
+            }
+        }
+        return new RuleParameters(this.version + 1, next);
+    }
+
+    /**
+     * Parameters version.
+     *
+     * @return Version
+     */
+    public long getVersion() {
+        return this.version;
+    }
+
+    /**
+     * Parameter value.
+     *
+     * @param name Parameter name
+     * @return Value, null if not defined
+     */
+    public Object get(final String name) {
+        return this.values.get(name);
+    }
+
+    /**
+     * Parameter values by name, read only.
+     *
+     * @return Values
+     */
+    public Map<String, Object> asMap() {
+        return this.values;
+    }
+
+}
@@ -0,0 +1,64 @@
+package org.sbol.projects.engine.rules.threshold;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Numeric attribute of an item, readable by the engine. Two attributes with the same name are the same attribute, so
+ * the rules declared over it can share an index.
+ *
+ * @author david.ralluy
+ *
+ * @param <T> Item type
+ */
+public final class NumericAttribute<T> {
+
+    private final String name;
+
+    private final ToDoubleFunction<T> accessor;
+
+    /**
+     * Constructor.
+     *
+     * @param name Attribute name
+     * @param accessor Attribute value of an item
+     */
+    public NumericAttribute(final String name, final ToDoubleFunction<T> accessor) {
+        this.name = name;
+        this.accessor = accessor;
+    }
+
+    /**
+     * Attribute value of an item.
+     *
+     * @param item Item
+     * @return Value
+     */
+    public double valueOf(final T item) {
+        return this.accessor.applyAsDouble(item);
+    }
+
+    /**
+     * Attribute name.
+     *
+     * @return Name
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        return obj instanceof NumericAttribute && this.name.equals(((NumericAttribute<?>) obj).name);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.name.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return this.name;
+    }
+
+}
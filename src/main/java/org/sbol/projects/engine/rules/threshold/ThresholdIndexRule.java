@@ -0,0 +1,214 @@
+package org.sbol.projects.engine.rules.threshold;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.sbol.projects.engine.rules.ItemRule;
+import org.sbol.projects.engine.rules.RuleKind;
+
+/**
+ * Index of consecutive threshold rules over the same attribute. The thresholds are kept sorted per operator, so the
+ * rules matching an item are found with a binary search, O(log R), instead of testing the R conditions.
+ * The matching actions run in the original order of the rules. If an action changes the attribute, the remaining
+ * rules are looked up again with the new value, so the result is the same as applying the rules one by one.
+ * The thresholds are read when the index is built.
+ *
+ * @author david.ralluy
+ *
+ * @param <T> Item type
+ */
+public class ThresholdIndexRule<T> implements ItemRule<T> {
+
+    private static final int[] NO_MATCHES = new int[0];
+
+    private final NumericAttribute<T> attribute;
+
+    private final List<ThresholdRule<T>> rules;
+
+    private final Consumer<T>[] actions;
+
+    private final Map<ThresholdOperator, double[]> thresholds = new EnumMap<>(ThresholdOperator.class);
+
+    private final Map<ThresholdOperator, int[]> positions = new EnumMap<>(ThresholdOperator.class);
+
+    /**
+     * Constructor.
+     *
+     * @param rules Threshold rules over the same attribute, in execution order
+     */
+    @SuppressWarnings("unchecked")
+    public ThresholdIndexRule(final List<ThresholdRule<T>> rules) {
+        this.attribute = rules.get(0).getAttribute();
+        this.rules = Collections.unmodifiableList(new ArrayList<>(rules));
+        this.actions = new Consumer[rules.size()];
+
+        Map<ThresholdOperator, List<double[]>> entries = new EnumMap<>(ThresholdOperator.class);
+        for (int i = 0; i < rules.size(); i++) {
+            ThresholdRule<T> rule = rules.get(i);
+            if (!this.attribute.equals(rule.getAttribute())) {
+                throw new IllegalArgumentException("Rule over " + rule.getAttribute() + " in an index over "
+                        + this.attribute);
+            }
+            this.actions[i] = rule.getAction();
+            if (Double.isNaN(rule.getThreshold())) {
+                // No value is comparable with NaN: the rule never matches.
+                continue;
+            }
+            entries.computeIfAbsent(rule.getOperator(), o -> new ArrayList<>()).add(
+                    new double[] { rule.getThreshold(), i });
+        }
+
+        for (Map.Entry<ThresholdOperator, List<double[]>> entry : entries.entrySet()) {
+            List<double[]> sorted = entry.getValue();
+            sorted.sort((e1, e2) -> Double.compare(e1[0], e2[0]));
+            double[] values = new double[sorted.size()];
+            int[] indexes = new int[sorted.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = sorted.get(i)[0];
+                indexes[i] = (int) sorted.get(i)[1];
+            }
+            this.thresholds.put(entry.getKey(), values);
+            this.positions.put(entry.getKey(), indexes);
+        }
+    }
+
+    @Override
+    public Stream<T> apply(final Stream<T> stream) {
+        return stream.peek(this::applyTo);
+    }
+
+    @Override
+    public T applyTo(final T item) {
+        double value = this.attribute.valueOf(item);
+        int[] matched = this.match(value, -1);
+        for (int i = 0; i < matched.length; i++) {
+            int position = matched[i];
+            this.actions[position].accept(item);
+            double updated = this.attribute.valueOf(item);
+            if (Double.compare(updated, value) != 0) {
+                value = updated;
+                matched = this.match(value, position);
+                i = -1;
+            }
+        }
+        return item;
+    }
+
+    @Override
+    public RuleKind getKind() {
+        return RuleKind.PEEK;
+    }
+
+    /**
+     * Rules in the index, in execution order.
+     *
+     * @return Rules
+     */
+    public List<ThresholdRule<T>> getRules() {
+        return this.rules;
+    }
+
+    /**
+     * Attribute of the index.
+     *
+     * @return Attribute
+     */
+    public NumericAttribute<T> getAttribute() {
+        return this.attribute;
+    }
+
+    /**
+     * Rules matching a value, after a given position.
+     *
+     * @param value Attribute value
+     * @param from Last position already applied
+     * @return Positions of the matching rules, in execution order
+     */
+    private int[] match(final double value, final int from) {
+        if (Double.isNaN(value)) {
+            return ThresholdIndexRule.NO_MATCHES;
+        }
+        int[] result = ThresholdIndexRule.NO_MATCHES;
+        int count = 0;
+        for (Map.Entry<ThresholdOperator, double[]> entry : this.thresholds.entrySet()) {
+            double[] values = entry.getValue();
+            int start;
+            int end;
+            switch (entry.getKey()) {
+            case GREATER:
+                start = 0;
+                end = ThresholdIndexRule.lowerBound(values, value);
+                break;
+            case GREATER_OR_EQUAL:
+                start = 0;
+                end = ThresholdIndexRule.upperBound(values, value);
+                break;
+            case LESS:
+                start = ThresholdIndexRule.upperBound(values, value);
+                end = values.length;
+                break;
+            default:
+                start = ThresholdIndexRule.lowerBound(values, value);
+                end = values.length;
+                break;
+            }
+            if (start < end) {
+                int[] indexes = this.positions.get(entry.getKey());
+                if (result.length < count + end - start) {
+                    result = Arrays.copyOf(result, count + end - start);
+                }
+                for (int i = start; i < end; i++) {
+                    if (indexes[i] > from) {
+                        result[count++] = indexes[i];
+                    }
+                }
+            }
+        }
+        if (count == 0) {
+            return ThresholdIndexRule.NO_MATCHES;
+        }
+        Arrays.sort(result, 0, count);
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    /**
+     * First position with a threshold not less than the value.
+     */
+    private static int lowerBound(final double[] values, final double value) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (values[middle] < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * First position with a threshold greater than the value.
+     */
+    private static int upperBound(final double[] values, final double value) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (values[middle] <= value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+}
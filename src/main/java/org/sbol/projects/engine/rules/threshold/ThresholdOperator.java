@@ -0,0 +1,51 @@
+package org.sbol.projects.engine.rules.threshold;
+
+/**
+ * Comparison of an attribute value against a threshold.
+ *
+ * @author david.ralluy
+ *
+ */
+public enum ThresholdOperator {
+
+    /**
+     * value &gt; threshold.
+     */
+    GREATER,
+
+    /**
+     * value &gt;= threshold.
+     */
+    GREATER_OR_EQUAL,
+
+    /**
+     * value &lt; threshold.
+     */
+    LESS,
+
+    /**
+     * value &lt;= threshold.
+     */
+    LESS_OR_EQUAL;
+
+    /**
+     * Comparison of a value against a threshold.
+     *
+     * @param value Attribute value
+     * @param threshold Threshold
+     * @return Matches S/N
+     */
+    public boolean matches(final double value, final double threshold) {
+        switch (this) {
+        case GREATER:
+            return value > threshold;
+        case GREATER_OR_EQUAL:
+            return value >= threshold;
+        case LESS:
+            return value < threshold;
+        default:
+            return value <= threshold;
+        }
+    }
+
+}
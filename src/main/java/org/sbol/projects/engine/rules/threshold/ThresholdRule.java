@@ -0,0 +1,105 @@
+package org.sbol.projects.engine.rules.threshold;
+
+import java.util.function.Consumer;
+import java.util.function.DoubleSupplier;
+import java.util.stream.Stream;
+
+import org.sbol.projects.engine.rules.ItemRule;
+import org.sbol.projects.engine.rules.RuleKind;
+
+/**
+ * Per item rule with a numeric condition: "if attribute OPERATOR threshold then action".
+ * The condition is declared, instead of hidden inside a lambda, so the engine can compile all the consecutive rules
+ * over the same attribute into a single {@link ThresholdIndexRule}.
+ * The threshold is read when the rule is applied or compiled, so it can come from the rule parameters.
+ *
+ * @author david.ralluy
+ *
+ * @param <T> Item type
+ */
+public class ThresholdRule<T> implements ItemRule<T> {
+
+    private final NumericAttribute<T> attribute;
+
+    private final ThresholdOperator operator;
+
+    private final DoubleSupplier threshold;
+
+    private final Consumer<T> action;
+
+    /**
+     * Constructor.
+     *
+     * @param attribute Attribute of the condition
+     * @param operator Comparison
+     * @param threshold Threshold of the condition
+     * @param action Action for the items matching the condition
+     */
+    public ThresholdRule(final NumericAttribute<T> attribute, final ThresholdOperator operator,
+            final DoubleSupplier threshold, final Consumer<T> action) {
+        this.attribute = attribute;
+        this.operator = operator;
+        this.threshold = threshold;
+        this.action = action;
+    }
+
+    @Override
+    public Stream<T> apply(final Stream<T> stream) {
+        double limit = this.threshold.getAsDouble();
+        return stream.peek(p -> {
+            if (this.operator.matches(this.attribute.valueOf(p), limit)) {
+                this.action.accept(p);
+            }
+        });
+    }
+
+    @Override
+    public T applyTo(final T item) {
+        if (this.operator.matches(this.attribute.valueOf(item), this.threshold.getAsDouble())) {
+            this.action.accept(item);
+        }
+        return item;
+    }
+
+    @Override
+    public RuleKind getKind() {
+        return RuleKind.PEEK;
+    }
+
+    /**
+     * Attribute of the condition.
+     *
+     * @return Attribute
+     */
+    public NumericAttribute<T> getAttribute() {
+        return this.attribute;
+    }
+
+    /**
+     * Comparison.
+     *
+     * @return Operator
+     */
+    public ThresholdOperator getOperator() {
+        return this.operator;
+    }
+
+    /**
+     * Current threshold of the condition.
+     *
+     * @return Threshold
+     */
+    public double getThreshold() {
+        return this.threshold.getAsDouble();
+    }
+
+    /**
+     * Action for the items matching the condition.
+     *
+     * @return Action
+     */
+    public Consumer<T> getAction() {
+        return this.action;
+    }
+
+}
@@ -6,6 +6,7 @@ import java.net.URL;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.util.StreamUtils;
 
 import com.amazonaws.auth.ClasspathPropertiesFileCredentialsProvider;
 import com.amazonaws.regions.Region;
@@ -24,6 +25,10 @@ public class S3ClassLoader extends ClassLoader {
 
     private static Logger logger = LoggerFactory.getLogger(S3ClassLoader.class);
 
+    static {
+        ClassLoader.registerAsParallelCapable();
+    }
+
     private static final String S3_URL_PREFIX = "https://s3.amazonaws.com/";
 
     private AmazonS3Client s3;
@@ -75,18 +80,13 @@ public class S3ClassLoader extends ClassLoader {
     }
 
     private byte[] getClassBytes(final String key) throws ClassNotFoundException {
-        try {
-            int contentLength = (int) this.s3.getObjectMetadata(this.bucketName, key).getContentLength();
-            byte[] bytes = new byte[contentLength];
-            int bytesCount = this.getResourceAsStream(key).read(bytes);
-            if (bytesCount > 0) {
-                return bytes;
-            }
+        // A single request, read to the end: a single read may return only part of the object.
+        try (InputStream input = this.getResourceAsStream(key)) {
+            return StreamUtils.copyToByteArray(input);
         } catch (Exception t) {
             throw new ClassNotFoundException(
                     "Unable to find class resource for key \"" + key + "\" in S3 Bucket \"" + this.bucketName + "\"",
                     t);
         }
-        return new byte[0];
     }
 }
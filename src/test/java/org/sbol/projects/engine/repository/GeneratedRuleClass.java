@@ -0,0 +1,101 @@
+package org.sbol.projects.engine.repository;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import org.springframework.asm.ClassWriter;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+
+/**
+ * Class files of rules unknown to the test classpath: an empty subclass of a rule, so it can only be loaded from a
+ * repository.
+ *
+ * @author david.ralluy
+ *
+ */
+public final class GeneratedRuleClass {
+
+    private GeneratedRuleClass() {
+        // Utility class
+    }
+
+    /**
+     * Class file of an empty subclass.
+     *
+     * @param className Binary name of the subclass
+     * @param parent Parent class, with a public constructor without arguments
+     * @return Class file bytes
+     */
+    public static byte[] subclass(final String className, final Class<?> parent) {
+        return GeneratedRuleClass.subclass(className, parent, null);
+    }
+
+    /**
+     * Class file of an empty subclass of a rule, renaming the rule in its constructor.
+     *
+     * @param className Binary name of the subclass
+     * @param parent Parent rule, with a public constructor without arguments
+     * @param ruleName Rule name, null to keep the parent one
+     * @return Class file bytes
+     */
+    public static byte[] subclass(final String className, final Class<?> parent, final String ruleName) {
+        String parentName = parent.getName().replace('.', '/');
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, className.replace('.', '/'), null,
+                parentName, null);
+        MethodVisitor constructor = writer.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+        constructor.visitCode();
+        constructor.visitVarInsn(Opcodes.ALOAD, 0);
+        constructor.visitMethodInsn(Opcodes.INVOKESPECIAL, parentName, "<init>", "()V", false);
+        if (ruleName != null) {
+            constructor.visitVarInsn(Opcodes.ALOAD, 0);
+            constructor.visitLdcInsn(ruleName);
+            constructor.visitMethodInsn(Opcodes.INVOKEVIRTUAL, parentName, "setName", "(Ljava/lang/String;)V", false);
+        }
+        constructor.visitInsn(Opcodes.RETURN);
+        constructor.visitMaxs(0, 0);
+        constructor.visitEnd();
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    /**
+     * Jar of class files.
+     *
+     * @param classes Class file bytes by binary class name
+     * @return Jar bytes
+     * @throws IOException Error writing the jar
+     */
+    public static byte[] jar(final Map<String, byte[]> classes) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (JarOutputStream jar = new JarOutputStream(bytes)) {
+            for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+                jar.putNextEntry(new JarEntry(RuleRepository.classFile(entry.getKey())));
+                jar.write(entry.getValue());
+                jar.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Write a class file under a classpath root.
+     *
+     * @param root Classpath root
+     * @param className Binary class name
+     * @param bytes Class file bytes
+     * @throws IOException Error writing the file
+     */
+    public static void write(final Path root, final String className, final byte[] bytes) throws IOException {
+        Path file = root.resolve(RuleRepository.classFile(className));
+        Files.createDirectories(file.getParent());
+        Files.write(file, bytes);
+    }
+
+}
@@ -0,0 +1,189 @@
+package org.sbol.projects.engine.repository;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.sbol.projects.engine.rules.BusinessRule;
+import org.sbol.projects.engine.rules.CodedItemRule;
+
+/**
+ * Rule repositories tests.
+ *
+ * @author david.ralluy
+ *
+ */
+@RunWith(JUnit4.class)
+public class RuleRepositoryTest {
+
+    private static final String RULE_CLASS = "org.sbol.projects.engine.repository.generated.CodedItemSubRule";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Classes are loaded from a classpath directory and from a jar.
+     *
+     * @throws Exception Error loading the class
+     */
+    @Test
+    public void fileSystemAndJarTest() throws Exception {
+        byte[] bytes = GeneratedRuleClass.subclass(RULE_CLASS, CodedItemRule.class);
+        Path root = this.folder.newFolder("classes").toPath();
+        GeneratedRuleClass.write(root, RULE_CLASS, bytes);
+        FileSystemRuleRepository fileSystem = new FileSystemRuleRepository(root);
+        assertArrayEquals(bytes, fileSystem.load(RULE_CLASS));
+
+        ClassLoader loader = new RepositoryClassLoader(fileSystem, this.getClass().getClassLoader());
+        BusinessRule<?> rule = (BusinessRule<?>) loader.loadClass(RULE_CLASS).newInstance();
+        assertEquals("codigoRule", rule.getName());
+        assertTrue(rule.getClass().getClassLoader() == loader);
+
+        Path jar = this.folder.getRoot().toPath().resolve("rules.jar");
+        try (JarOutputStream output = new JarOutputStream(Files.newOutputStream(jar))) {
+            output.putNextEntry(new JarEntry(RuleRepository.classFile(RULE_CLASS)));
+            output.write(bytes);
+            output.closeEntry();
+        }
+        try (JarRuleRepository packaged = new JarRuleRepository(jar)) {
+            assertArrayEquals(bytes, packaged.load(RULE_CLASS));
+            assertNotFound(packaged, "org.sbol.Missing");
+        }
+        assertNotFound(fileSystem, "org.sbol.Missing");
+    }
+
+    /**
+     * The cache serves repeated loads and loads after a restart from disk, and loads again corrupted entries.
+     *
+     * @throws Exception Error loading the class
+     */
+    @Test
+    public void cacheTest() throws Exception {
+        byte[] bytes = GeneratedRuleClass.subclass(RULE_CLASS, CodedItemRule.class);
+        AtomicInteger remoteLoads = new AtomicInteger();
+        RuleRepository remote = name -> {
+            remoteLoads.incrementAndGet();
+            if (!RULE_CLASS.equals(name)) {
+                throw new ClassNotFoundException(name);
+            }
+            return bytes.clone();
+        };
+        Path root = this.folder.getRoot().toPath().resolve("cache");
+
+        CachingRuleRepository cache = new CachingRuleRepository(remote, root);
+        assertArrayEquals(bytes, cache.load(RULE_CLASS));
+        assertArrayEquals(bytes, cache.load(RULE_CLASS));
+        assertEquals(1, remoteLoads.get());
+        assertEquals(1L, cache.getHits());
+        assertEquals(1L, cache.getMisses());
+
+        // A new cache over the same directory, as after a restart.
+        CachingRuleRepository restarted = new CachingRuleRepository(remote, root);
+        assertArrayEquals(bytes, restarted.load(RULE_CLASS));
+        assertEquals(1, remoteLoads.get());
+
+        // Content addressed by its checksum.
+        Path object = root.resolve("objects").resolve(CachingRuleRepository.sha256(bytes).substring(0, 2))
+            .resolve(CachingRuleRepository.sha256(bytes));
+        assertArrayEquals(bytes, Files.readAllBytes(object));
+        try (OutputStream output = Files.newOutputStream(object)) {
+            output.write(new byte[] {0 });
+        }
+        assertArrayEquals(bytes, restarted.load(RULE_CLASS));
+        assertEquals(2, remoteLoads.get());
+        assertArrayEquals(bytes, Files.readAllBytes(object));
+
+        restarted.invalidate(RULE_CLASS);
+        assertArrayEquals(bytes, restarted.load(RULE_CLASS));
+        assertEquals(3, remoteLoads.get());
+
+        assertNotFound(restarted, "org.sbol.Missing");
+    }
+
+    /**
+     * An archive is read in a single pass and cached as a whole.
+     *
+     * @throws Exception Error reading the archive
+     */
+    @Test
+    public void archiveTest() throws Exception {
+        Map<String, byte[]> classes = new LinkedHashMap<>();
+        classes.put(RULE_CLASS, GeneratedRuleClass.subclass(RULE_CLASS, CodedItemRule.class));
+        classes.put(RULE_CLASS + "2", GeneratedRuleClass.subclass(RULE_CLASS + "2", CodedItemRule.class, "otra"));
+        Path root = this.folder.newFolder("archives").toPath();
+        Files.write(root.resolve("rules.jar"), GeneratedRuleClass.jar(classes));
+
+        AtomicInteger remoteReads = new AtomicInteger();
+        FileSystemRuleRepository fileSystem = new FileSystemRuleRepository(root);
+        RuleRepository remote = new RuleRepository() {
+
+            @Override
+            public byte[] load(final String className) throws ClassNotFoundException {
+                return fileSystem.load(className);
+            }
+
+            @Override
+            public InputStream openArchive(final String name) throws IOException {
+                remoteReads.incrementAndGet();
+                return fileSystem.openArchive(name);
+            }
+        };
+        CachingRuleRepository cache = new CachingRuleRepository(remote, this.folder.getRoot().toPath().resolve("c"));
+        for (int i = 0; i < 2; i++) {
+            try (InputStream input = cache.openArchive("rules.jar")) {
+                RuleArchive archive = RuleArchive.read(input);
+                assertEquals(classes.keySet(), archive.getClassNames());
+                assertArrayEquals(classes.get(RULE_CLASS), archive.load(RULE_CLASS));
+                assertNotFound(archive, "org.sbol.Missing");
+            }
+        }
+        assertEquals(1, remoteReads.get());
+        assertEquals(1L, cache.getHits());
+
+        // A republished archive is served once its entry is invalidated.
+        classes.remove(RULE_CLASS + "2");
+        Files.write(root.resolve("rules.jar"), GeneratedRuleClass.jar(classes));
+        try (InputStream input = cache.openArchive("rules.jar")) {
+            assertEquals(2, RuleArchive.read(input).getClassNames().size());
+        }
+        cache.invalidateArchive("rules.jar");
+        try (InputStream input = cache.openArchive("rules.jar")) {
+            assertEquals(classes.keySet(), RuleArchive.read(input).getClassNames());
+        }
+        assertEquals(2, remoteReads.get());
+
+        try {
+            cache.openArchive("missing.jar").close();
+            fail("Opened a missing archive");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("missing.jar"));
+        }
+    }
+
+    private static void assertNotFound(final RuleRepository repository, final String className) {
+        try {
+            repository.load(className);
+            fail("Loaded " + className);
+        } catch (ClassNotFoundException e) {
+            assertTrue(e.getMessage().contains(className));
+        }
+    }
+
+}
@@ -0,0 +1,48 @@
+package org.sbol.projects.engine.rules;
+
+import java.util.Map;
+import java.util.function.Function;
+
+import org.sbol.projects.engine.rules.annotations.Rule;
+
+/**
+ * Test rule that discards the items without code.
+ *
+ * @author david.ralluy
+ *
+ */
+@Rule(type = ItemCollection.class)
+public class CodedItemRule extends BusinessRule<ItemCollection> {
+
+    private static final int PRIORITY = 10;
+
+    /**
+     * Rule name.
+     */
+    public CodedItemRule() {
+        super("codigoRule", true, CodedItemRule.PRIORITY);
+    }
+
+    /**
+     * Regla que descarta los productos sin código.
+     */
+    @Override
+    public StreamRule<ItemCollection> defineRule() {
+        return StreamRule.filtered(p -> p.getCode() != null && !p.getCode().isEmpty());
+    }
+
+    @Override
+    public Map<String, Object> defineParameters() {
+        return null;
+    }
+
+    @Override
+    public Function<ItemCollection, ItemCollection> defineTransformation() {
+        return null;
+    }
+
+    @Override
+    protected ItemCollection internalProcess(final ItemCollection context) {
+        return null;
+    }
+}
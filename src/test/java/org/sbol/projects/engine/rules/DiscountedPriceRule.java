@@ -4,16 +4,21 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.function.Function;
 
+import org.sbol.projects.engine.rules.annotations.Rule;
+import org.sbol.projects.engine.rules.parameters.IntParameter;
+
 /**
  * Test discounted price rule.
  *
  * @author david.ralluy
  *
  */
+@Rule(type = ItemCollection.class)
 public class DiscountedPriceRule extends BusinessRule<ItemCollection> {
 
     private static final int PRICE_99 = 99;
     private static final int PRICE_100 = 100;
+    private static final IntParameter PRECIO = new IntParameter("precio");
 
     /**
      * Rule name.
@@ -27,8 +32,9 @@ public class DiscountedPriceRule extends BusinessRule<ItemCollection> {
      */
     @Override
     public StreamRule<ItemCollection> defineRule() {
+        int precio = DiscountedPriceRule.PRECIO.get(this.getParameterSet());
         return s -> s.peek(p -> {
-            if (p.getPrecio() > ((Integer) this.getParameters().get("precio")).intValue()) {
+            if (p.getPrecio() > precio) {
                 p.setPrecio(DiscountedPriceRule.PRICE_99);
             }
         });
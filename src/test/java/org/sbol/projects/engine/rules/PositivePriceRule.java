@@ -0,0 +1,48 @@
+package org.sbol.projects.engine.rules;
+
+import java.util.Map;
+import java.util.function.Function;
+
+import org.sbol.projects.engine.rules.annotations.Rule;
+
+/**
+ * Test rule that discards the items without price.
+ *
+ * @author david.ralluy
+ *
+ */
+@Rule(type = ItemCollection.class)
+public class PositivePriceRule extends BusinessRule<ItemCollection> {
+
+    private static final int PRIORITY = 10;
+
+    /**
+     * Rule name.
+     */
+    public PositivePriceRule() {
+        super("precioPositivoRule", true, PositivePriceRule.PRIORITY);
+    }
+
+    /**
+     * Regla que descarta los productos sin precio.
+     */
+    @Override
+    public StreamRule<ItemCollection> defineRule() {
+        return StreamRule.filtered(p -> p.getPrecio() > 0);
+    }
+
+    @Override
+    public Map<String, Object> defineParameters() {
+        return null;
+    }
+
+    @Override
+    public Function<ItemCollection, ItemCollection> defineTransformation() {
+        return null;
+    }
+
+    @Override
+    protected ItemCollection internalProcess(final ItemCollection context) {
+        return null;
+    }
+}
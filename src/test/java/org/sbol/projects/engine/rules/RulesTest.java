@@ -1,15 +1,27 @@
 package org.sbol.projects.engine.rules;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
+import org.sbol.projects.engine.constants.Channel;
 
 /**
  * Test rules creation.
@@ -22,6 +34,13 @@ public class RulesTest {
 
     private static final int PRICE_200 = 200;
     private static final int PRICE_100 = 100;
+    private static final int PRICE_150 = 150;
+    private static final int PRICE_99 = 99;
+    private static final int ITEMS = 50000;
+    private static final int THREADS = 4;
+    private static final int OFFSET = 7;
+    private static final int LIMIT = 5;
+    private static final int RULES = 10000;
 
     /**
      * Rules creation.
@@ -51,7 +70,14 @@ public class RulesTest {
     @Test
     public void updateRuleParametersTest() {
         DiscountedPriceRule rule = new DiscountedPriceRule();
-        Map<String, Object> params = rule.getParameters();
+        assertTrue(rule.getParameters() == rule.getParameters());
+        try {
+            rule.getParameters().put("precio", new Integer(RulesTest.PRICE_200));
+            fail("Parameters modified");
+        } catch (UnsupportedOperationException e) {
+            // Read only
+        }
+        Map<String, Object> params = new HashMap<>(rule.getParameters());
         assertEquals(new Integer(RulesTest.PRICE_100), params.get("precio"));
         params.put("precio", new Integer(RulesTest.PRICE_200));
         rule.updateParameters(params);
@@ -59,6 +85,157 @@ public class RulesTest {
         assertEquals(new Integer(RulesTest.PRICE_200), params.get("precio"));
     }
 
+    /**
+     * Typed parameters are resolved when the rule is defined, and every update publishes a new version.
+     */
+    @Test
+    public void typedParametersUpdateTest() {
+        DiscountedPriceRule rule = new DiscountedPriceRule();
+        ItemCollection item = new ItemCollection();
+        item.setPrecio(RulesTest.PRICE_150);
+        StreamRule<ItemCollection> previous = rule.getRule();
+        long version = rule.getParameterSet().getVersion();
+
+        Map<String, Object> params = new HashMap<>();
+        params.put("precio", Integer.valueOf(RulesTest.PRICE_200));
+        rule.updateParameters(params);
+        assertEquals(version + 1, rule.getParameterSet().getVersion());
+        assertEquals(RulesTest.PRICE_150, rule.getRule().apply(Stream.of(item)).findFirst().get().getPrecio());
+
+        // Rules defined with the previous version keep its values.
+        assertEquals(RulesTest.PRICE_99, previous.apply(Stream.of(item)).findFirst().get().getPrecio());
+    }
+
+    /**
+     * A value of the wrong type is rejected and the previous version is kept.
+     */
+    @Test
+    public void invalidParameterUpdateTest() {
+        DiscountedPriceRule rule = new DiscountedPriceRule();
+        StreamRule<ItemCollection> previous = rule.getRule();
+        Map<String, Object> params = new HashMap<>();
+        params.put("precio", "cien");
+        try {
+            rule.updateParameters(params);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals(Integer.valueOf(RulesTest.PRICE_100), rule.getParameters().get("precio"));
+            assertTrue(previous == rule.getRule());
+        }
+    }
+
+    /**
+     * A generated chain gives the same result as the plain one.
+     */
+    @Test
+    public void generatedChainTest() {
+        CriterionRuleFactory<ItemCollection> criterion = new CriterionRuleFactory<>();
+        criterion.setGenerated(true);
+        criterion.fromPredicate(p -> p.getPrecio() > 0, ItemCollection.class);
+        criterion.fromCriterion(StreamRule.peeked(p -> p.setCode("peeked")), ItemCollection.class);
+        criterion.fromPredicate(p -> p.getPrecio() < RulesTest.PRICE_150, ItemCollection.class);
+        criterion.fromCriterion(StreamRule.mapped(p -> p.getPrecio() == RulesTest.PRICE_99 ? null : p),
+                ItemCollection.class);
+        RuleChain<ItemCollection> chain = (RuleChain<ItemCollection>) criterion.build(ItemCollection.class);
+        assertTrue(chain.isGenerated());
+        assertEquals(4, chain.getStages().size());
+
+        List<ItemCollection> items = RulesTest.createItems(RulesTest.PRICE_200);
+        List<ItemCollection> result = chain.applyToAll(items);
+        assertEquals(items.stream().filter(p -> p.getPrecio() > 0 && p.getPrecio() < RulesTest.PRICE_150
+                && p.getPrecio() != RulesTest.PRICE_99).collect(Collectors.toList()), result);
+        assertTrue(result.stream().allMatch(p -> "peeked".equals(p.getCode())));
+
+        // Rules over the whole stream are not generated.
+        criterion.fromComparator((p1, p2) -> p1.getPrecio() - p2.getPrecio(), ItemCollection.class);
+        assertTrue(!((RuleChain<ItemCollection>) criterion.build(ItemCollection.class)).isGenerated());
+    }
+
+    /**
+     * A map returning null discards the item on every execution path: stream, parallel stream, loop, in place,
+     * generated chain and page.
+     *
+     * @throws InterruptedException Error executing the rules
+     */
+    @Test
+    public void mapDiscardsOnEveryPathTest() throws InterruptedException {
+        StreamRule<ItemCollection> map = StreamRule.mapped(p -> p.getPrecio() % 2 == 0 ? null : p);
+        List<Integer> expected = Arrays.asList(1, 3);
+        for (List<StreamRule<ItemCollection>> rules : Arrays.asList(Collections.singletonList(map),
+                Arrays.asList(map, StreamRule.<ItemCollection> peeked(p -> p.setCode("peeked"))))) {
+            RuleChain<ItemCollection> chain = new RuleChain<>(rules);
+            assertEquals(expected, RulesTest.prices(chain.apply(RulesTest.createItems(LIMIT).stream())));
+            assertEquals(expected, RulesTest.prices(chain.apply(RulesTest.createItems(LIMIT).parallelStream())));
+            assertEquals(expected, RulesTest.prices(chain.applyToAll(RulesTest.createItems(LIMIT)).stream()));
+            List<ItemCollection> inPlace = RulesTest.createItems(LIMIT);
+            chain.applyInPlace(inPlace);
+            assertEquals(expected, RulesTest.prices(inPlace.stream()));
+            RuleChain<ItemCollection> generated = RuleChainGenerator.generate(chain, ItemCollection.class,
+                    Channel.ALL, 1L);
+            assertEquals(expected, RulesTest.prices(generated.apply(RulesTest.createItems(LIMIT).stream())));
+            assertEquals(expected, RulesTest.prices(generated.applyToAll(RulesTest.createItems(LIMIT)).stream()));
+            ParallelRuleExecutor executor = new ParallelRuleExecutor(new ForkJoinPool(RulesTest.THREADS), 1);
+            try {
+                assertEquals(expected,
+                        RulesTest.prices(executor.execute(chain, RulesTest.createItems(LIMIT)).stream()));
+            } finally {
+                executor.shutdown();
+            }
+            assertEquals(expected, RulesTest.prices(chain.page(0, 2).apply(RulesTest.createItems(LIMIT).stream())));
+        }
+    }
+
+    private static List<Integer> prices(final Stream<ItemCollection> items) {
+        return items.map(ItemCollection::getPrecio).collect(Collectors.toList());
+    }
+
+    /**
+     * Long chains get generated too, split in small methods, and give the same result as the plain one.
+     */
+    @Test
+    public void largeGeneratedChainTest() {
+        List<StreamRule<ItemCollection>> rules = new ArrayList<>();
+        for (int i = 0; i < RuleChainGenerator.MAX_STAGES / 3; i++) {
+            int threshold = i % RulesTest.PRICE_100;
+            rules.add(StreamRule.filtered(p -> p.getPrecio() >= threshold));
+            rules.add(StreamRule.peeked(p -> p.setCode("peeked")));
+            rules.add(StreamRule.mapped(p -> p.getPrecio() == threshold + RulesTest.PRICE_100 ? null : p));
+        }
+        RuleChain<ItemCollection> chain = new RuleChain<>(rules);
+        RuleChain<ItemCollection> generated = RuleChainGenerator.generate(chain, ItemCollection.class, Channel.ALL,
+                1L);
+        assertTrue(generated.isGenerated());
+        assertEquals(RulesTest.prices(chain.applyToAll(RulesTest.createItems(RulesTest.PRICE_200)).stream()),
+                RulesTest.prices(generated.applyToAll(RulesTest.createItems(RulesTest.PRICE_200)).stream()));
+    }
+
+    /**
+     * Chains of thousands of rules run with a flat stack, optimized or not.
+     */
+    @Test
+    public void largeChainTest() {
+        for (boolean optimized : new boolean[] { true, false }) {
+            CriterionRuleFactory<ItemCollection> criterion = new CriterionRuleFactory<>();
+            criterion.setOptimized(optimized);
+            for (int i = 0; i < RulesTest.RULES; i++) {
+                int threshold = i % RulesTest.PRICE_100;
+                criterion.fromPredicate(p -> p.getPrecio() >= threshold, ItemCollection.class);
+            }
+            for (int i = 0; i < RulesTest.RULES; i++) {
+                criterion.fromCriterion(StreamRule.peeked(p -> p.setCode("peeked")), ItemCollection.class);
+            }
+            for (int i = 0; i < RulesTest.RULES; i++) {
+                criterion.fromComparator((p1, p2) -> Integer.compare(p2.getPrecio(), p1.getPrecio()),
+                        ItemCollection.class);
+            }
+            StreamRule<ItemCollection> chain = criterion.build(ItemCollection.class);
+            List<ItemCollection> result = chain.apply(RulesTest.createItems(RulesTest.PRICE_200).stream()).collect(
+                    Collectors.toList());
+            assertEquals(RulesTest.PRICE_200 - RulesTest.PRICE_99, result.size());
+            assertEquals(RulesTest.PRICE_200 - 1, result.get(0).getPrecio());
+        }
+    }
+
     /**
      * Update rules parameters with test.
      */
@@ -102,4 +279,119 @@ public class RulesTest {
         criterion.clearRules();
         assertTrue(criterion.getReglas().isEmpty());
     }
+
+    /**
+     * Parallel execution gets the same result as the sequential one, sorts included.
+     *
+     * @throws InterruptedException Execution interrupted
+     */
+    @Test
+    public void parallelExecutionKeepsOrderTest() throws InterruptedException {
+        CriterionRuleFactory<ItemCollection> criterion = new CriterionRuleFactory<>();
+        criterion.fromPredicate(p -> p.getPrecio() % 3 != 0, ItemCollection.class);
+        criterion.fromComparator((p1, p2) -> Integer.compare(p1.getPrecio() % 10, p2.getPrecio() % 10),
+                ItemCollection.class);
+        StreamRule<ItemCollection> streamRule = criterion.build(ItemCollection.class);
+
+        List<ItemCollection> items = RulesTest.createItems(RulesTest.ITEMS);
+
+        ParallelRuleExecutor executor = new ParallelRuleExecutor(new ForkJoinPool(RulesTest.THREADS), 1);
+        try {
+            List<ItemCollection> sequential = streamRule.apply(items.stream()).collect(Collectors.toList());
+            assertEquals(sequential, executor.execute(streamRule, items));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * The optimizer fuses filters and sorts, and gets the same result as the original chain.
+     */
+    @Test
+    public void optimizedChainTest() {
+        List<StreamRule<ItemCollection>> rules = new ArrayList<>();
+        rules.add(StreamRule.sorted((p1, p2) -> Integer.compare(p1.getPrecio() % 10, p2.getPrecio() % 10)));
+        rules.add(StreamRule.filtered(p -> p.getPrecio() % 3 != 0));
+        rules.add(StreamRule.sorted((p1, p2) -> Integer.compare(p1.getPrecio() % 7, p2.getPrecio() % 7)));
+        rules.add(StreamRule.filtered(p -> p.getPrecio() % 5 != 0));
+
+        List<StreamRule<ItemCollection>> optimized = RuleChainOptimizer.optimize(rules);
+        assertEquals(2, optimized.size());
+        assertEquals(RuleKind.FILTER, optimized.get(0).getKind());
+        assertEquals(RuleKind.SORT, optimized.get(1).getKind());
+
+        List<ItemCollection> items = RulesTest.createItems(RulesTest.PRICE_100);
+        assertEquals(new RuleChain<>(rules).apply(items.stream()).collect(Collectors.toList()),
+                new RuleChain<>(optimized).apply(items.stream()).collect(Collectors.toList()));
+    }
+
+    /**
+     * Rules opaque to the engine may buffer, the typed per item rules don't.
+     */
+    @Test
+    public void opaqueRulesMayBufferTest() {
+        StreamRule<ItemCollection> distinct = s -> s.distinct();
+        assertTrue(distinct.isBuffering());
+        assertTrue(new RuleChain<>(Arrays.asList(StreamRule.<ItemCollection> filtered(p -> true), distinct))
+            .isBuffering());
+        assertFalse(StreamRule.<ItemCollection> peeked(p -> p.setPrecio(0)).isBuffering());
+    }
+
+    /**
+     * Applying a chain with a sort reads nothing until the result is consumed, and keeps the close handlers.
+     */
+    @Test
+    public void chainWithSortStaysLazyTest() {
+        CriterionRuleFactory<ItemCollection> criterion = new CriterionRuleFactory<>();
+        criterion.fromPredicate(p -> p.getPrecio() > 0, ItemCollection.class);
+        criterion.fromComparator((p1, p2) -> p1.getPrecio() - p2.getPrecio(), ItemCollection.class);
+        StreamRule<ItemCollection> streamRule = criterion.build(ItemCollection.class);
+        assertTrue(streamRule.isBuffering());
+
+        AtomicInteger read = new AtomicInteger();
+        AtomicInteger closed = new AtomicInteger();
+        List<ItemCollection> items = RulesTest.createItems(RulesTest.LIMIT);
+        Collections.reverse(items);
+        Stream<ItemCollection> input = items.stream().peek(p -> read.incrementAndGet())
+            .onClose(closed::incrementAndGet);
+        try (Stream<ItemCollection> result = streamRule.apply(input)) {
+            assertEquals(0, read.get());
+            assertEquals(1, result.findFirst().get().getPrecio());
+        }
+        assertEquals(RulesTest.LIMIT, read.get());
+        assertEquals(1, closed.get());
+    }
+
+    /**
+     * A page of a sorted chain is the same as the page of the full result, and the per item rules after the sort
+     * only run for the page.
+     */
+    @Test
+    public void pagedChainTest() {
+        AtomicInteger peeks = new AtomicInteger();
+        List<StreamRule<ItemCollection>> rules = new ArrayList<>();
+        rules.add(StreamRule.filtered(p -> p.getPrecio() % 3 != 0));
+        rules.add(StreamRule.sorted((p1, p2) -> Integer.compare(p1.getPrecio() % 10, p2.getPrecio() % 10)));
+        rules.add(StreamRule.peeked(p -> peeks.incrementAndGet()));
+        RuleChain<ItemCollection> chain = new RuleChain<>(rules);
+
+        List<ItemCollection> items = RulesTest.createItems(RulesTest.PRICE_100);
+        List<ItemCollection> full = chain.apply(items.stream()).collect(Collectors.toList());
+        peeks.set(0);
+        List<ItemCollection> page = chain.page(RulesTest.OFFSET, RulesTest.LIMIT).apply(items.stream()).collect(
+                Collectors.toList());
+        assertEquals(full.subList(RulesTest.OFFSET, RulesTest.OFFSET + RulesTest.LIMIT), page);
+        assertEquals(RulesTest.LIMIT, peeks.get());
+    }
+
+    private static List<ItemCollection> createItems(final int count) {
+        List<ItemCollection> items = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ItemCollection item = new ItemCollection();
+            item.setCode(String.valueOf(i));
+            item.setPrecio(i);
+            items.add(item);
+        }
+        return items;
+    }
 }
@@ -0,0 +1,16 @@
+package org.sbol.projects.engine.rules;
+
+/**
+ * Test stream rule manager for item collections.
+ *
+ * @author david.ralluy
+ *
+ */
+public class StreamRuleManagerItemCollection extends StreamRuleManager<ItemCollection> {
+
+    @Override
+    protected Class<ItemCollection> getTargetClass() {
+        return ItemCollection.class;
+    }
+
+}
@@ -0,0 +1,821 @@
+package org.sbol.projects.engine.rules;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.management.ManagementFactory;
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.management.ObjectName;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.sbol.projects.engine.constants.Channel;
+import org.sbol.projects.engine.repository.FileSystemRuleRepository;
+import org.sbol.projects.engine.repository.GeneratedRuleClass;
+import org.sbol.projects.engine.repository.RepositoryClassLoader;
+import org.sbol.projects.engine.repository.RuleClassGeneration;
+import org.sbol.projects.engine.repository.RuleClassLoaders;
+import org.sbol.projects.engine.repository.RuleRepository;
+import org.sbol.projects.engine.rules.bundle.RuleBundleWriter;
+import org.sbol.projects.engine.rules.metrics.RuleMetricsRegistry;
+import org.sbol.projects.engine.rules.metrics.RuleStatistics;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.FileSystemUtils;
+
+/**
+ * Test rules execution through the stream rule manager.
+ *
+ * @author david.ralluy
+ *
+ */
+@RunWith(JUnit4.class)
+public class StreamRuleManagerTest {
+
+    private static final int PRICE_0 = 0;
+    private static final int PRICE_50 = 50;
+    private static final int PRICE_99 = 99;
+    private static final int PRICE_100 = 100;
+    private static final int PRICE_150 = 150;
+    private static final int READERS = 4;
+    private static final int ITERATIONS = 2000;
+    private static final int ARCHIVE_RULES = 8;
+    private static final int GC_ATTEMPTS = 100;
+
+    private AnnotationConfigApplicationContext context;
+
+    private StreamRuleManagerItemCollection manager;
+
+    /**
+     * Spring configuration for the tests.
+     */
+    @Configuration
+    static class RulesConfiguration {
+
+        @Bean
+        public StreamRuleManagerItemCollection streamRuleManagerItemCollection() {
+            return new StreamRuleManagerItemCollection();
+        }
+
+        @Bean
+        public MultiTypeRuleManager multiTypeRuleManager() {
+            return new MultiTypeRuleManager();
+        }
+
+        @Bean
+        public DiscountedPriceRule discountedPriceRule() {
+            return new DiscountedPriceRule();
+        }
+
+        @Bean
+        public PositivePriceRule positivePriceRule() {
+            return new PositivePriceRule();
+        }
+    }
+
+    /**
+     * Spring configuration with commutative filters.
+     */
+    @Configuration
+    static class CommutativeConfiguration {
+
+        @Bean
+        public StreamRuleManagerItemCollection streamRuleManagerItemCollection() {
+            return new StreamRuleManagerItemCollection();
+        }
+
+        @Bean
+        public PositivePriceRule positivePriceRule() {
+            PositivePriceRule rule = new PositivePriceRule();
+            rule.setCommutative(true);
+            return rule;
+        }
+
+        @Bean
+        public CodedItemRule codedItemRule() {
+            CodedItemRule rule = new CodedItemRule();
+            rule.setCommutative(true);
+            return rule;
+        }
+    }
+
+    /**
+     * Spring configuration with the discount only in the web channel.
+     */
+    @Configuration
+    static class WebChannelConfiguration {
+
+        @Bean
+        public StreamRuleManagerItemCollection streamRuleManagerItemCollection() {
+            return new StreamRuleManagerItemCollection();
+        }
+
+        @Bean
+        public DiscountedPriceRule discountedPriceRule() {
+            DiscountedPriceRule rule = new DiscountedPriceRule();
+            rule.setChannel(Channel.WEB);
+            return rule;
+        }
+
+        @Bean
+        public PositivePriceRule positivePriceRule() {
+            return new PositivePriceRule();
+        }
+    }
+
+    /**
+     * Spring configuration for the warm-up.
+     */
+    @Configuration
+    static class WarmUpConfiguration {
+
+        private static final AtomicInteger EXECUTIONS = new AtomicInteger();
+
+        @Bean
+        public RulesWarmUp rulesWarmUp() {
+            RulesWarmUp warmUp = new RulesWarmUp().addWorkload(ItemCollection.class, () -> {
+                EXECUTIONS.incrementAndGet();
+                return createItems(PRICE_0, PRICE_50, PRICE_150);
+            });
+            warmUp.setIterations(ITERATIONS);
+            return warmUp;
+        }
+    }
+
+    /**
+     * Context creation.
+     */
+    @Before
+    public void setUp() {
+        this.context = new AnnotationConfigApplicationContext(RulesConfiguration.class);
+        this.manager = this.context.getBean(StreamRuleManagerItemCollection.class);
+    }
+
+    /**
+     * Context closing.
+     */
+    @After
+    public void tearDown() {
+        this.context.close();
+    }
+
+    private static List<ItemCollection> createItems(final int... prices) {
+        List<ItemCollection> items = new ArrayList<>();
+        for (int i = 0; i < prices.length; i++) {
+            ItemCollection item = new ItemCollection();
+            item.setCode("item" + i);
+            item.setPrecio(prices[i]);
+            items.add(item);
+        }
+        return items;
+    }
+
+    private static List<Integer> prices(final List<ItemCollection> items) {
+        return items.stream().map(p -> Integer.valueOf(p.getPrecio())).collect(Collectors.toList());
+    }
+
+    private static List<Integer> prices(final int... prices) {
+        List<Integer> result = new ArrayList<>();
+        for (int price : prices) {
+            result.add(Integer.valueOf(price));
+        }
+        return result;
+    }
+
+    /**
+     * All the rules of the channel are applied.
+     *
+     * @throws InterruptedException Error reloading rules
+     */
+    @Test
+    public void executeRulesTest() throws InterruptedException {
+        List<ItemCollection> result = this.manager.executeRules(createItems(PRICE_0, PRICE_50, PRICE_150),
+                Channel.ALL);
+        assertEquals(prices(PRICE_50, PRICE_99), prices(result));
+        assertEquals(2, this.manager.getRulesApplied(Channel.ALL).size());
+    }
+
+    /**
+     * A specific channel runs its own rules and the rules of all channels.
+     *
+     * @throws InterruptedException Error reloading rules
+     */
+    @Test
+    public void channelInheritsGeneralRulesTest() throws InterruptedException {
+        try (AnnotationConfigApplicationContext webContext = new AnnotationConfigApplicationContext(
+                WebChannelConfiguration.class)) {
+            StreamRuleManagerItemCollection webManager = webContext.getBean(StreamRuleManagerItemCollection.class);
+
+            assertEquals(prices(PRICE_50, PRICE_150),
+                    prices(webManager.executeRules(createItems(PRICE_0, PRICE_50, PRICE_150), Channel.ALL)));
+            assertEquals(prices(PRICE_50, PRICE_99),
+                    prices(webManager.executeRules(createItems(PRICE_0, PRICE_50, PRICE_150), Channel.WEB)));
+            assertEquals(prices(PRICE_50, PRICE_150),
+                    prices(webManager.executeRules(createItems(PRICE_0, PRICE_50, PRICE_150), Channel.MOBILE)));
+            assertEquals(2, webManager.getRulesApplied(Channel.WEB).size());
+            assertTrue(webManager.getRulesComposite().get(Channel.MOBILE) == webManager.getRulesComposite().get(
+                    Channel.ALL));
+        }
+    }
+
+    /**
+     * A change only compiles again the chains including the changed rule.
+     *
+     * @throws InterruptedException Error reloading rules
+     */
+    @Test
+    public void incrementalRecompilationTest() throws InterruptedException {
+        try (AnnotationConfigApplicationContext webContext = new AnnotationConfigApplicationContext(
+                WebChannelConfiguration.class)) {
+            StreamRuleManagerItemCollection webManager = webContext.getBean(StreamRuleManagerItemCollection.class);
+            StreamRule<ItemCollection> general = webManager.getRulesComposite().get(Channel.ALL);
+
+            webManager.activateRule(null, "precioRebajadoRule", false);
+            assertTrue(general == webManager.getRulesComposite().get(Channel.ALL));
+            assertTrue(general == webManager.getRulesComposite().get(Channel.WEB));
+
+            webManager.activateRule(null, "precioRebajadoRule", true);
+            assertTrue(general == webManager.getRulesComposite().get(Channel.ALL));
+            assertEquals(prices(PRICE_50, PRICE_99),
+                    prices(webManager.executeRules(createItems(PRICE_0, PRICE_50, PRICE_150), Channel.WEB)));
+
+            webManager.updateRulePriority(null, "precioRebajadoRule", PRICE_50);
+            assertEquals("precioRebajadoRule", webManager.getRulesApplied(Channel.WEB).get(0).getName());
+            assertEquals(prices(PRICE_50, PRICE_99),
+                    prices(webManager.executeRules(createItems(PRICE_0, PRICE_50, PRICE_150), Channel.WEB)));
+        }
+    }
+
+    /**
+     * A list mixing types is dispatched to the chain of every type in a single traversal.
+     */
+    @Test
+    public void multiTypeExecutionTest() {
+        MultiTypeRuleManager multiType = this.context.getBean(MultiTypeRuleManager.class);
+        List<ItemCollection> items = createItems(PRICE_0, PRICE_150, PRICE_50);
+        List<Object> mixed = Arrays.asList("a", items.get(0), "b", items.get(1), items.get(2));
+
+        // Opaque rules: the items run together through their chain, at the position of the first one.
+        assertEquals(Arrays.asList("a", items.get(1), items.get(2), "b"),
+                multiType.executeRules(mixed, Channel.ALL));
+        assertEquals(PRICE_99, items.get(1).getPrecio());
+
+        // Per item rules: every item keeps its position.
+        this.manager.removeRule("precioRebajadoRule");
+        assertEquals(Arrays.asList("a", "b", items.get(1), items.get(2)),
+                multiType.executeRules(mixed, Channel.ALL));
+    }
+
+    /**
+     * Results are cached by fingerprint, channel and rule set version, and dropped on any rules change.
+     *
+     * @throws InterruptedException Error executing rules
+     */
+    @Test
+    public void resultCacheTest() throws InterruptedException {
+        RuleResultCache<ItemCollection> cache = new RuleResultCache<>(1);
+        this.manager.setResultCache(cache);
+
+        List<ItemCollection> first = this.manager.executeRules(createItems(PRICE_0, PRICE_150), Channel.ALL, "slice1");
+        assertTrue(first == this.manager.executeRules(createItems(PRICE_0, PRICE_150), Channel.ALL, "slice1"));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        // Bounded to one entry.
+        this.manager.executeRules(createItems(PRICE_50), Channel.ALL, "slice2");
+        assertEquals(1, cache.getEvictions());
+
+        this.manager.activateRule(null, "precioRebajadoRule", false);
+        assertEquals(0, cache.size());
+        assertEquals(prices(PRICE_150),
+                prices(this.manager.executeRules(createItems(PRICE_0, PRICE_150), Channel.ALL, "slice1")));
+        assertEquals(1, cache.getHits());
+    }
+
+    /**
+     * The fingerprint is taken before the rules change the items in place, and without fingerprint nothing is cached.
+     *
+     * @throws InterruptedException Error executing rules
+     */
+    @Test
+    public void resultCacheWithRulesUpdatingItemsTest() throws InterruptedException {
+        RuleResultCache<ItemCollection> cache = new RuleResultCache<>(PRICE_50);
+        this.manager.setResultCache(cache);
+        this.manager.executeRules(createItems(PRICE_150), Channel.ALL);
+        assertEquals(0, cache.size());
+
+        cache.setFingerprint(items -> prices(items));
+        assertEquals(prices(PRICE_99), prices(this.manager.executeRules(createItems(PRICE_150), Channel.ALL)));
+        assertEquals(prices(PRICE_99), prices(this.manager.executeRules(createItems(PRICE_150), Channel.ALL)));
+        assertEquals(1, cache.getHits());
+        // The discounted state is another input, not the one cached.
+        this.manager.executeRules(createItems(PRICE_99), Channel.ALL);
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.size());
+
+        // The warm-up runs the chains, not the cache.
+        this.manager.warmUp(() -> createItems(PRICE_150), 3);
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+    }
+
+    /**
+     * With a metrics registry every rule records its executions, keeping its kind and laziness; without it the chain
+     * is the plain one.
+     *
+     * @throws Exception Error executing rules
+     */
+    @Test
+    public void ruleMetricsTest() throws Exception {
+        StreamRule<ItemCollection> plain = this.manager.getRulesComposite().get(Channel.ALL);
+        List<BusinessRule<ItemCollection>> buffering = this.manager.getBufferingRules(Channel.ALL);
+        RuleMetricsRegistry registry = new RuleMetricsRegistry();
+        this.manager.setMetricsRegistry(registry);
+        this.manager.executeRules(createItems(PRICE_0, PRICE_50, PRICE_150), Channel.ALL);
+
+        // The filter records every item, the plain lambda every stream.
+        RuleStatistics positive = registry.getStatistics("precioPositivoRule", Channel.ALL);
+        assertEquals(3, positive.getInvocations());
+        assertEquals(3, positive.getItemsIn());
+        assertEquals(2, positive.getItemsOut());
+        assertTrue(positive.getP99Nanos() >= positive.getP50Nanos());
+        RuleStatistics discount = registry.getStatistics("precioRebajadoRule", Channel.ALL);
+        assertEquals(1, discount.getInvocations());
+        assertEquals(2, discount.getItemsIn());
+        assertEquals(2, discount.getItemsOut());
+
+        List<StreamRule<ItemCollection>> stages = ((RuleChain<ItemCollection>) this.manager.getRulesComposite()
+            .get(Channel.ALL)).getStages();
+        assertTrue(stages.get(0) instanceof FilterRule);
+        assertEquals(buffering, this.manager.getBufferingRules(Channel.ALL));
+        Stream<ItemCollection> input = Stream.iterate(Integer.valueOf(0), i -> Integer.valueOf(i.intValue() + 1))
+            .map(i -> createItems(i.intValue() * PRICE_50).get(0));
+        assertEquals(prices(PRICE_50, PRICE_100, PRICE_99), prices(this.manager.executeRules(input, Channel.ALL)
+            .limit(3).collect(Collectors.toList())));
+
+        registry.registerMBean("ItemCollectionTest");
+        try {
+            ObjectName name = new ObjectName(
+                    RuleMetricsRegistry.JMX_DOMAIN + ":type=RuleMetrics,name=ItemCollectionTest");
+            assertEquals(2, ((Object[]) ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Statistics"))
+                .length);
+        } finally {
+            registry.unregisterMBean();
+        }
+
+        // A sort is still a sort, recorded when its result gets consumed.
+        StreamRule<ItemCollection> sort = registry.instrument("ordenRule", Channel.ALL,
+                StreamRule.sorted(Comparator.comparingInt(ItemCollection::getPrecio)));
+        assertTrue(sort instanceof SortRule);
+        Stream<ItemCollection> sorted = sort.apply(createItems(PRICE_150, PRICE_0).stream());
+        assertEquals(0, registry.getStatistics("ordenRule", Channel.ALL).getInvocations());
+        assertEquals(prices(PRICE_0, PRICE_150), prices(sorted.collect(Collectors.toList())));
+        assertEquals(2, registry.getStatistics("ordenRule", Channel.ALL).getItemsIn());
+
+        // The metrics of the rules not in the set are dropped.
+        this.manager.removeRule("precioPositivoRule");
+        assertNull(registry.getStatistics("precioPositivoRule", Channel.ALL));
+        assertNull(registry.getStatistics("ordenRule", Channel.ALL));
+
+        this.manager.setMetricsRegistry(null);
+        assertEquals(plain.getClass(), this.manager.getRulesComposite().get(Channel.ALL).getClass());
+        assertTrue(((RuleChain<ItemCollection>) this.manager.getRulesComposite().get(Channel.ALL)).getStages()
+            .stream().noneMatch(p -> p.getClass().getSimpleName().startsWith("Instrumented")));
+    }
+
+    /**
+     * Commutative filters are reordered by measured selectivity without changing the result.
+     *
+     * @throws InterruptedException Error executing rules
+     */
+    @Test
+    public void commutativeFiltersReorderTest() throws InterruptedException {
+        try (AnnotationConfigApplicationContext reorderContext = new AnnotationConfigApplicationContext(
+                CommutativeConfiguration.class)) {
+            StreamRuleManagerItemCollection reorderManager = reorderContext.getBean(
+                    StreamRuleManagerItemCollection.class);
+            assertEquals("codigoRule", reorderManager.getRulesCompiled(Channel.ALL).get(0).getName());
+            assertTrue(!reorderManager.reorderRules());
+
+            int[] prices = new int[ITERATIONS];
+            for (int i = 0; i < prices.length; i += 2) {
+                prices[i + 1] = PRICE_50;
+            }
+            List<Integer> expected = prices(reorderManager.executeRules(createItems(prices), Channel.ALL));
+            assertEquals(ITERATIONS / 2, expected.size());
+
+            // The filter on the price rejects half of the items, the one on the code none.
+            assertTrue(reorderManager.reorderRules());
+            assertEquals("precioPositivoRule", reorderManager.getRulesCompiled(Channel.ALL).get(0).getName());
+            assertEquals("codigoRule", reorderManager.getRulesApplied(Channel.ALL).get(0).getName());
+            assertEquals(expected, prices(reorderManager.executeRules(createItems(prices), Channel.ALL)));
+            assertTrue(!reorderManager.reorderRules());
+        }
+    }
+
+    /**
+     * Per item chains run in place, compacting the items kept; other chains fill the list with their result.
+     */
+    @Test
+    public void executeRulesInPlaceTest() {
+        List<ItemCollection> items = createItems(PRICE_0, PRICE_50, PRICE_0, PRICE_150);
+        assertEquals(2, this.manager.executeRulesInPlace(items, Channel.ALL));
+        assertEquals(prices(PRICE_50, PRICE_99), prices(items));
+
+        this.manager.removeRule("precioRebajadoRule");
+        List<ItemCollection> linked = new LinkedList<>(createItems(PRICE_0, PRICE_50, PRICE_0, PRICE_150));
+        ItemCollection kept = linked.get(1);
+        assertEquals(2, this.manager.executeRulesInPlace(linked, Channel.ALL));
+        assertTrue(kept == linked.get(0));
+        assertEquals(prices(PRICE_50, PRICE_150), prices(linked));
+
+        items = createItems(PRICE_0, PRICE_50, PRICE_0, PRICE_150);
+        assertEquals(2, this.manager.executeRulesInPlace(items, Channel.ALL));
+        assertEquals(prices(PRICE_50, PRICE_150), prices(items));
+    }
+
+    /**
+     * Only the requested page is returned.
+     *
+     * @throws InterruptedException Error reloading rules
+     */
+    @Test
+    public void executeRulesPageTest() throws InterruptedException {
+        List<ItemCollection> result = this.manager.executeRules(createItems(PRICE_0, PRICE_50, PRICE_150, PRICE_100),
+                Channel.ALL, 1, 2);
+        assertEquals(prices(PRICE_99, PRICE_100), prices(result));
+    }
+
+    /**
+     * Without rules the page is a copy, not a view of the input.
+     *
+     * @throws InterruptedException Error executing rules
+     */
+    @Test
+    public void executeRulesPageWithoutRulesTest() throws InterruptedException {
+        this.manager.clearRules();
+        List<ItemCollection> items = createItems(PRICE_0, PRICE_50, PRICE_150);
+        List<ItemCollection> page = this.manager.executeRules(items, Channel.ALL, 1, 1);
+        assertEquals(prices(PRICE_50), prices(page));
+        items.add(createItems(PRICE_100).get(0));
+        page.clear();
+        assertEquals(4, items.size());
+    }
+
+    /**
+     * Every change publishes a new rule set version.
+     *
+     * @throws InterruptedException Error reloading rules
+     */
+    @Test
+    public void removeRulePublishesNewVersionTest() throws InterruptedException {
+        long version = this.manager.getSnapshot().getVersion();
+        this.manager.removeRule("precioRebajadoRule");
+        assertTrue(this.manager.getSnapshot().getVersion() > version);
+        List<ItemCollection> result = this.manager.executeRules(createItems(PRICE_0, PRICE_50, PRICE_150),
+                Channel.ALL);
+        assertEquals(prices(PRICE_50, PRICE_150), prices(result));
+    }
+
+    /**
+     * A replaced parallel executor is shut down, and so is the current one with the context.
+     */
+    @Test
+    public void parallelExecutorShutdownTest() {
+        ParallelRuleExecutor first = new ParallelRuleExecutor(new ForkJoinPool(1), 1);
+        ParallelRuleExecutor second = new ParallelRuleExecutor(new ForkJoinPool(1), 1);
+        this.manager.setParallelExecutor(first);
+        this.manager.setParallelExecutor(second);
+        assertTrue(first.getPool().isShutdown());
+        assertFalse(second.getPool().isShutdown());
+        this.context.close();
+        assertTrue(second.getPool().isShutdown());
+    }
+
+    /**
+     * Changing a rule publishes a changed copy: the rules of the previous snapshot stay as they were.
+     *
+     * @throws InterruptedException Error reloading rules
+     */
+    @Test
+    public void ruleChangesKeepPublishedSnapshotTest() throws InterruptedException {
+        RuleSetSnapshot<ItemCollection> previous = this.manager.getSnapshot();
+        BusinessRule<ItemCollection> published = previous.getRules().get("precioRebajadoRule");
+        int priority = published.getPriority();
+
+        this.manager.activateRule(null, "precioRebajadoRule", false);
+        this.manager.updateRulePriority(null, "precioRebajadoRule", priority + 1);
+        assertTrue(published.isEnabled());
+        assertEquals(priority, published.getPriority());
+        assertTrue(previous.getRulesApplied().get(Channel.ALL).contains(published));
+
+        BusinessRule<ItemCollection> changed = this.manager.getRules().get("precioRebajadoRule");
+        assertFalse(changed.isEnabled());
+        assertEquals(priority + 1, changed.getPriority());
+        assertEquals(prices(PRICE_50, PRICE_150),
+                prices(this.manager.executeRules(createItems(PRICE_0, PRICE_50, PRICE_150), Channel.ALL)));
+    }
+
+    /**
+     * Clearing the rules leaves the items untouched.
+     *
+     * @throws InterruptedException Error reloading rules
+     */
+    @Test
+    public void clearRulesTest() throws InterruptedException {
+        this.manager.clearRules();
+        assertTrue(this.manager.getRules().isEmpty());
+        assertNull(this.manager.getRulesComposite().get(Channel.ALL));
+        List<ItemCollection> items = createItems(PRICE_0, PRICE_150);
+        assertEquals(items, this.manager.executeRules(items, Channel.ALL));
+    }
+
+    /**
+     * Per item rules are applied lazily, so an unbounded input can be streamed. The discount is a plain lambda, so
+     * the engine reports it as possibly buffering, although a peek doesn't.
+     */
+    @Test
+    public void executeRulesOverUnboundedStreamTest() {
+        assertEquals(Collections.singletonList("precioRebajadoRule"), this.manager.getBufferingRules(Channel.ALL)
+            .stream().map(BusinessRule::getName).collect(Collectors.toList()));
+        Stream<ItemCollection> input = Stream.iterate(Integer.valueOf(0), i -> Integer.valueOf(i.intValue() + 1))
+            .map(i -> createItems(i.intValue() * PRICE_50).get(0));
+        List<ItemCollection> result = this.manager.executeRules(input, Channel.ALL).limit(3).collect(
+                Collectors.toList());
+        assertEquals(prices(PRICE_50, PRICE_100, PRICE_99), prices(result));
+    }
+
+    /**
+     * The warm-up runs the workload through every channel at startup.
+     */
+    @Test
+    public void warmUpAtStartupTest() {
+        WarmUpConfiguration.EXECUTIONS.set(0);
+        try (AnnotationConfigApplicationContext warmContext = new AnnotationConfigApplicationContext(
+                RulesConfiguration.class, WarmUpConfiguration.class)) {
+            assertEquals(ITERATIONS, WarmUpConfiguration.EXECUTIONS.get());
+        }
+    }
+
+    /**
+     * Rules declared in a source are compiled and added to the current rules.
+     *
+     * @throws InterruptedException Error reloading rules
+     */
+    @Test
+    public void loadRulesFromSourceTest() throws InterruptedException {
+        this.manager.loadRules("rule marcado priority 0 { set code = code + \"*\" when precio < 99; }\n"
+                + "rule ordenado priority -1 channel WEB { sort precio desc; }");
+        assertEquals(4, this.manager.getRules().size());
+
+        List<ItemCollection> result = this.manager.executeRules(createItems(PRICE_0, PRICE_50, PRICE_150),
+                Channel.WEB);
+        assertEquals(prices(PRICE_99, PRICE_50), prices(result));
+        assertEquals(Arrays.asList("item2", "item1*"),
+                result.stream().map(ItemCollection::getCode).collect(Collectors.toList()));
+        assertEquals(3, this.manager.getRulesApplied(Channel.ALL).size());
+
+        // A source with errors changes nothing.
+        try {
+            this.manager.loadRules("rule roto { filter precio > ; }");
+            fail("Rules with errors loaded");
+        } catch (IllegalArgumentException e) {
+            assertEquals(4, this.manager.getRules().size());
+        }
+    }
+
+    /**
+     * Rules loaded from a bundle replace those of the previous bundle, and unchanged definitions keep their compiled
+     * rule.
+     *
+     * @throws Exception Error writing or loading the bundle
+     */
+    @Test
+    public void loadBundleTest() throws Exception {
+        Path path = Files.createTempFile("rules", ".bundle");
+        try {
+            new RuleBundleWriter(1L)
+                .add("marcado", 0, Channel.ALL, true, false, null,
+                        "rule marcado { set code = code + \"*\" when precio < 99; }")
+                .add("minimo", 5, Channel.ALL, true, false, Collections.singletonMap("minimo", Integer.valueOf(10)),
+                        "rule minimo { param minimo = 0; filter precio >= $minimo; }")
+                .write(path);
+            this.manager.loadBundle(path);
+            assertEquals(1L, this.manager.getBundle().getVersion());
+            assertEquals(4, this.manager.getRules().size());
+            List<ItemCollection> result = this.manager.executeRules(createItems(PRICE_0, PRICE_50, PRICE_150),
+                    Channel.ALL);
+            assertEquals(prices(PRICE_50, PRICE_99), prices(result));
+            assertEquals(Arrays.asList("item1*", "item2"),
+                    result.stream().map(ItemCollection::getCode).collect(Collectors.toList()));
+            BusinessRule<ItemCollection> marcado = this.manager.getRules().get("marcado");
+
+            // The second bundle disables marcado and drops minimo.
+            new RuleBundleWriter(2L)
+                .add("marcado", 0, Channel.ALL, false, false, null,
+                        "rule marcado { set code = code + \"*\" when precio < 99; }")
+                .write(path);
+            this.manager.loadBundle(path);
+            assertEquals(3, this.manager.getRules().size());
+            BusinessRule<ItemCollection> disabled = this.manager.getRules().get("marcado");
+            assertFalse(marcado == disabled);
+            assertTrue(marcado.isEnabled());
+            assertFalse(disabled.isEnabled());
+            assertEquals(prices(PRICE_50, PRICE_99), prices(this.manager.executeRules(
+                    createItems(PRICE_0, PRICE_50, PRICE_150), Channel.ALL)));
+            assertEquals(2, this.manager.getRulesApplied(Channel.ALL).size());
+
+            // Unchanged source and metadata reuse the rule.
+            RuleBundleWriter third = new RuleBundleWriter(3L)
+                .add("marcado", 0, Channel.ALL, false, false, null,
+                        "rule marcado { set code = code + \"*\" when precio < 99; }")
+                .add("minimo", 5, Channel.ALL, true, false, Collections.singletonMap("minimo", Integer.valueOf(10)),
+                        "rule minimo { param minimo = 0; filter precio >= $minimo; }");
+            third.write(path);
+            this.manager.loadBundle(path);
+            assertTrue(disabled == this.manager.getRules().get("marcado"));
+
+            // The bundle wins over the changes made through the admin API, parameters included.
+            this.manager.updateRulePriority(null, "marcado", 7);
+            this.manager.updateRule(null, "minimo", Collections.singletonMap("minimo", Integer.valueOf(200)));
+            assertEquals(prices(), prices(this.manager.executeRules(createItems(PRICE_0, PRICE_50, PRICE_150),
+                    Channel.ALL)));
+            third.write(path);
+            this.manager.loadBundle(path);
+            assertEquals(0, this.manager.getRules().get("marcado").getPriority());
+            assertEquals(Integer.valueOf(10), this.manager.getRules().get("minimo").getParameters().get("minimo"));
+            assertEquals(prices(PRICE_50, PRICE_99), prices(this.manager.executeRules(
+                    createItems(PRICE_0, PRICE_50, PRICE_150), Channel.ALL)));
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    /**
+     * Added rules are loaded from the configured repository.
+     *
+     * @throws Exception Error loading the rule
+     */
+    @Test
+    public void addRuleFromRepositoryTest() throws Exception {
+        String ruleClass = "org.sbol.projects.engine.rules.generated.CodedItemSubRule";
+        Path root = Files.createTempDirectory("rules");
+        try {
+            GeneratedRuleClass.write(root, ruleClass, GeneratedRuleClass.subclass(ruleClass, CodedItemRule.class));
+            this.manager.setRuleRepository(new FileSystemRuleRepository(root));
+            this.manager.addRule(null, ruleClass);
+
+            BusinessRule<ItemCollection> added = this.manager.getRules().get("codigoRule");
+            assertEquals(ruleClass, added.getClass().getName());
+            List<ItemCollection> items = createItems(PRICE_50, PRICE_150);
+            items.get(0).setCode("");
+            assertEquals(prices(PRICE_99), prices(this.manager.executeRules(items, Channel.ALL)));
+        } finally {
+            FileSystemUtils.deleteRecursively(root.toFile());
+        }
+    }
+
+    /**
+     * The rules of an archive are added together, in a single rule set version. Classes which are not rules of the
+     * target class are only defined.
+     *
+     * @throws Exception Error adding the rules
+     */
+    @Test
+    public void addRulesFromArchiveTest() throws Exception {
+        String generated = "org.sbol.projects.engine.rules.generated.";
+        Map<String, byte[]> classes = new LinkedHashMap<>();
+        for (int i = 0; i < ARCHIVE_RULES; i++) {
+            String ruleClass = generated + "CodedItemRule" + i;
+            classes.put(ruleClass, GeneratedRuleClass.subclass(ruleClass, CodedItemRule.class, "codigoRule" + i));
+        }
+        classes.put(generated + "Helper", GeneratedRuleClass.subclass(generated + "Helper", Object.class));
+        long version = this.manager.getSnapshot().getVersion();
+
+        List<String> added = this.manager.addRules(new ByteArrayInputStream(GeneratedRuleClass.jar(classes)));
+        assertEquals(ARCHIVE_RULES, added.size());
+        assertEquals(version + 1, this.manager.getSnapshot().getVersion());
+        for (String name : added) {
+            assertTrue(this.manager.getRules().get(name).getClass().getName().startsWith(generated));
+        }
+        // The loader keeps the class names of the archive, not their bytes.
+        RuleRepository archive = ((RepositoryClassLoader) this.manager.getRules().get(added.get(0)).getClass()
+            .getClassLoader()).getRepository();
+        try {
+            archive.load(generated + "Helper");
+            fail("Class bytes kept after defining the class");
+        } catch (ClassNotFoundException e) {
+            assertTrue(e.getMessage().contains("released"));
+        }
+        List<ItemCollection> items = createItems(PRICE_50, PRICE_150);
+        items.get(0).setCode("");
+        assertEquals(prices(PRICE_99), prices(this.manager.executeRules(items, Channel.ALL)));
+
+        // An archive without rules publishes nothing.
+        Map<String, byte[]> helper = Collections.singletonMap(generated + "Helper2",
+                GeneratedRuleClass.subclass(generated + "Helper2", Object.class));
+        assertTrue(this.manager.addRules(new ByteArrayInputStream(GeneratedRuleClass.jar(helper))).isEmpty());
+        assertEquals(version + 1, this.manager.getSnapshot().getVersion());
+    }
+
+    /**
+     * Every rule added gets its own class loader generation, retired when no rule set references it and then
+     * unloaded.
+     *
+     * @throws Exception Error loading the rules
+     */
+    @Test
+    public void classLoaderGenerationsTest() throws Exception {
+        String ruleClass = "org.sbol.projects.engine.rules.generated.CodedItemSubRule";
+        byte[] bytes = GeneratedRuleClass.subclass(ruleClass, CodedItemRule.class);
+        Path root = Files.createTempDirectory("rules");
+        try {
+            GeneratedRuleClass.write(root, ruleClass, bytes);
+            this.manager.setRuleRepository(new FileSystemRuleRepository(root));
+            RuleClassLoaders classLoaders = this.manager.getClassLoaders();
+
+            this.manager.addRule(null, ruleClass);
+            this.manager.addRule(null, ruleClass);
+            List<RuleClassGeneration> generations = classLoaders.getGenerations();
+            assertEquals(2, generations.size());
+            assertEquals(RuleClassGeneration.State.RETIRED, generations.get(0).getState());
+            assertEquals(RuleClassGeneration.State.ACTIVE, generations.get(1).getState());
+            assertEquals(1L, generations.get(1).getClassCount());
+            assertEquals(bytes.length, generations.get(1).getClassBytes());
+
+            this.manager.removeRule("codigoRule");
+            assertEquals(RuleClassGeneration.State.RETIRED, generations.get(1).getState());
+            for (int i = 0; i < GC_ATTEMPTS && classLoaders.getUnloadedGenerations() < 2; i++) {
+                System.gc();
+                Thread.sleep(10L);
+            }
+            assertTrue(classLoaders.getGenerations().isEmpty());
+            assertEquals(2L, classLoaders.getUnloadedClasses());
+            assertEquals(RuleClassGeneration.State.UNLOADED, generations.get(0).getState());
+        } finally {
+            FileSystemUtils.deleteRecursively(root.toFile());
+        }
+    }
+
+    /**
+     * Readers running while the rules are toggled always see a complete rule set.
+     *
+     * @throws Exception Error executing rules
+     */
+    @Test
+    public void concurrentReadersSeeCompleteRuleSetsTest() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(READERS);
+        try {
+            List<Future<Boolean>> readers = new ArrayList<>();
+            for (int i = 0; i < READERS; i++) {
+                readers.add(executor.submit(() -> {
+                    for (int j = 0; j < ITERATIONS; j++) {
+                        List<Integer> result = prices(
+                                this.manager.executeRules(createItems(PRICE_0, PRICE_50, PRICE_150), Channel.ALL));
+                        if (!result.equals(prices(PRICE_50, PRICE_99))
+                                && !result.equals(prices(PRICE_0, PRICE_50, PRICE_99))) {
+                            return Boolean.FALSE;
+                        }
+                    }
+                    return Boolean.TRUE;
+                }));
+            }
+            for (int j = 0; j < ITERATIONS / 10; j++) {
+                this.manager.activateRule(null, "precioPositivoRule", j % 2 == 0);
+            }
+            for (Future<Boolean> reader : readers) {
+                assertTrue(reader.get().booleanValue());
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+
+}
@@ -0,0 +1,123 @@
+package org.sbol.projects.engine.rules.bundle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.sbol.projects.engine.constants.Channel;
+
+/**
+ * Rule bundle tests.
+ *
+ * @author david.ralluy
+ *
+ */
+@RunWith(JUnit4.class)
+public class RuleBundleTest {
+
+    private static final int RULES = 10000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static String source(final int rule) {
+        return "rule r" + rule + " { param minimo = 0; filter precio > $minimo; }";
+    }
+
+    /**
+     * Every field written is read back from the mapping, and rules are found by name.
+     *
+     * @throws IOException Error writing the bundle
+     */
+    @Test
+    public void writeAndReadTest() throws IOException {
+        RuleBundleWriter writer = new RuleBundleWriter(7L);
+        for (int i = 0; i < RULES; i++) {
+            Map<String, Object> parameters = new HashMap<>();
+            parameters.put("minimo", Integer.valueOf(i));
+            writer.add("r" + i, i % 100, Channel.values()[i % Channel.values().length], i % 2 == 0, i % 3 == 0,
+                    parameters, source(i));
+        }
+        writer.add("ñandú", -1, Channel.WEB, true, false, null, "rule \"ñandú\" { }");
+        Map<String, Object> values = new HashMap<>();
+        values.put("long", Long.valueOf(Long.MAX_VALUE));
+        values.put("double", Double.valueOf(0.5));
+        values.put("boolean", Boolean.TRUE);
+        values.put("string", "texto");
+        values.put("null", null);
+        writer.add("tipos", 0, Channel.ALL, true, false, values, "rule tipos { }");
+        Path path = this.folder.getRoot().toPath().resolve("rules.bundle");
+        writer.write(path);
+
+        RuleBundle bundle = RuleBundle.open(path);
+        assertEquals(7L, bundle.getVersion());
+        assertEquals(RULES + 2, bundle.size());
+        for (int i = 0; i < RULES; i += 97) {
+            int position = bundle.indexOf("r" + i);
+            assertEquals("r" + i, bundle.getName(position));
+            assertEquals(i % 100, bundle.getPriority(position));
+            assertEquals(Channel.values()[i % Channel.values().length], bundle.getChannel(position));
+            assertEquals(i % 2 == 0, bundle.isEnabled(position));
+            assertEquals(i % 3 == 0, bundle.isCommutative(position));
+            assertEquals(Collections.singletonMap("minimo", Integer.valueOf(i)), bundle.getParameters(position));
+            assertEquals(source(i), bundle.getSource(position));
+        }
+        assertEquals("rule \"ñandú\" { }", bundle.getSource(bundle.indexOf("ñandú")));
+        assertEquals(values, bundle.getParameters(bundle.indexOf("tipos")));
+        assertEquals("rule tipos { }", bundle.getSource(bundle.indexOf("tipos")));
+        assertEquals(-1, bundle.indexOf("r" + RULES));
+
+        // Same definition, same hash, whatever the metadata.
+        assertEquals(bundle.getHash(bundle.indexOf("r1")), this.rewrite(Integer.valueOf(1)));
+        assertFalse(bundle.getHash(bundle.indexOf("r1")) == this.rewrite(Integer.valueOf(2)));
+    }
+
+    private long rewrite(final Integer minimo) throws IOException {
+        Path path = this.folder.getRoot().toPath().resolve("single.bundle");
+        new RuleBundleWriter(1L).add("r1", 5, Channel.MOBILE, false, true,
+                Collections.singletonMap("minimo", minimo), source(1)).write(path);
+        return RuleBundle.open(path).getHash(0);
+    }
+
+    /**
+     * Files that are not bundles, or with entries out of the file, are rejected when opened.
+     *
+     * @throws IOException Error writing the files
+     */
+    @Test
+    public void invalidBundleTest() throws IOException {
+        Path text = this.folder.newFile("rules.txt").toPath();
+        Files.write(text, Arrays.asList("rule r { }"));
+        assertInvalid(text);
+
+        Path path = this.folder.getRoot().toPath().resolve("truncated.bundle");
+        new RuleBundleWriter(1L).add("r", 1, Channel.ALL, true, false, null, source(0)).write(path);
+        byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(bytes, bytes.length - 4));
+        assertInvalid(path);
+    }
+
+    private static void assertInvalid(final Path path) {
+        try {
+            RuleBundle.open(path);
+            fail("Opened " + path);
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains(path.toString()));
+        }
+    }
+
+}
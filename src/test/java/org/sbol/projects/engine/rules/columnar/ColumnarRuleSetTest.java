@@ -0,0 +1,143 @@
+package org.sbol.projects.engine.rules.columnar;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.sbol.projects.engine.rules.ItemCollection;
+import org.sbol.projects.engine.rules.threshold.ThresholdOperator;
+
+/**
+ * Columnar mode tests.
+ *
+ * @author david.ralluy
+ *
+ */
+@RunWith(JUnit4.class)
+public class ColumnarRuleSetTest {
+
+    private static final int ITEMS = 2000;
+    private static final int MAX_PRICE = 1000;
+    private static final long SEED = 42L;
+    private static final List<String> CODES = Arrays.asList("A", "B", "C", "D");
+
+    private static final ColumnSchema<ItemCollection> SCHEMA = new ColumnSchema<ItemCollection>()
+        .intColumn("precio", ItemCollection::getPrecio, ItemCollection::setPrecio)
+        .dictionaryColumn("code", ItemCollection::getCode);
+
+    private static List<ItemCollection> createItems(final Random random) {
+        List<ItemCollection> items = new ArrayList<>();
+        for (int i = 0; i < ColumnarRuleSetTest.ITEMS; i++) {
+            ItemCollection item = new ItemCollection();
+            item.setCode(CODES.get(random.nextInt(CODES.size())));
+            item.setPrecio(random.nextInt(ColumnarRuleSetTest.MAX_PRICE));
+            items.add(item);
+        }
+        return items;
+    }
+
+    private static List<String> describe(final List<ItemCollection> items) {
+        return items.stream().map(p -> p.getCode() + ":" + p.getPrecio()).collect(Collectors.toList());
+    }
+
+    /**
+     * The columnar rules give the same result as the equivalent stream.
+     */
+    @Test
+    public void columnarMatchesStreamTest() {
+        ColumnarRuleSet<ItemCollection> rules = new ColumnarRuleSet<>(SCHEMA, Arrays.asList(
+                ColumnarRule.filter("precio", ThresholdOperator.GREATER, 100),
+                ColumnarRule.filterIn("code", Arrays.asList("A", "C", "Z")),
+                ColumnarRule.update("precio", ThresholdOperator.GREATER_OR_EQUAL, 900, 900),
+                ColumnarRule.filter("precio", ThresholdOperator.LESS, 950)));
+
+        List<ItemCollection> expected = createItems(new Random(SEED)).stream()
+            .filter(p -> p.getPrecio() > 100)
+            .filter(p -> "A".equals(p.getCode()) || "C".equals(p.getCode()))
+            .peek(p -> p.setPrecio(Math.min(p.getPrecio(), 900)))
+            .collect(Collectors.toList());
+
+        List<ItemCollection> items = createItems(new Random(SEED));
+        List<ItemCollection> result = rules.execute(items);
+        assertEquals(describe(expected), describe(result));
+
+        // Same items through the stream rule, and the selection vector pointing at them.
+        List<ItemCollection> selectable = createItems(new Random(SEED));
+        int[] selection = rules.select(selectable);
+        assertEquals(expected.size(), selection.length);
+        assertEquals(describe(expected),
+                describe(Arrays.stream(selection).mapToObj(selectable::get).collect(Collectors.toList())));
+        assertEquals(describe(expected), describe(rules.apply(createItems(new Random(SEED)).stream())
+            .collect(Collectors.toList())));
+    }
+
+    /**
+     * An update reaches the items selected when it runs, even those a later filter deselects, and not those deselected
+     * before: the same items the equivalent row rules update.
+     */
+    @Test
+    public void updateThenFilterTest() {
+        ColumnarRuleSet<ItemCollection> rules = new ColumnarRuleSet<>(SCHEMA, Arrays.asList(
+                ColumnarRule.filterIn("code", Arrays.asList("A", "B")),
+                ColumnarRule.update("precio", ThresholdOperator.GREATER, 500, 500),
+                ColumnarRule.filter("precio", ThresholdOperator.LESS, 300),
+                ColumnarRule.update("precio", ThresholdOperator.LESS, 100, 0)));
+
+        List<ItemCollection> expectedItems = createItems(new Random(SEED));
+        List<ItemCollection> expected = expectedItems.stream()
+            .filter(p -> "A".equals(p.getCode()) || "B".equals(p.getCode()))
+            .peek(p -> p.setPrecio(p.getPrecio() > 500 ? 500 : p.getPrecio()))
+            .filter(p -> p.getPrecio() < 300)
+            .peek(p -> p.setPrecio(p.getPrecio() < 100 ? 0 : p.getPrecio()))
+            .collect(Collectors.toList());
+
+        List<ItemCollection> items = createItems(new Random(SEED));
+        assertEquals(describe(expected), describe(rules.execute(items)));
+        // Every item, selected or not, as the row rules left it.
+        assertEquals(describe(expectedItems), describe(items));
+
+        // The update of a read only column couldn't reach the items, so it is rejected.
+        ColumnarRuleSet<ItemCollection> readOnly = new ColumnarRuleSet<>(
+                new ColumnSchema<ItemCollection>().intColumn("precio", ItemCollection::getPrecio),
+                Collections.singletonList(ColumnarRule.update("precio", ThresholdOperator.LESS, 100, 0)));
+        try {
+            readOnly.execute(createItems(new Random(SEED)));
+            fail("Updated a read only column");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("precio"));
+        }
+    }
+
+    /**
+     * Thresholds at the limits of the int range.
+     */
+    @Test
+    public void thresholdLimitsTest() {
+        List<ItemCollection> items = createItems(new Random(SEED));
+        assertEquals(0, new ColumnarRuleSet<>(SCHEMA, Arrays.asList(
+                ColumnarRule.<ItemCollection>filter("precio", ThresholdOperator.GREATER, Integer.MAX_VALUE)))
+            .select(items).length);
+        assertEquals(0, new ColumnarRuleSet<>(SCHEMA, Arrays.asList(
+                ColumnarRule.<ItemCollection>filter("precio", ThresholdOperator.LESS, Integer.MIN_VALUE)))
+            .select(items).length);
+        int[] all = new ColumnarRuleSet<>(SCHEMA, Arrays.asList(
+                ColumnarRule.<ItemCollection>filter("precio", ThresholdOperator.LESS_OR_EQUAL, Integer.MAX_VALUE)))
+            .select(items);
+        assertArrayEquals(new ColumnarRuleSet<>(SCHEMA, Arrays.asList(
+                ColumnarRule.<ItemCollection>filter("precio", ThresholdOperator.GREATER_OR_EQUAL, Integer.MIN_VALUE)))
+            .select(items), all);
+        assertEquals(ColumnarRuleSetTest.ITEMS, all.length);
+    }
+
+}
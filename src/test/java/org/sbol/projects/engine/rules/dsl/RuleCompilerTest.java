@@ -0,0 +1,191 @@
+package org.sbol.projects.engine.rules.dsl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.sbol.projects.engine.constants.Channel;
+import org.sbol.projects.engine.rules.BusinessRule;
+import org.sbol.projects.engine.rules.FilterRule;
+import org.sbol.projects.engine.rules.ItemCollection;
+
+/**
+ * Rules language tests.
+ *
+ * @author david.ralluy
+ *
+ */
+@RunWith(JUnit4.class)
+public class RuleCompilerTest {
+
+    private static final int ITEMS = 500;
+    private static final int MAX_PRICE = 1000;
+    private static final long SEED = 42L;
+
+    private static final String SOURCE = "# Rebajas\n"
+            + "rule rebajas priority 10 channel WEB commutative {\n"
+            + "    param minimo = 100;\n"
+            + "    param descuento = 10;\n"
+            + "    filter precio > 0 and not (code == \"B\");\n"
+            + "    set precio = precio - $descuento * 2, code = code + \"-\" + precio when precio >= $minimo;\n"
+            + "    sort code desc, precio;\n"
+            + "}\n"
+            + "rule \"precio par\" { filter precio % 2 == 0; }\n";
+
+    private static List<ItemCollection> createItems(final Random random) {
+        List<String> codes = Arrays.asList("A", "B", "C");
+        List<ItemCollection> items = new ArrayList<>();
+        for (int i = 0; i < RuleCompilerTest.ITEMS; i++) {
+            ItemCollection item = new ItemCollection();
+            item.setCode(codes.get(random.nextInt(codes.size())));
+            item.setPrecio(random.nextInt(RuleCompilerTest.MAX_PRICE) - 1);
+            items.add(item);
+        }
+        return items;
+    }
+
+    private static List<String> describe(final List<ItemCollection> items) {
+        return items.stream().map(p -> p.getCode() + ":" + p.getPrecio()).collect(Collectors.toList());
+    }
+
+    private static List<ItemCollection> apply(final BusinessRule<ItemCollection> rule,
+            final List<ItemCollection> items) {
+        return rule.getRule().apply(items.stream()).collect(Collectors.toList());
+    }
+
+    /**
+     * Compiled rules give the same result as the handwritten stream.
+     */
+    @Test
+    public void compiledRulesMatchHandwrittenTest() {
+        List<BusinessRule<ItemCollection>> rules = RuleCompiler.compile(SOURCE, ItemCollection.class);
+        assertEquals(2, rules.size());
+        BusinessRule<ItemCollection> rebajas = rules.get(0);
+        assertEquals("rebajas", rebajas.getName());
+        assertEquals(10, rebajas.getPriority());
+        assertEquals(Channel.WEB, rebajas.getChannel());
+        assertTrue(rebajas.isCommutative());
+        assertEquals(2, rebajas.getParameters().size());
+
+        List<ItemCollection> expected = createItems(new Random(SEED)).stream()
+            .filter(p -> p.getPrecio() > 0 && !"B".equals(p.getCode()))
+            .peek(p -> {
+                if (p.getPrecio() >= 100) {
+                    p.setPrecio(p.getPrecio() - 20);
+                    p.setCode(p.getCode() + "-" + p.getPrecio());
+                }
+            })
+            .sorted((p1, p2) -> {
+                int result = p2.getCode().compareTo(p1.getCode());
+                return result != 0 ? result : Integer.compare(p1.getPrecio(), p2.getPrecio());
+            })
+            .collect(Collectors.toList());
+        assertEquals(describe(expected), describe(apply(rebajas, createItems(new Random(SEED)))));
+
+        // A single statement is a typed rule, for the engine to optimize.
+        BusinessRule<ItemCollection> par = rules.get(1);
+        assertEquals("precio par", par.getName());
+        assertEquals(Channel.ALL, par.getChannel());
+        assertTrue(par.getRule() instanceof FilterRule);
+        assertTrue(apply(par, createItems(new Random(SEED))).stream().allMatch(p -> p.getPrecio() % 2 == 0));
+    }
+
+    /**
+     * Parameters are constants of the compiled rule, compiled again on update.
+     */
+    @Test
+    public void parametersUpdateTest() {
+        BusinessRule<ItemCollection> rule = RuleCompiler.compile("rule minimo { param minimo = 500;"
+                + " filter precio >= $minimo; }", ItemCollection.class).get(0);
+        assertTrue(apply(rule, createItems(new Random(SEED))).stream().allMatch(p -> p.getPrecio() >= 500));
+
+        rule.updateParameters(Collections.singletonMap("minimo", Integer.valueOf(900)));
+        assertTrue(apply(rule, createItems(new Random(SEED))).stream().allMatch(p -> p.getPrecio() >= 900));
+
+        // A value of the wrong type keeps the previous version.
+        try {
+            rule.updateParameters(Collections.singletonMap("minimo", "mucho"));
+            fail("String threshold accepted");
+        } catch (RuleSyntaxException e) {
+            assertEquals(Integer.valueOf(900), rule.getParameters().get("minimo"));
+        }
+    }
+
+    /**
+     * Errors point to their line and column.
+     */
+    @Test
+    public void syntaxErrorsTest() {
+        assertError("rule r {\n  filter precio > ;\n}", 2, 19);
+        assertError("rule r {\n  filter peso > 1;\n}", 2, 10);
+        assertError("rule r { filter code > 1; }", 1, 22);
+        assertError("rule r { set precio = \"gratis\"; }", 1, 23);
+        assertError("rule r { filter precio > $maximo; }", 1, 26);
+        assertError("rule r channel TV { }", 1, 16);
+        assertError("rule r { filter 1 / 0 > precio; }", 1, 19);
+        assertError("rule r { }\nrule r { }", 2, 1);
+    }
+
+    private static void assertError(final String source, final int line, final int column) {
+        try {
+            RuleCompiler.compile(source, ItemCollection.class);
+            fail("Compiled: " + source);
+        } catch (RuleSyntaxException e) {
+            assertEquals(e.getMessage(), line, e.getLine());
+            assertEquals(e.getMessage(), column, e.getColumn());
+        }
+    }
+
+    /**
+     * Classes that can't be bound directly go through method handles.
+     */
+    @Test
+    public void nonPublicItemTest() {
+        BusinessRule<Hidden> rule = RuleCompiler.compile("rule r { set activo = peso > 1.5, peso = peso * 2;"
+                + " filter activo; }", Hidden.class).get(0);
+        Hidden light = new Hidden();
+        light.setPeso(1.0);
+        Hidden heavy = new Hidden();
+        heavy.setPeso(2.0);
+        List<Hidden> result = rule.getRule().apply(Arrays.asList(light, heavy).stream()).collect(Collectors.toList());
+        assertEquals(Collections.singletonList(heavy), result);
+        assertEquals(4.0, heavy.getPeso(), 0.0);
+    }
+
+    /**
+     * Item of a class not visible to the engine.
+     */
+    static class Hidden {
+
+        private double peso;
+
+        private boolean activo;
+
+        public double getPeso() {
+            return this.peso;
+        }
+
+        public void setPeso(final double peso) {
+            this.peso = peso;
+        }
+
+        public boolean isActivo() {
+            return this.activo;
+        }
+
+        public void setActivo(final boolean activo) {
+            this.activo = activo;
+        }
+    }
+
+}
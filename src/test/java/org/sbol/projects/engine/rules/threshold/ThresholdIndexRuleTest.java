@@ -0,0 +1,86 @@
+package org.sbol.projects.engine.rules.threshold;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.sbol.projects.engine.rules.ItemCollection;
+import org.sbol.projects.engine.rules.RuleChain;
+import org.sbol.projects.engine.rules.RuleChainOptimizer;
+import org.sbol.projects.engine.rules.StreamRule;
+
+/**
+ * Threshold index tests.
+ *
+ * @author david.ralluy
+ *
+ */
+@RunWith(JUnit4.class)
+public class ThresholdIndexRuleTest {
+
+    private static final int RULES = 200;
+    private static final int ITEMS = 2000;
+    private static final int MAX_PRICE = 1000;
+    private static final long SEED = 42L;
+
+    private static final NumericAttribute<ItemCollection> PRECIO = new NumericAttribute<>("precio",
+            ItemCollection::getPrecio);
+
+    private static List<StreamRule<ItemCollection>> createRules(final Random random) {
+        ThresholdOperator[] operators = ThresholdOperator.values();
+        List<StreamRule<ItemCollection>> rules = new ArrayList<>();
+        for (int i = 0; i < ThresholdIndexRuleTest.RULES; i++) {
+            double threshold = random.nextInt(ThresholdIndexRuleTest.MAX_PRICE);
+            ThresholdOperator operator = operators[random.nextInt(operators.length)];
+            // Some actions change the indexed attribute, so later conditions see the new value.
+            int delta = i % 3 == 0 ? -random.nextInt(50) : 0;
+            String mark = String.valueOf(i % 10);
+            rules.add(new ThresholdRule<>(PRECIO, operator, () -> threshold, p -> {
+                p.setCode(p.getCode() + mark);
+                p.setPrecio(p.getPrecio() + delta);
+            }));
+        }
+        return rules;
+    }
+
+    private static List<ItemCollection> createItems(final Random random) {
+        List<ItemCollection> items = new ArrayList<>();
+        for (int i = 0; i < ThresholdIndexRuleTest.ITEMS; i++) {
+            ItemCollection item = new ItemCollection();
+            item.setCode("");
+            item.setPrecio(random.nextInt(ThresholdIndexRuleTest.MAX_PRICE));
+            items.add(item);
+        }
+        return items;
+    }
+
+    private static List<String> describe(final List<ItemCollection> items) {
+        return items.stream().map(p -> p.getCode() + ":" + p.getPrecio()).collect(Collectors.toList());
+    }
+
+    /**
+     * The indexed chain gives the same result as applying the rules one by one.
+     */
+    @Test
+    public void indexMatchesSequentialRulesTest() {
+        List<StreamRule<ItemCollection>> rules = createRules(new Random(SEED));
+
+        List<StreamRule<ItemCollection>> optimized = RuleChainOptimizer.optimize(rules);
+        assertEquals(1, optimized.size());
+        assertTrue(optimized.get(0) instanceof ThresholdIndexRule);
+
+        List<ItemCollection> sequential = new RuleChain<>(rules).apply(createItems(new Random(SEED)).stream())
+            .collect(Collectors.toList());
+        List<ItemCollection> indexed = new RuleChain<>(optimized).apply(createItems(new Random(SEED)).stream())
+            .collect(Collectors.toList());
+        assertEquals(describe(sequential), describe(indexed));
+    }
+
+}